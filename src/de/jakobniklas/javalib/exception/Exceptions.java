@@ -25,7 +25,7 @@ public class Exceptions
      */
     public static void handle(Exception e)
     {
-        Log.print(new LogLevel("error"), "Exception", e.getMessage());
+        Log.print(LogLevel.ERROR, "Exception", e.getMessage());
 
         e.printStackTrace();
     }
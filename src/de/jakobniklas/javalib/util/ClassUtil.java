@@ -2,6 +2,7 @@ package de.jakobniklas.javalib.util;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Utilities class for Class related operations
@@ -13,9 +14,20 @@ import java.util.List;
  * @see #getStackTraceLine(int)
  * @see #getStackTraceFile(int)
  * @see #firstNotClassElement(String...)
+ * @see #firstNotClassFrame(Set)
  */
 public class ClassUtil
 {
+    /**
+     * The maximum amount of frames inspected by {@link #firstNotClassFrame(Set)}
+     */
+    private static final int MAX_WALK_DEPTH = 64;
+
+    /**
+     * Walker used by {@link #firstNotClassFrame(Set)}, only retaining class names
+     */
+    private static final StackWalker stackWalker = StackWalker.getInstance();
+
     /**
      * Uses {@link Thread#getStackTrace()} to get the stackTraceElement at a given index
      *
@@ -118,4 +130,22 @@ public class ClassUtil
             .filter((element) -> !classes.contains(element.getClassName()))
             .findAny().orElseGet(() -> getStackTraceElement(1));
     }
+
+    /**
+     * Gets the first frame of the calling thread not to have one of a given set of classNames. Unlike {@link
+     * #firstNotClassElement(String...)} the stack is walked lazily and stops at the first matching frame, instead of
+     * building the whole stackTrace
+     *
+     * @param classNames The names of the classes to be skipped
+     *
+     * @return The first frame not to be skipped, {@code null} if none was found within the walked depth
+     */
+    public static StackWalker.StackFrame firstNotClassFrame(Set<String> classNames)
+    {
+        return stackWalker.walk((frames) -> frames
+            .limit(MAX_WALK_DEPTH)
+            .filter((frame) -> !classNames.contains(frame.getClassName()))
+            .findFirst()
+            .orElse(null));
+    }
 }
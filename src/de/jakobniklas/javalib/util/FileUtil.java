@@ -11,6 +11,12 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -24,6 +30,10 @@ import java.util.concurrent.atomic.AtomicInteger;
  * @author Jakob-Niklas See
  * @see #getTextContent(File) 
  * @see #getTextContent(String) 
+ * @see #getTextContent(File, Charset)
+ * @see #getTextContent(String, Charset)
+ * @see #getByteContent(File)
+ * @see #getByteBufferContent(File)
  * @see #fileInputIterator(File, FileInputIterator) 
  * @see #fileInputIterator(String, FileInputIterator) 
  * @see #fileOutputIterator(File, List, Boolean) 
@@ -40,6 +50,11 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class FileUtil
 {
+    /**
+     * The size from which on files are mapped into memory instead of read into an array
+     */
+    private static final long MAPPING_THRESHOLD = 4L * 1024 * 1024;
+
     /**
      * Returns the full content of a text file, separated by {@link System#lineSeparator()}
      *
@@ -72,6 +87,181 @@ public class FileUtil
         return getTextContent(new File(filepath));
     }
 
+    /**
+     * Returns the full content of a text file as it is, including its line separators. Small files are read with a
+     * single bulk read, files from {@link #MAPPING_THRESHOLD} on are mapped into memory and decoded from there, so they
+     * are not copied into an array first. Malformed input is replaced
+     *
+     * @param file    The file to read from
+     * @param charset The charset of the file
+     *
+     * @return The full content of the given text file, {@code null} if it could not be read
+     *
+     * @see #getTextContent(String, Charset)
+     */
+    public static String getTextContent(File file, Charset charset)
+    {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            if(channel.size() < MAPPING_THRESHOLD)
+            {
+                return new String(read(channel), charset);
+            }
+
+            return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(map(channel))
+                .toString();
+        }
+        catch(IOException e)
+        {
+            Exceptions.handle(e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the full content of a text file as it is, including its line separators
+     *
+     * @param filepath The path and name of the file to read from
+     * @param charset  The charset of the file
+     *
+     * @return The full content of the given text file, {@code null} if it could not be read
+     *
+     * @see #getTextContent(File, Charset)
+     */
+    public static String getTextContent(String filepath, Charset charset)
+    {
+        return getTextContent(new File(filepath), charset);
+    }
+
+    /**
+     * Returns the full content of a file as bytes, read with a single bulk read
+     *
+     * @param file The file to read from
+     *
+     * @return The content of the given file, {@code null} if it could not be read
+     *
+     * @see #getByteContent(String)
+     */
+    public static byte[] getByteContent(File file)
+    {
+        try
+        {
+            return Files.readAllBytes(file.toPath());
+        }
+        catch(IOException e)
+        {
+            Exceptions.handle(e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the full content of a file as bytes, read with a single bulk read
+     *
+     * @param filepath The path and name of the file to read from
+     *
+     * @return The content of the given file, {@code null} if it could not be read
+     *
+     * @see #getByteContent(File)
+     */
+    public static byte[] getByteContent(String filepath)
+    {
+        return getByteContent(new File(filepath));
+    }
+
+    /**
+     * Returns the full content of a file as a read-only buffer. Files from {@link #MAPPING_THRESHOLD} on are mapped
+     * into memory instead of read, which stays valid after the file is closed
+     *
+     * @param file The file to read from
+     *
+     * @return The content of the given file, {@code null} if it could not be read
+     *
+     * @see #getByteBufferContent(String)
+     */
+    public static ByteBuffer getByteBufferContent(File file)
+    {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            if(channel.size() < MAPPING_THRESHOLD)
+            {
+                return ByteBuffer.wrap(read(channel)).asReadOnlyBuffer();
+            }
+
+            return map(channel);
+        }
+        catch(IOException e)
+        {
+            Exceptions.handle(e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the full content of a file as a read-only buffer
+     *
+     * @param filepath The path and name of the file to read from
+     *
+     * @return The content of the given file, {@code null} if it could not be read
+     *
+     * @see #getByteBufferContent(File)
+     */
+    public static ByteBuffer getByteBufferContent(String filepath)
+    {
+        return getByteBufferContent(new File(filepath));
+    }
+
+    /**
+     * Reads a whole file with a single bulk read into an array of its size
+     *
+     * @param channel The channel of the file
+     *
+     * @return The content, shorter if the file was truncated while reading
+     *
+     * @throws IOException If the file could not be read
+     */
+    private static byte[] read(FileChannel channel) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+
+        while(buffer.hasRemaining())
+        {
+            if(channel.read(buffer) < 0)
+            {
+                break;
+            }
+        }
+
+        return buffer.hasRemaining() ? Arrays.copyOf(buffer.array(), buffer.position()) : buffer.array();
+    }
+
+    /**
+     * Maps a whole file into memory
+     *
+     * @param channel The channel of the file
+     *
+     * @return The read-only mapping
+     *
+     * @throws IOException If the file is too large for a single mapping or could not be mapped
+     */
+    private static ByteBuffer map(FileChannel channel) throws IOException
+    {
+        long size = channel.size();
+
+        if(size > Integer.MAX_VALUE)
+        {
+            throw new IOException("File is too large to be read at once: " + size + " bytes");
+        }
+
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
     /**
      * Iterates over a given file and executes {@link FileInputIterator#action(String, Integer)}
      *
@@ -1,18 +1,23 @@
 package de.jakobniklas.javalib.util;
 
 import de.jakobniklas.javalib.exception.Exceptions;
+import de.jakobniklas.javalib.util.subclasses.format.NumberScanner;
 import de.jakobniklas.javalib.util.subclasses.log.LogPattern;
+import de.jakobniklas.javalib.util.subclasses.log.LogRecord;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * Class for String formatting and detection
@@ -21,32 +26,127 @@ import java.util.stream.Collectors;
  * @see #isBoolean(String)
  * @see #isText(String)
  * @see #isNumeric(String)
+ * @see #isNumeric(CharSequence, int, int)
+ * @see #parseLongOrDefault(String, long)
+ * @see #parseLongOrDefault(CharSequence, int, int, long)
+ * @see #parseDoubleOrDefault(String, double)
+ * @see #parseDoubleOrDefault(CharSequence, int, int, double)
  * @see #streamToString(InputStream)
+ * @see #streamToString(InputStream, Charset)
+ * @see #streamToString(InputStream, Charset, int)
+ * @see #streamToBytes(InputStream, int)
+ * @see #streamToByteBuffer(InputStream, int)
  * @see #padRight(String, Integer)
  * @see #padLeft(String, Integer)
+ * @see #padRight(StringBuilder, CharSequence, int)
+ * @see #padLeft(StringBuilder, CharSequence, int)
+ * @see #fill(StringBuilder, char, int)
  * @see #formatLog(List, Map)
+ * @see #formatLog(List, Map, StringBuilder)
+ * @see #formatLog(List, LogRecord, StringBuilder)
  */
 public class FormatUtil
 {
     /**
-     * Returns boolean if a String can be parsed to a number, exception not handled
+     * Builder reused by {@link #formatLog(List, Map)} on every thread
+     */
+    private static final ThreadLocal<StringBuilder> logBuilder = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    /**
+     * The size of the blocks streams are read in
+     */
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    /**
+     * Decoder reused by {@link #streamToString(InputStream, Charset, int)} on every thread, replaced if another charset
+     * is requested
+     */
+    private static final ThreadLocal<CharsetDecoder> decoder = new ThreadLocal<>();
+
+    /**
+     * Returns boolean if a String can be parsed to a number. The input is scanned instead of parsed, so no exception is
+     * thrown for text
      *
      * @param string given input
      *
      * @return boolean if the input can be parsed to a number (double)
+     *
+     * @see NumberScanner#isDouble(CharSequence, int, int)
      */
     public static boolean isNumeric(String string)
     {
-        try
-        {
-            Double.parseDouble(string);
+        return string != null && NumberScanner.isDouble(string, 0, string.length());
+    }
 
-            return true;
-        }
-        catch(NumberFormatException e)
-        {
-            return false;
-        }
+    /**
+     * Returns boolean if a range of a text can be parsed to a number, without creating a substring
+     *
+     * @param text  given input
+     * @param start The index of the first character
+     * @param end   The index after the last character
+     *
+     * @return boolean if the range can be parsed to a number (double)
+     */
+    public static boolean isNumeric(CharSequence text, int start, int end)
+    {
+        return NumberScanner.isDouble(text, start, end);
+    }
+
+    /**
+     * Parses a String to a long without throwing an exception
+     *
+     * @param string       given input, may be {@code null}
+     * @param defaultValue The value returned if the input is not a long
+     *
+     * @return The parsed number, or the default value
+     */
+    public static long parseLongOrDefault(String string, long defaultValue)
+    {
+        return string == null ? defaultValue : NumberScanner.parseLong(string, 0, string.length(), defaultValue);
+    }
+
+    /**
+     * Parses a range of a text to a long without throwing an exception or creating a substring
+     *
+     * @param text         given input, may be {@code null}
+     * @param start        The index of the first character
+     * @param end          The index after the last character
+     * @param defaultValue The value returned if the range is not a long
+     *
+     * @return The parsed number, or the default value
+     */
+    public static long parseLongOrDefault(CharSequence text, int start, int end, long defaultValue)
+    {
+        return NumberScanner.parseLong(text, start, end, defaultValue);
+    }
+
+    /**
+     * Parses a String to a double without throwing an exception
+     *
+     * @param string       given input, may be {@code null}
+     * @param defaultValue The value returned if the input is not a double
+     *
+     * @return The parsed number, or the default value
+     */
+    public static double parseDoubleOrDefault(String string, double defaultValue)
+    {
+        return string == null ? defaultValue : NumberScanner.parseDouble(string, 0, string.length(), defaultValue);
+    }
+
+    /**
+     * Parses a range of a text to a double without throwing an exception. Common numbers are parsed without creating a
+     * substring
+     *
+     * @param text         given input, may be {@code null}
+     * @param start        The index of the first character
+     * @param end          The index after the last character
+     * @param defaultValue The value returned if the range is not a double
+     *
+     * @return The parsed number, or the default value
+     */
+    public static double parseDoubleOrDefault(CharSequence text, int start, int end, double defaultValue)
+    {
+        return NumberScanner.parseDouble(text, start, end, defaultValue);
     }
 
     /**
@@ -81,7 +181,8 @@ public class FormatUtil
     }
 
     /**
-     * Returns a string for a stream
+     * Returns a string for a stream, reading it line by line and dropping the line separators. Use {@link
+     * #streamToString(InputStream, Charset)} to keep the content as it is
      *
      * @param inputStream the given inputstream
      *
@@ -108,6 +209,186 @@ public class FormatUtil
         return null;
     }
 
+    /**
+     * Returns a string for a stream, keeping its content including line separators. The stream is closed afterwards
+     *
+     * @param inputStream the given inputstream
+     * @param charset     The charset of the stream
+     *
+     * @return one string, {@code null} if the stream could not be read
+     *
+     * @see #streamToString(InputStream, Charset, int)
+     */
+    public static String streamToString(InputStream inputStream, Charset charset)
+    {
+        return streamToString(inputStream, charset, -1);
+    }
+
+    /**
+     * Returns a string for a stream, keeping its content including line separators. The stream is read in blocks of
+     * bytes which are decoded directly with a reused decoder, malformed input is replaced like by an {@link
+     * InputStreamReader}. The stream is closed afterwards
+     *
+     * @param inputStream the given inputstream
+     * @param charset     The charset of the stream
+     * @param sizeHint    The expected amount of bytes, e.g. a content length, or -1 if unknown. Only sizes the
+     *                    decoded output, the blocks keep their size so that split characters always fit
+     *
+     * @return one string, {@code null} if the stream could not be read
+     */
+    public static String streamToString(InputStream inputStream, Charset charset, int sizeHint)
+    {
+        CharsetDecoder charsetDecoder = decoder.get();
+
+        if(charsetDecoder == null || !charsetDecoder.charset().equals(charset))
+        {
+            charsetDecoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            decoder.set(charsetDecoder);
+        }
+
+        charsetDecoder.reset();
+
+        try(inputStream)
+        {
+            ByteBuffer bytes = ByteBuffer.allocate(BLOCK_SIZE);
+            CharBuffer chars = CharBuffer.allocate(sizeHint > 0 ? (int) Math.min(sizeHint * (double) charsetDecoder.averageCharsPerByte() + 16, Integer.MAX_VALUE - 8) : BLOCK_SIZE);
+            boolean end = false;
+
+            while(!end)
+            {
+                if(!bytes.hasRemaining())
+                {
+                    bytes = ByteBuffer.wrap(Arrays.copyOf(bytes.array(), bytes.capacity() * 2)).position(bytes.position());
+                }
+
+                int read = inputStream.read(bytes.array(), bytes.position(), bytes.remaining());
+
+                if(read < 0)
+                {
+                    end = true;
+                }
+                else
+                {
+                    bytes.position(bytes.position() + read);
+                }
+
+                bytes.flip();
+                chars = decode(charsetDecoder, bytes, chars, end);
+                bytes.compact();
+            }
+
+            while(charsetDecoder.flush(chars).isOverflow())
+            {
+                chars = grow(chars);
+            }
+
+            return new String(chars.array(), 0, chars.position());
+        }
+        catch(IOException e)
+        {
+            Exceptions.handle(e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Decodes the available bytes, growing the output as needed
+     *
+     * @param charsetDecoder The decoder
+     * @param bytes          The bytes to decode, undecoded bytes of an incomplete character remain
+     * @param chars          The output
+     * @param end            If the bytes are the last ones of the input
+     *
+     * @return The output, a larger copy if it overflowed
+     */
+    private static CharBuffer decode(CharsetDecoder charsetDecoder, ByteBuffer bytes, CharBuffer chars, boolean end)
+    {
+        while(charsetDecoder.decode(bytes, chars, end).isOverflow())
+        {
+            chars = grow(chars);
+        }
+
+        return chars;
+    }
+
+    /**
+     * @param chars A buffer
+     *
+     * @return A copy of the buffer with twice the capacity and the same position
+     */
+    private static CharBuffer grow(CharBuffer chars)
+    {
+        CharBuffer grown = CharBuffer.wrap(Arrays.copyOf(chars.array(), Math.max(chars.capacity() * 2, BLOCK_SIZE)));
+        grown.position(chars.position());
+
+        return grown;
+    }
+
+    /**
+     * Returns the content of a stream as bytes. The stream is closed afterwards
+     *
+     * @param inputStream the given inputstream
+     * @param sizeHint    The expected amount of bytes, e.g. a content length, or -1 if unknown
+     *
+     * @return The content, {@code null} if the stream could not be read
+     */
+    public static byte[] streamToBytes(InputStream inputStream, int sizeHint)
+    {
+        ByteBuffer buffer = streamToByteBuffer(inputStream, sizeHint);
+
+        if(buffer == null)
+        {
+            return null;
+        }
+
+        return buffer.limit() == buffer.capacity() ? buffer.array() : Arrays.copyOf(buffer.array(), buffer.limit());
+    }
+
+    /**
+     * Returns the content of a stream as a heap buffer, without copying it into an array of the exact length. The
+     * stream is closed afterwards
+     *
+     * @param inputStream the given inputstream
+     * @param sizeHint    The expected amount of bytes, e.g. a content length, or -1 if unknown
+     *
+     * @return The content from position 0 to the limit, {@code null} if the stream could not be read
+     */
+    public static ByteBuffer streamToByteBuffer(InputStream inputStream, int sizeHint)
+    {
+        try(inputStream)
+        {
+            byte[] bytes = new byte[sizeHint >= 0 ? Math.min(sizeHint, Integer.MAX_VALUE - 9) + 1 : BLOCK_SIZE];
+            int length = 0;
+            int read;
+
+            while((read = inputStream.read(bytes, length, bytes.length - length)) >= 0)
+            {
+                length += read;
+
+                if(length == bytes.length)
+                {
+                    if(bytes.length == Integer.MAX_VALUE - 8)
+                    {
+                        throw new IOException("Stream is too large for an array");
+                    }
+
+                    bytes = Arrays.copyOf(bytes, (int) Math.min(Math.max(bytes.length * 2L, BLOCK_SIZE), Integer.MAX_VALUE - 8));
+                }
+            }
+
+            return ByteBuffer.wrap(bytes, 0, length);
+        }
+        catch(IOException e)
+        {
+            Exceptions.handle(e);
+        }
+
+        return null;
+    }
+
     /**
      * Expands string with space for a given amount of chars to the right
      *
@@ -115,10 +396,15 @@ public class FormatUtil
      * @param length The amount of spaces
      *
      * @return The base string with the spaces appended
+     *
+     * @see #padRight(StringBuilder, CharSequence, int)
      */
     public static String padRight(String input, Integer length)
     {
-        return String.format("%-" + length + "." + length + "s", input);
+        StringBuilder output = new StringBuilder(length);
+        padRight(output, String.valueOf(input), length);
+
+        return output.toString();
     }
 
     /**
@@ -128,10 +414,62 @@ public class FormatUtil
      * @param length The amount of spaces
      *
      * @return The base string with the spaces appended
+     *
+     * @see #padLeft(StringBuilder, CharSequence, int)
      */
     public static String padLeft(String input, Integer length)
     {
-        return String.format("%" + length + "." + length + "s", input);
+        StringBuilder output = new StringBuilder(length);
+        padLeft(output, String.valueOf(input), length);
+
+        return output.toString();
+    }
+
+    /**
+     * Appends a text cut or expanded with spaces to the right to exactly the given amount of chars, like {@link
+     * #padRight(String, Integer)} without creating a String
+     *
+     * @param output The builder to append to
+     * @param input  The base text
+     * @param length The amount of chars
+     */
+    public static void padRight(StringBuilder output, CharSequence input, int length)
+    {
+        int cut = Math.min(input.length(), length);
+
+        output.append(input, 0, cut);
+        fill(output, ' ', length - cut);
+    }
+
+    /**
+     * Appends a text cut or expanded with spaces to the left to exactly the given amount of chars, like {@link
+     * #padLeft(String, Integer)} without creating a String
+     *
+     * @param output The builder to append to
+     * @param input  The base text
+     * @param length The amount of chars
+     */
+    public static void padLeft(StringBuilder output, CharSequence input, int length)
+    {
+        int cut = Math.min(input.length(), length);
+
+        fill(output, ' ', length - cut);
+        output.append(input, 0, cut);
+    }
+
+    /**
+     * Appends a char repeatedly
+     *
+     * @param output The builder to append to
+     * @param fill   The char
+     * @param count  The amount of times, nothing is appended if it is not positive
+     */
+    public static void fill(StringBuilder output, char fill, int count)
+    {
+        for(int i = 0; i < count; i++)
+        {
+            output.append(fill);
+        }
     }
 
     /**
@@ -139,7 +477,8 @@ public class FormatUtil
      * sections (The key representing the value in the pattern which should be replaced and the value the string which
      * should be inserted). The each element in the logPattern represents a section in the output. The logPattern should
      * therefor be stored globally, to allow formatted output according to the longest version of a section so far.
-     * Technically does it not matter what keys are used, as a regex match finds the keys dynamically.
+     * Technically does it not matter what keys are used, as the compiled {@link LogPattern} references the keys
+     * dynamically.
      * <p>
      * In the pattern, replaceable keys are defined as follows: {@code "text #key text"}
      *
@@ -147,33 +486,53 @@ public class FormatUtil
      * @param sections    The sections defining values of keys defined in the pattern
      *
      * @return A formatted String
+     *
+     * @see #formatLog(List, Map, StringBuilder)
+     * @see #formatLog(List, LogRecord, StringBuilder)
      */
     public static String formatLog(List<LogPattern> logPatterns, Map<String, String> sections)
     {
-        //Print the mapped output of each pattern.
-        return logPatterns.stream().map((logPattern) ->
-        {
-            //The pattern with the section replaced
-            AtomicReference<String> pattern = new AtomicReference<>(logPattern.getPattern() == null ? "null" : logPattern.getPattern());
+        StringBuilder output = logBuilder.get();
+        output.setLength(0);
 
-            //Find a reference to the section in the pattern and replace the value
-            RegexUtil.allMatches("#([a-zA-Z])+", logPattern.getPattern()).forEach((foundMatch) ->
-                pattern.set(pattern.get().replace(foundMatch.group(),
-                    sections.get(foundMatch.group().substring(1)) == null ? "null" : sections.get(foundMatch.group().substring(1)))));
+        formatLog(logPatterns, sections, output);
 
-            /*
-            Increase the length to get a formatted output
+        return output.toString();
+    }
 
-            [null; null; null] Test 10 null Hello World! (null null null / null | null)
-            [null; null; null] Test    null Hello World! (null null null / null | null)
-            */
-            if(logPattern.getLength() < pattern.get().length())
-            {
-                logPattern.setLength(pattern.get().length());
-            }
+    /**
+     * Formats a given list of sections to a given set of patterns like {@link #formatLog(List, Map)}, appending the
+     * output to a given builder instead of creating a new String
+     *
+     * @param logPatterns The pattern defining the outputs arrangement as well as incrementation
+     * @param sections    The sections defining values of keys defined in the pattern
+     * @param output      The builder to append to
+     *
+     * @see LogPattern#render(Map, StringBuilder)
+     */
+    public static void formatLog(List<LogPattern> logPatterns, Map<String, String> sections, StringBuilder output)
+    {
+        for(int i = 0; i < logPatterns.size(); i++)
+        {
+            logPatterns.get(i).render(sections, output);
+        }
+    }
 
-            //Return the string with added spaces
-            return padRight(pattern.get(), logPattern.getLength());
-        }).collect(Collectors.joining());
+    /**
+     * Formats a given record to a given set of patterns like {@link #formatLog(List, Map, StringBuilder)}, reading the
+     * sections from the fields of the record instead of a map
+     *
+     * @param logPatterns The pattern defining the outputs arrangement as well as incrementation
+     * @param record      The record defining values of keys defined in the pattern
+     * @param output      The builder to append to
+     *
+     * @see LogPattern#render(LogRecord, StringBuilder)
+     */
+    public static void formatLog(List<LogPattern> logPatterns, LogRecord record, StringBuilder output)
+    {
+        for(int i = 0; i < logPatterns.size(); i++)
+        {
+            logPatterns.get(i).render(record, output);
+        }
     }
 }
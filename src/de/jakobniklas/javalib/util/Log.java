@@ -1,18 +1,35 @@
 package de.jakobniklas.javalib.util;
 
-import de.jakobniklas.javalib.collection.CollectionUtil;
+import de.jakobniklas.javalib.util.subclasses.log.AsyncLogDispatcher;
+import de.jakobniklas.javalib.util.subclasses.log.BackpressurePolicy;
+import de.jakobniklas.javalib.util.subclasses.log.FanoutLevel;
+import de.jakobniklas.javalib.util.subclasses.log.LatencyHistogram;
 import de.jakobniklas.javalib.util.subclasses.log.LevelImplementation;
+import de.jakobniklas.javalib.util.subclasses.log.LogConfiguration;
 import de.jakobniklas.javalib.util.subclasses.log.LogLevel;
+import de.jakobniklas.javalib.util.subclasses.log.LogMetrics;
+import de.jakobniklas.javalib.util.subclasses.log.LogMetricsSnapshot;
 import de.jakobniklas.javalib.util.subclasses.log.LogPattern;
+import de.jakobniklas.javalib.util.subclasses.log.LogRecord;
+import de.jakobniklas.javalib.util.subclasses.log.LogRecordHandler;
+import de.jakobniklas.javalib.util.subclasses.log.LogSampler;
 import de.jakobniklas.javalib.util.subclasses.log.LogSection;
 import de.jakobniklas.javalib.util.subclasses.log.Measurement;
+import de.jakobniklas.javalib.util.subclasses.log.MeasurementScope;
+import de.jakobniklas.javalib.util.subclasses.log.MessageFormatter;
+import de.jakobniklas.javalib.util.subclasses.log.MessageStyle;
+import de.jakobniklas.javalib.util.subclasses.log.SamplingScope;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Logging class, used to write to {@link System#out}
@@ -21,6 +38,14 @@ import java.util.Objects;
  * @see #measureTime(String, String, String)
  * @see #measureTime(String, String)
  * @see #done(String)
+ * @see #measure(String)
+ * @see #getHistogram(String)
+ * @see #startLatencyReports(long, LogLevel)
+ * @see #stopLatencyReports()
+ * @see #getMetrics()
+ * @see #getMetricsSnapshot()
+ * @see #startMetricsReports(long, LevelImplementation)
+ * @see #stopMetricsReports()
  * @see #defaultSections()
  * @see #print(String, Object) print(prefix[string], message[object])
  * @see #print(LogLevel, String, Object) print(level[logLevel], prefix[string], message[object])
@@ -38,6 +63,18 @@ import java.util.Objects;
  * @see #print(LogLevel, LogSection...) print(level[logLevel], sections[logSection])
  * @see #print(Map) print(sections[string, string])
  * @see #print(LogLevel, Map) print(level[logLevel], sections[string, string])
+ * @see #print(Supplier) print(message[supplier])
+ * @see #print(LogLevel, Supplier) print(level[logLevel], message[supplier])
+ * @see #print(String, Supplier) print(prefix[string], message[supplier])
+ * @see #print(LogLevel, String, Supplier) print(level[logLevel], prefix[string], message[supplier])
+ * @see #isEnabled(LogLevel)
+ * @see #isEnabled(LogLevel, String)
+ * @see #setThreshold(LogLevel)
+ * @see #setThreshold(String, LogLevel)
+ * @see #getSampler()
+ * @see #setSampler(LogSampler)
+ * @see #getMessageStyle()
+ * @see #setMessageStyle(MessageStyle)
  * @see #getLogPointer()
  * @see #setLogPointer(Character)
  * @see #getLogPatterns()
@@ -47,65 +84,277 @@ import java.util.Objects;
  * @see #getLevels()
  * @see #setLevels(Map)
  * @see #registerLevel(LogLevel, LevelImplementation)
+ * @see #registerSinks(LogLevel, LevelImplementation...)
+ * @see #enableAsync(int, BackpressurePolicy)
+ * @see #disableAsync()
+ * @see #isAsync()
+ * @see #flush()
+ * @see #format(LogRecord)
+ * @see #format(LogRecord, StringBuilder)
+ * @see #getConfiguration()
  */
 public class Log
 {
     /**
-     * Character which can be positioned with the tag '#logpointer' in the {@link #logPatterns}
+     * The prefix of statements which do not specify one
+     */
+    private static final String DEFAULT_PREFIX = "Log";
+
+    /**
+     * The classes skipped when looking for the caller of a print statement
      *
-     * @see #getLogPointer()
-     * @see #setLogPointer(Character)
+     * @see #defaultSections()
      */
-    private static Character logPointer = '>';
+    private static final Set<String> loggingClasses = Set.of(Log.class.getName(), ClassUtil.class.getName());
 
     /**
-     * A list of patterns, portioning sections set in various print statements
+     * The current configuration, holding the patterns portioning sections set in various print statements, the
+     * logLevels with their output implementation and the character positioned with the tag '#logPointer'. It is
+     * replaced as a whole by the setters, so concurrent print statements never see a partially applied change
+     *
+     * @see #getConfiguration()
+     * @see #setLogPatterns(List)
+     * @see #registerLevel(LogLevel, LevelImplementation)
      */
-    private static List<LogPattern> logPatterns = new ArrayList<>();
+    private static volatile LogConfiguration configuration;
 
     /**
-     * A list of measurement id's and measurements, used to measure time between two points
+     * A map of measurement id's and measurements, used to measure time between two points
      *
      * @see #measureTime(String, String)
      * @see #measureTime(String, String, String)
      * @see #done(String)
      */
-    private static Map<String, Measurement> measurements = new HashMap<>();
+    private static Map<String, Measurement> measurements = new ConcurrentHashMap<>();
+
+    /**
+     * The latency histograms by the id of their measurement
+     *
+     * @see #measure(String)
+     * @see #done(String)
+     */
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * The thread writing periodic reports, created by the first call of {@link #startLatencyReports(long, LogLevel)} or
+     * {@link #startMetricsReports(long, LevelImplementation)}
+     */
+    private static ScheduledExecutorService reporter;
+
+    /**
+     * The currently scheduled summary of the {@link #histograms}, {@code null} if none is scheduled
+     */
+    private static ScheduledFuture<?> latencyReport;
+
+    /**
+     * The counters of what logging itself costs
+     *
+     * @see #getMetrics()
+     * @see #getMetricsSnapshot()
+     */
+    private static final LogMetrics metrics = new LogMetrics();
+
+    /**
+     * The currently scheduled report of the {@link #metrics}, {@code null} if none is scheduled
+     */
+    private static ScheduledFuture<?> metricsReport;
 
     /**
-     * A list of logLevels and their output implementation
+     * The minimum {@link LogLevel#getSeverity()} of statements whose prefix has no threshold of its own
+     *
+     * @see #setThreshold(LogLevel)
+     */
+    private static volatile int threshold = Integer.MIN_VALUE;
+
+    /**
+     * The minimum level of statements by their prefix
+     *
+     * @see #setThreshold(String, LogLevel)
      */
-    private static Map<String, LevelImplementation> levels = new HashMap<>();
+    private static final Map<String, LogLevel> prefixThresholds = new ConcurrentHashMap<>();
+
+    /**
+     * The dispatcher formatting and writing log statements in the background, {@code null} if logging is synchronous
+     *
+     * @see #enableAsync(int, BackpressurePolicy)
+     * @see #disableAsync()
+     */
+    private static volatile AsyncLogDispatcher asyncDispatcher;
+
+    /**
+     * The record reused by every statement of a thread
+     *
+     * @see #acquireRecord()
+     */
+    private static final ThreadLocal<LogRecord> threadRecord = ThreadLocal.withInitial(LogRecord::new);
+
+    /**
+     * The builder reused by {@link #format(LogRecord)} on every thread
+     */
+    private static final ThreadLocal<StringBuilder> formatBuilder = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    /**
+     * How the arguments of print statements are inserted into their message, {@link MessageStyle#FORMAT} by default
+     *
+     * @see #setMessageStyle(MessageStyle)
+     */
+    private static volatile MessageStyle messageStyle = MessageStyle.FORMAT;
+
+    /**
+     * Limits how many statements of a call site or prefix are written, {@code null} writes every statement
+     *
+     * @see #setSampler(LogSampler)
+     */
+    private static volatile LogSampler sampler;
 
     /*
      * Sets the default configuration for the logPatterns and for the logLevels
      */
     static
     {
-        logPatterns.add(new LogPattern("[#date; #time; #milliseconds]"));
-        logPatterns.add(new LogPattern(" #prefix"));
-        logPatterns.add(new LogPattern(" #logPointer"));
-        logPatterns.add(new LogPattern(" #message"));
-        logPatterns.add(new LogPattern(" (#class"));
-        logPatterns.add(new LogPattern(" #method"));
-        logPatterns.add(new LogPattern(" #line"));
-        logPatterns.add(new LogPattern(" / #file"));
-        logPatterns.add(new LogPattern(" | #thread)"));
+        List<LogPattern> logPatterns = List.of(
+            new LogPattern("[#date; #time; #milliseconds]"),
+            new LogPattern(" #prefix"),
+            new LogPattern(" #logPointer"),
+            new LogPattern(" #message"),
+            new LogPattern(" (#class"),
+            new LogPattern(" #method"),
+            new LogPattern(" #line"),
+            new LogPattern(" / #file"),
+            new LogPattern(" | #thread)"));
+
+        Map<String, LevelImplementation> levels = new HashMap<>();
+        levels.put(LogLevel.TRACE.getLevel(), System.out::println);
+        levels.put(LogLevel.DEBUG.getLevel(), System.out::println);
+        levels.put(LogLevel.INFO.getLevel(), System.out::println);
+        levels.put(LogLevel.WARN.getLevel(), System.err::println);
+        levels.put(LogLevel.ERROR.getLevel(), System.err::println);
+
+        configuration = new LogConfiguration(logPatterns, levels, '>');
 
-        levels.put("trace", System.out::println);
-        levels.put("debug", System.out::println);
-        levels.put("info", System.out::println);
-        levels.put("warn", System.err::println);
-        levels.put("error", System.err::println);
+        Runtime.getRuntime().addShutdownHook(new Thread(() ->
+        {
+            disableAsync();
+            drainLevels();
+        }, "Log-ShutdownFlush"));
+    }
+
+    /**
+     * Switches to asynchronous logging. Print statements only capture their sections into a preallocated ring buffer,
+     * while a background thread formats them according to the patterns and writes them to the implementations of their
+     * logLevel in batches. If asynchronous logging is already enabled, the previous dispatcher is flushed and replaced
+     *
+     * @param capacity The amount of statements the ring buffer can hold
+     * @param policy   What happens to a statement if the ring buffer is full
+     *
+     * @see #disableAsync()
+     * @see #flush()
+     */
+    public static synchronized void enableAsync(int capacity, BackpressurePolicy policy)
+    {
+        AsyncLogDispatcher previous = asyncDispatcher;
+        asyncDispatcher = new AsyncLogDispatcher(capacity, policy, new LogRecordHandler()
+        {
+            @Override
+            public void handle(LogRecord record)
+            {
+                configuration.implementationOf(record.getLevel()).log(record);
+                metrics.recordStatement(record.getLevel());
+            }
+
+            @Override
+            public void endOfBatch()
+            {
+                flushLevels();
+            }
+        });
+
+        if(previous != null)
+        {
+            previous.close();
+            metrics.recordDropped(previous.getDropped());
+        }
+    }
+
+    /**
+     * Writes every captured statement and switches back to synchronous logging
+     *
+     * @see #enableAsync(int, BackpressurePolicy)
+     */
+    public static synchronized void disableAsync()
+    {
+        AsyncLogDispatcher previous = asyncDispatcher;
+        asyncDispatcher = null;
+
+        if(previous != null)
+        {
+            previous.close();
+            metrics.recordDropped(previous.getDropped());
+        }
+    }
+
+    /**
+     * @return If print statements are written by a background thread
+     *
+     * @see #enableAsync(int, BackpressurePolicy)
+     */
+    public static boolean isAsync()
+    {
+        return asyncDispatcher != null;
+    }
+
+    /**
+     * Blocks until every statement printed before this call has been written and drains every implementation of a
+     * logLevel
+     *
+     * @see #enableAsync(int, BackpressurePolicy)
+     * @see LevelImplementation#drain()
+     */
+    public static void flush()
+    {
+        AsyncLogDispatcher dispatcher = asyncDispatcher;
+
+        if(dispatcher != null)
+        {
+            dispatcher.flush();
+        }
+
+        drainLevels();
+    }
+
+    /**
+     * Calls {@link LevelImplementation#drain()} on every registered implementation
+     */
+    private static void drainLevels()
+    {
+        for(LevelImplementation implementation : configuration.getLevels().values())
+        {
+            long start = System.nanoTime();
+            implementation.drain();
+            metrics.recordFlush(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Calls {@link LevelImplementation#flush()} on every registered implementation
+     */
+    private static void flushLevels()
+    {
+        for(LevelImplementation implementation : configuration.getLevels().values())
+        {
+            long start = System.nanoTime();
+            implementation.flush();
+            metrics.recordFlush(System.nanoTime() - start);
+        }
     }
 
     /**
      * Method which starts measuring the time from the call to the call of the Log.done() method
      *
-     * @param prefix Prefix which can be used in the logging output, specified by the '#prefix' tag in {@link
-     *               #logPatterns}
-     * @param input  Message which should be used in the logging output, specified by the '#message' tag in {@link
-     *               #logPatterns}
+     * @param prefix Prefix which can be used in the logging output, specified by the '#prefix' tag in the {@link
+     *               #getLogPatterns() patterns}
+     * @param input  Message which should be used in the logging output, specified by the '#message' tag in the {@link
+     *               #getLogPatterns() patterns}
      * @param id     The id of the measure
      *
      * @see #print(String, String)
@@ -116,14 +365,14 @@ public class Log
     {
         print(prefix + " [m]", input);
 
-        measurements.put(id, new Measurement(input, System.currentTimeMillis()));
+        measurements.put(id, new Measurement(input, System.currentTimeMillis(), System.nanoTime()));
     }
 
     /**
      * Method, which starts measuring the time from the call to the call of the Log.done() method
      *
-     * @param input Message, which should be used in the logging output, specified by the '#message' tag in {@link
-     *              #logPatterns}
+     * @param input Message, which should be used in the logging output, specified by the '#message' tag in the {@link
+     *              #getLogPatterns() patterns}
      *
      * @see #print(String)
      * @see #done(String)
@@ -133,11 +382,12 @@ public class Log
     {
         print("Log [" + id + "]", input);
 
-        measurements.put(id, new Measurement(input, System.currentTimeMillis()));
+        measurements.put(id, new Measurement(input, System.currentTimeMillis(), System.nanoTime()));
     }
 
     /**
-     * Method, which stops measuring the time, if Log.measureTime() was called before
+     * Method, which stops measuring the time, if Log.measureTime() was called before. The duration is recorded into the
+     * histogram of the id, whose percentiles are printed along with it
      *
      * @param id The id of the measure to stop and log
      *
@@ -146,8 +396,16 @@ public class Log
      */
     public static void done(String id)
     {
-        if(measurements.containsKey(id))
+        Measurement measurement = measurements.remove(id);
+
+        if(measurement != null)
         {
+            long elapsed = System.nanoTime() - measurement.getNanoTime();
+            LatencyHistogram histogram = getHistogram(id);
+            histogram.record(elapsed);
+
+            LogConfiguration configuration = Log.configuration;
+            List<LogPattern> logPatterns = configuration.getPatterns();
             String timeDifference = "";
 
             for(int i = 0; i < logPatterns.get(0).getLength() + logPatterns.get(1).getLength() + 1; i++)
@@ -155,52 +413,270 @@ public class Log
                 timeDifference = timeDifference.concat(" ");
             }
 
-            timeDifference = timeDifference + logPointer + " Done '" + measurements.get(id).getMessage() + "' in '" + (System.currentTimeMillis() - measurements.get(id).getTimestamp()) + "ms'";
+            timeDifference = timeDifference + configuration.getLogPointer() + " Done '" + measurement.getMessage() + "' in '" + LatencyHistogram.formatNanos(elapsed) + "' (" + histogram.summary() + ")";
 
             System.out.println(timeDifference);
+        }
+    }
 
-            measurements.remove(id);
+    /**
+     * Opens a scope measuring the time until it is closed, which is then recorded into the histogram of the id without
+     * printing anything. Scopes of the same id can be nested or used by many threads at once
+     *
+     * @param id The id of the measure
+     *
+     * @return The running measurement, to be closed with try-with-resources
+     *
+     * @see #getHistogram(String)
+     */
+    public static MeasurementScope measure(String id)
+    {
+        return new MeasurementScope(getHistogram(id));
+    }
+
+    /**
+     * @param id The id of a measure
+     *
+     * @return The histogram of the id, created if it does not exist yet
+     */
+    public static LatencyHistogram getHistogram(String id)
+    {
+        return histograms.computeIfAbsent(id, (key) -> new LatencyHistogram());
+    }
+
+    /**
+     * @return {@link #histograms}
+     */
+    public static Map<String, LatencyHistogram> getHistograms()
+    {
+        return histograms;
+    }
+
+    /**
+     * Prints the summary of every histogram periodically on a background thread, replacing a previously scheduled
+     * summary. Every histogram is printed with the prefix {@code "Latency [<id>]"}
+     *
+     * @param interval The interval between two summaries in milliseconds
+     * @param level    The logLevel the summaries are printed to
+     *
+     * @see LatencyHistogram#summary()
+     * @see #stopLatencyReports()
+     */
+    public static synchronized void startLatencyReports(long interval, LogLevel level)
+    {
+        stopLatencyReports();
+
+        latencyReport = reporter().scheduleAtFixedRate(() ->
+            histograms.forEach((id, histogram) -> print(level, "Latency [" + id + "]", histogram.summary())), interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops printing the summaries of the histograms
+     *
+     * @see #startLatencyReports(long, LogLevel)
+     */
+    public static synchronized void stopLatencyReports()
+    {
+        if(latencyReport != null)
+        {
+            latencyReport.cancel(false);
+            latencyReport = null;
+        }
+    }
+
+    /**
+     * @return {@link #metrics}
+     */
+    public static LogMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * @return The current values of the {@link #metrics}, including the queue of the asynchronous dispatcher
+     *
+     * @see LogMetrics#snapshot(AsyncLogDispatcher)
+     */
+    public static LogMetricsSnapshot getMetricsSnapshot()
+    {
+        return metrics.snapshot(asyncDispatcher);
+    }
+
+    /**
+     * Writes the {@link LogMetricsSnapshot#summary() summary} of the {@link #metrics} periodically on a background
+     * thread, replacing a previously scheduled report. The summary is written to the given implementation directly
+     * instead of being printed, so the report neither counts itself nor depends on the configured logLevels
+     *
+     * @param interval The interval between two reports in milliseconds
+     * @param sink     The implementation the summaries are written to (can be a lambda expression)
+     *
+     * @see #stopMetricsReports()
+     */
+    public static synchronized void startMetricsReports(long interval, LevelImplementation sink)
+    {
+        stopMetricsReports();
+
+        metricsReport = reporter().scheduleAtFixedRate(() ->
+        {
+            sink.log(getMetricsSnapshot().summary());
+            sink.flush();
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops writing the reports of the metrics
+     *
+     * @see #startMetricsReports(long, LevelImplementation)
+     */
+    public static synchronized void stopMetricsReports()
+    {
+        if(metricsReport != null)
+        {
+            metricsReport.cancel(false);
+            metricsReport = null;
         }
     }
 
+    /**
+     * @return The {@link #reporter}, created on the first call
+     */
+    private static synchronized ScheduledExecutorService reporter()
+    {
+        if(reporter == null)
+        {
+            reporter = Executors.newSingleThreadScheduledExecutor((runnable) ->
+            {
+                Thread thread = new Thread(runnable, "Log-Reporter");
+                thread.setDaemon(true);
+
+                return thread;
+            });
+        }
+
+        return reporter;
+    }
+
     /**
      * <p><ul>
-     * <li> date - The current date ({@link TimeUtil#getDate()})
-     * <li> time - The current time ({@link TimeUtil#getTime()})
+     * <li> date - The current date ({@link TimeUtil#getDate(long)})
+     * <li> time - The current time ({@link TimeUtil#getTime(long)})
      * <li> milliseconds - The current unix timestamp ({@link System#currentTimeMillis()})
      * <li> prefix - The prefix of the log statement ({@code default: "Log"})
      * <li> logPointer - A character splitting prefix and message ({@code default: ">"})
      * <li> message - The message of the log statement ({@code default: "null"})
-     * <li> class - The class calling any log method ({@link ClassUtil#firstNotClassElement(String...)})
-     * <li> method - The method calling any log method ({@link ClassUtil#firstNotClassElement(String...)})
-     * <li> line - The line in the method calling any log method ({@link ClassUtil#firstNotClassElement(String...)})
+     * <li> class - The class calling any log method ({@link ClassUtil#firstNotClassFrame(Set)})
+     * <li> method - The method calling any log method ({@link ClassUtil#firstNotClassFrame(Set)})
+     * <li> line - The line in the method calling any log method ({@link ClassUtil#firstNotClassFrame(Set)})
      * <li> file - The file of the class in the method calling any log method ({@link
-     * ClassUtil#firstNotClassElement(String...)})
-     * <li> file - The line of code in the method calling any log method ({@link ClassUtil#firstNotClassElement(String...)})
+     * ClassUtil#firstNotClassFrame(Set)})
+     * <li> thread - The name of the thread calling any log method
      * </ul><p>
+     * The map always contains the caller sections, print statements only capture them if one of the {@link
+     * #getLogPatterns() patterns} references them, as walking the stack is the most expensive part of a statement
      *
      * @return A default set of computed values for log output
+     *
+     * @see LogConfiguration#requiresCaller()
      */
     public static Map<String, String> defaultSections()
     {
-        StackTraceElement callerCallerElement = ClassUtil.firstNotClassElement("java.lang.Thread", "de.jakobniklas.javalib.util.ClassUtil", "de.jakobniklas.javalib.util.Log");
-
-        Map<String, String> sections = new HashMap<>();
-        sections.put("date", TimeUtil.getDate());
-        sections.put("time", TimeUtil.getTime());
-        sections.put("milliseconds", String.valueOf(System.currentTimeMillis()));
-        sections.put("prefix", "Log");
-        sections.put("logPointer", String.valueOf(logPointer));
-        sections.put("message", "null");
-        sections.put("class", callerCallerElement.getClassName());
-        sections.put("method", callerCallerElement.getMethodName());
-        sections.put("line", String.valueOf(callerCallerElement.getLineNumber()));
-        sections.put("file", Objects.requireNonNull(callerCallerElement.getFileName()));
-        sections.put("thread", Thread.currentThread().getName());
+        LogRecord record = new LogRecord();
+        record.capture(LogLevel.INFO, DEFAULT_PREFIX, null, configuration.getLogPointer());
+
+        StackWalker.StackFrame caller = ClassUtil.firstNotClassFrame(loggingClasses);
+
+        if(caller != null)
+        {
+            record.setCaller(caller.getClassName(), caller.getMethodName(), caller.getLineNumber(), String.valueOf(caller.getFileName()));
+        }
+
+        Map<String, String> sections = record.toSections();
+        sections.remove("threadId");
 
         return sections;
     }
 
+    /**
+     * Fills a record with the default sections ({@link #defaultSections()}) of a statement, unless a sampler suppresses
+     * it. The caller is looked up at most once, for the sampler and the caller sections
+     *
+     * @param record  The record to be filled
+     * @param level   The log level of the statement
+     * @param prefix  The prefix of the statement
+     * @param message The message of the statement
+     * @param sampler The sampler deciding if the statement is written, {@code null} writes it
+     *
+     * @return If the statement is written, {@code false} if the sampler suppressed it
+     */
+    private static boolean capture(LogRecord record, LogLevel level, String prefix, String message, LogSampler sampler)
+    {
+        LogConfiguration configuration = Log.configuration;
+        boolean requiresCaller = configuration.requiresCaller();
+        StackWalker.StackFrame caller = null;
+        long suppressed = 0;
+
+        if(sampler != null)
+        {
+            if(sampler.getScope() == SamplingScope.CALL_SITE || requiresCaller)
+            {
+                caller = ClassUtil.firstNotClassFrame(loggingClasses);
+            }
+
+            suppressed = caller == null ? sampler.admit(prefix, null, -1) : sampler.admit(prefix, caller.getClassName(), caller.getLineNumber());
+
+            metrics.recordSampling(suppressed >= 0);
+
+            if(suppressed < 0)
+            {
+                return false;
+            }
+        }
+        else if(requiresCaller)
+        {
+            caller = ClassUtil.firstNotClassFrame(loggingClasses);
+        }
+
+        record.capture(level, prefix, message, configuration.getLogPointer());
+        record.setSuppressed(suppressed);
+
+        if(requiresCaller && caller != null)
+        {
+            record.setCaller(caller.getClassName(), caller.getMethodName(), caller.getLineNumber(), String.valueOf(caller.getFileName()));
+        }
+
+        return true;
+    }
+
+    /**
+     * Takes the record of the calling thread, or a new one if it is already used further up the stack
+     *
+     * @return A cleared record, to be returned with {@link #releaseRecord(LogRecord)}
+     */
+    private static LogRecord acquireRecord()
+    {
+        LogRecord record = threadRecord.get();
+
+        if(record.isInUse())
+        {
+            record = new LogRecord();
+        }
+
+        record.setInUse(true);
+
+        return record;
+    }
+
+    /**
+     * Clears a record taken by {@link #acquireRecord()}, so it can be reused by the next statement of the thread
+     *
+     * @param record The record to be released
+     */
+    private static void releaseRecord(LogRecord record)
+    {
+        record.clear();
+        record.setInUse(false);
+    }
+
     /**
      * Prints a given prefix and message to logLevel {@code info}
      *
@@ -211,7 +687,7 @@ public class Log
      */
     public static void print(String prefix, Object message)
     {
-        print(prefix, String.valueOf(message));
+        print(LogLevel.INFO, prefix, message);
     }
 
     /**
@@ -225,6 +701,8 @@ public class Log
      */
     public static void print(LogLevel level, String prefix, Object message)
     {
+        if(!isEnabled(level, prefix)) { return; }
+
         print(level, prefix, String.valueOf(message));
     }
 
@@ -237,7 +715,7 @@ public class Log
      */
     public static void print(Object message)
     {
-        print(String.valueOf(message));
+        print(LogLevel.INFO, message);
     }
 
     /**
@@ -250,13 +728,15 @@ public class Log
      */
     public static void print(LogLevel level, Object message)
     {
+        if(!isEnabled(level, DEFAULT_PREFIX)) { return; }
+
         print(level, String.valueOf(message));
     }
 
     /**
      * Prints a given prefix and a given message to logLevel {@code info}
      * <p>
-     * The message will be using args and formatted by {@link String#format(String, Object...)}
+     * The message will be using args and formatted according to the {@link #messageStyle}
      *
      * @param prefix  The prefix to be logged
      * @param message The message to be logged
@@ -264,13 +744,14 @@ public class Log
      */
     public static void print(String prefix, String message, Object... args)
     {
-        print(prefix, String.format(message, args));
+        print(LogLevel.INFO, prefix, message, args);
     }
 
     /**
      * Prints a given prefix and a given message to a given logLevel
      * <p>
-     * The message will be using args and formatted by {@link String#format(String, Object...)}
+     * The message will be using args and formatted according to the {@link #messageStyle}, but only when the record is
+     * written. For asynchronous logging this happens on the background thread if every argument is immutable
      *
      * @param level   The log level of the output
      * @param prefix  The prefix to be logged
@@ -279,26 +760,29 @@ public class Log
      */
     public static void print(LogLevel level, String prefix, String message, Object... args)
     {
-        print(level, prefix, String.format(message, args));
+        if(!isEnabled(level, prefix)) { return; }
+
+        printFormatted(level, prefix, message, args);
     }
 
     /**
      * Prints a given message to logLevel {@code info}
      * <p>
-     * The message will be using args and formatted by {@link String#format(String, Object...)}
+     * The message will be using args and formatted according to the {@link #messageStyle}
      *
      * @param message The message to be logged
      * @param args    Formatting arguments for the message
      */
     public static void print(String message, Object... args)
     {
-        print(String.format(message, args));
+        print(LogLevel.INFO, message, args);
     }
 
     /**
      * Prints a given message to a given logLevel
      * <p>
-     * The message will be using args and formatted by {@link String#format(String, Object...)}
+     * The message will be using args and formatted according to the {@link #messageStyle}, but only when the record is
+     * written. For asynchronous logging this happens on the background thread if every argument is immutable
      *
      * @param level   The log level of the output
      * @param message The message to be logged
@@ -306,7 +790,35 @@ public class Log
      */
     public static void print(LogLevel level, String message, Object... args)
     {
-        print(level, String.format(message, args));
+        if(!isEnabled(level, DEFAULT_PREFIX)) { return; }
+
+        printFormatted(level, DEFAULT_PREFIX, message, args);
+    }
+
+    /**
+     * Captures a statement whose arguments are inserted into the message when it is written
+     *
+     * @param level   The log level of the output
+     * @param prefix  The prefix to be logged
+     * @param message The message containing the positions of the arguments
+     * @param args    Arguments for the message
+     */
+    private static void printFormatted(LogLevel level, String prefix, String message, Object[] args)
+    {
+        LogRecord record = acquireRecord();
+
+        try
+        {
+            if(capture(record, level, prefix, null, sampler))
+            {
+                record.setMessage(messageStyle, message, args);
+                dispatch(record);
+            }
+        }
+        finally
+        {
+            releaseRecord(record);
+        }
     }
 
     /**
@@ -316,10 +828,7 @@ public class Log
      */
     public static void print(String message)
     {
-        Map<String, String> sections = defaultSections();
-        sections.replace("message", message);
-
-        print(sections);
+        print(LogLevel.INFO, message);
     }
 
     /**
@@ -330,10 +839,21 @@ public class Log
      */
     public static void print(LogLevel level, String message)
     {
-        Map<String, String> sections = defaultSections();
-        sections.replace("message", message);
+        if(!isEnabled(level, DEFAULT_PREFIX)) { return; }
+
+        LogRecord record = acquireRecord();
 
-        print(level, sections);
+        try
+        {
+            if(capture(record, level, DEFAULT_PREFIX, message, sampler))
+            {
+                dispatch(record);
+            }
+        }
+        finally
+        {
+            releaseRecord(record);
+        }
     }
 
     /**
@@ -346,11 +866,7 @@ public class Log
      */
     public static void print(String prefix, String message)
     {
-        Map<String, String> sections = defaultSections();
-        sections.replace("prefix", prefix);
-        sections.replace("message", message);
-
-        print(sections);
+        print(LogLevel.INFO, prefix, message);
     }
 
     /**
@@ -364,11 +880,84 @@ public class Log
      */
     public static void print(LogLevel level, String prefix, String message)
     {
-        Map<String, String> sections = defaultSections();
-        sections.replace("prefix", prefix);
-        sections.replace("message", message);
+        if(!isEnabled(level, prefix)) { return; }
 
-        print(level, sections);
+        LogRecord record = acquireRecord();
+
+        try
+        {
+            if(capture(record, level, prefix, message, sampler))
+            {
+                dispatch(record);
+            }
+        }
+        finally
+        {
+            releaseRecord(record);
+        }
+    }
+
+    /**
+     * Prints a lazily computed message to logLevel {@code info}. The supplier is only called if the level is enabled
+     *
+     * @param message The supplier of the message to be logged (can be a lambda expression)
+     */
+    public static void print(Supplier<String> message)
+    {
+        print(LogLevel.INFO, message);
+    }
+
+    /**
+     * Prints a lazily computed message to a given logLevel. The supplier is only called if the level is enabled and the
+     * statement is not suppressed by the {@link #sampler}, so a disabled statement only costs the threshold check
+     *
+     * @param level   The log level of the output
+     * @param message The supplier of the message to be logged (can be a lambda expression)
+     */
+    public static void print(LogLevel level, Supplier<String> message)
+    {
+        print(level, DEFAULT_PREFIX, message);
+    }
+
+    /**
+     * Prints a given prefix and a lazily computed message to logLevel {@code info}. The supplier is only called if the
+     * level is enabled
+     *
+     * @param prefix  The prefix to be logged
+     * @param message The supplier of the message to be logged (can be a lambda expression)
+     */
+    public static void print(String prefix, Supplier<String> message)
+    {
+        print(LogLevel.INFO, prefix, message);
+    }
+
+    /**
+     * Prints a given prefix and a lazily computed message to a given logLevel. The supplier is only called if the level
+     * is enabled for the prefix and the statement is not suppressed by the {@link #sampler}, so a disabled statement
+     * only costs the threshold check
+     *
+     * @param level   The log level of the output
+     * @param prefix  The prefix to be logged
+     * @param message The supplier of the message to be logged (can be a lambda expression)
+     */
+    public static void print(LogLevel level, String prefix, Supplier<String> message)
+    {
+        if(!isEnabled(level, prefix)) { return; }
+
+        LogRecord record = acquireRecord();
+
+        try
+        {
+            if(capture(record, level, prefix, null, sampler))
+            {
+                record.setMessage(message.get());
+                dispatch(record);
+            }
+        }
+        finally
+        {
+            releaseRecord(record);
+        }
     }
 
     /**
@@ -380,10 +969,7 @@ public class Log
      */
     public static void print(LogSection... logSections)
     {
-        Map<String, String> sections = defaultSections();
-        Arrays.asList(logSections).forEach((logSection) -> sections.replace(logSection.getKey(), logSection.getValue()));
-
-        print(sections);
+        print(LogLevel.INFO, logSections);
     }
 
     /**
@@ -396,10 +982,35 @@ public class Log
      */
     public static void print(LogLevel level, LogSection... logSections)
     {
-        Map<String, String> sections = defaultSections();
-        Arrays.asList(logSections).forEach((logSection) -> sections.replace(logSection.getKey(), logSection.getValue()));
+        String prefix = DEFAULT_PREFIX;
+
+        for(LogSection logSection : logSections)
+        {
+            if(logSection.getKey().equals("prefix")) { prefix = logSection.getValue(); }
+        }
+
+        if(!isEnabled(level, prefix)) { return; }
+
+        LogRecord record = acquireRecord();
+
+        try
+        {
+            if(!capture(record, level, prefix, null, sampler))
+            {
+                return;
+            }
+
+            for(LogSection logSection : logSections)
+            {
+                logSection.apply(record);
+            }
 
-        print(level, sections);
+            dispatch(record);
+        }
+        finally
+        {
+            releaseRecord(record);
+        }
     }
 
     /**
@@ -411,7 +1022,7 @@ public class Log
      */
     public static void print(Map<String, String> logSections)
     {
-        levels.get("info").log(FormatUtil.formatLog(logPatterns, logSections));
+        print(LogLevel.INFO, logSections);
     }
 
     /**
@@ -424,39 +1035,249 @@ public class Log
      */
     public static void print(LogLevel level, Map<String, String> logSections)
     {
-        levels.get(level.getLevel()).log(FormatUtil.formatLog(logPatterns, logSections));
+        if(!isEnabled(level, logSections.get("prefix"))) { return; }
+
+        LogRecord record = acquireRecord();
+
+        try
+        {
+            record.setLevel(level);
+            logSections.forEach(record::set);
+
+            dispatch(record);
+        }
+        finally
+        {
+            releaseRecord(record);
+        }
     }
 
     /**
-     * @return {@link #logPointer}
+     * Checks a logLevel against the threshold of a prefix, or the global {@link #threshold} if the prefix has none. Every
+     * print statement calls this before computing any section
+     *
+     * @param level  The log level of a statement
+     * @param prefix The prefix of a statement, may be {@code null}
+     *
+     * @return If a statement with the given level and prefix would be written
+     *
+     * @see #setThreshold(LogLevel)
+     * @see #setThreshold(String, LogLevel)
+     */
+    public static boolean isEnabled(LogLevel level, String prefix)
+    {
+        int minimum = threshold;
+
+        if(!prefixThresholds.isEmpty() && prefix != null)
+        {
+            LogLevel prefixThreshold = prefixThresholds.get(prefix);
+
+            if(prefixThreshold != null)
+            {
+                minimum = prefixThreshold.getSeverity();
+            }
+        }
+
+        return level.getSeverity() >= minimum;
+    }
+
+    /**
+     * Checks a logLevel against the global {@link #threshold}
+     *
+     * @param level The log level of a statement
+     *
+     * @return If a statement with the given level and the default prefix would be written
+     *
+     * @see #isEnabled(LogLevel, String)
+     */
+    public static boolean isEnabled(LogLevel level)
+    {
+        return isEnabled(level, DEFAULT_PREFIX);
+    }
+
+    /**
+     * Sets the minimum level for statements of every prefix without its own threshold
+     *
+     * @param level The minimum level, {@code null} enables every level
+     */
+    public static void setThreshold(LogLevel level)
+    {
+        threshold = level == null ? Integer.MIN_VALUE : level.getSeverity();
+    }
+
+    /**
+     * Sets the minimum level for statements with a given prefix, overriding the global threshold
+     *
+     * @param prefix The prefix of the statements
+     * @param level  The minimum level, {@code null} removes the threshold of the prefix
+     */
+    public static void setThreshold(String prefix, LogLevel level)
+    {
+        if(level == null)
+        {
+            prefixThresholds.remove(prefix);
+        }
+        else
+        {
+            prefixThresholds.put(prefix, level);
+        }
+    }
+
+    /**
+     * Hands a record to the {@link #asyncDispatcher} or writes it directly if logging is synchronous. Arguments which
+     * might change before the background thread writes the record are inserted into the message beforehand
+     *
+     * @param record The record of the statement
+     */
+    private static void dispatch(LogRecord record)
+    {
+        AsyncLogDispatcher dispatcher = asyncDispatcher;
+
+        if(dispatcher != null)
+        {
+            if(record.hasMessageArgs() && !MessageFormatter.isImmutable(record.getMessageArgs()))
+            {
+                record.bufferMessage();
+            }
+
+            dispatcher.publish(record);
+        }
+        else
+        {
+            write(record);
+        }
+    }
+
+    /**
+     * Writes a record to the implementation of its logLevel and flushes it
+     *
+     * @param record The record of the statement
+     */
+    private static void write(LogRecord record)
+    {
+        LevelImplementation implementation = configuration.implementationOf(record.getLevel());
+
+        implementation.log(record);
+        metrics.recordStatement(record.getLevel());
+
+        long start = System.nanoTime();
+        implementation.flush();
+        metrics.recordFlush(System.nanoTime() - start);
+    }
+
+    /**
+     * Formats a record according to the {@link #getLogPatterns() patterns}, as done by {@link
+     * LevelImplementation#log(LogRecord)}
+     *
+     * @param record The record of a statement
+     *
+     * @return The formatted line
+     *
+     * @see #format(LogRecord, StringBuilder)
+     */
+    public static String format(LogRecord record)
+    {
+        StringBuilder output = formatBuilder.get();
+        output.setLength(0);
+
+        format(record, output);
+
+        return output.toString();
+    }
+
+    /**
+     * Formats a record according to the {@link #getLogPatterns() patterns}, appending to a given builder instead of
+     * creating a String
+     *
+     * @param record The record of a statement
+     * @param output The builder to append to
+     *
+     * @see #format(LogRecord)
+     */
+    public static void format(LogRecord record, StringBuilder output)
+    {
+        long start = System.nanoTime();
+        FormatUtil.formatLog(configuration.getPatterns(), record, output);
+        metrics.recordFormat(System.nanoTime() - start);
+    }
+
+    /**
+     * @return {@link #sampler}
+     */
+    public static LogSampler getSampler()
+    {
+        return sampler;
+    }
+
+    /**
+     * Sets the sampler limiting how many statements of a call site or prefix are written. Statements written after
+     * suppressed ones of the same site carry the amount of suppressed statements in their message
+     *
+     * @param sampler {@link #sampler}, {@code null} writes every statement
+     */
+    public static void setSampler(LogSampler sampler)
+    {
+        Log.sampler = sampler;
+    }
+
+    /**
+     * @return {@link #messageStyle}
+     */
+    public static MessageStyle getMessageStyle()
+    {
+        return messageStyle;
+    }
+
+    /**
+     * @param messageStyle {@link #messageStyle}
+     */
+    public static void setMessageStyle(MessageStyle messageStyle)
+    {
+        Log.messageStyle = messageStyle;
+    }
+
+    /**
+     * @return {@link #configuration}
+     */
+    public static LogConfiguration getConfiguration()
+    {
+        return configuration;
+    }
+
+    /**
+     * @return The character which can be positioned with the tag '#logPointer' in the patterns
      */
     public static char getLogPointer()
     {
-        return logPointer;
+        return configuration.getLogPointer();
     }
 
     /**
-     * @param logPointer {@link #logPointer}
+     * Publishes a new {@link #configuration} with another logPointer
+     *
+     * @param logPointer The character which can be positioned with the tag '#logPointer' in the patterns
      */
-    public static void setLogPointer(Character logPointer)
+    public static synchronized void setLogPointer(Character logPointer)
     {
-        Log.logPointer = logPointer;
+        configuration = configuration.withLogPointer(logPointer);
     }
 
     /**
-     * @return {@link #logPatterns}
+     * @return The patterns of the {@link #configuration}, which cannot be modified
      */
     public static List<LogPattern> getLogPatterns()
     {
-        return logPatterns;
+        return configuration.getPatterns();
     }
 
     /**
-     * @param logPatterns {@link #logPatterns}
+     * Publishes a new {@link #configuration} with a copy of the given patterns
+     *
+     * @param logPatterns A list of patterns, portioning sections set in various print statements
      */
-    public static void setLogPatterns(List<LogPattern> logPatterns)
+    public static synchronized void setLogPatterns(List<LogPattern> logPatterns)
     {
-        Log.logPatterns = logPatterns;
+        configuration = configuration.withPatterns(logPatterns);
     }
 
     /**
@@ -468,37 +1289,54 @@ public class Log
     }
 
     /**
-     * @param measurements {@link #measurements}
+     * @param measurements {@link #measurements}, copied into a concurrent map
      */
     public static void setMeasurements(Map<String, Measurement> measurements)
     {
-        Log.measurements = measurements;
+        Log.measurements = new ConcurrentHashMap<>(measurements);
     }
 
     /**
-     * @return {@link #levels}
+     * @return The logLevels and their output implementation of the {@link #configuration}, which cannot be modified
      */
     public static Map<String, LevelImplementation> getLevels()
     {
-        return levels;
+        return configuration.getLevels();
     }
 
     /**
-     * @param levels {@link #levels}
+     * Publishes a new {@link #configuration} with a copy of the given levels
+     *
+     * @param levels A map of logLevels and their output implementation
      */
-    public static void setLevels(Map<String, LevelImplementation> levels)
+    public static synchronized void setLevels(Map<String, LevelImplementation> levels)
     {
-        Log.levels = levels;
+        configuration = configuration.withLevels(levels);
     }
 
     /**
-     * Overrides a registered logLevel or adds a new one
+     * Overrides a registered logLevel or adds a new one, publishing a new {@link #configuration}
      *
      * @param level          The logLevel
      * @param implementation The implementation of the logLevel (can be a lambda expression)
      */
-    public static void registerLevel(LogLevel level, LevelImplementation implementation)
+    public static synchronized void registerLevel(LogLevel level, LevelImplementation implementation)
+    {
+        configuration = configuration.withLevel(level, implementation);
+    }
+
+    /**
+     * Overrides a registered logLevel or adds a new one which passes every statement on to several sinks, publishing a
+     * new {@link #configuration}. Sinks wrapped in a {@link de.jakobniklas.javalib.util.subclasses.log.QueuedLevel
+     * QueuedLevel} write on a thread of their own, so a slow sink cannot stall the others
+     *
+     * @param level The logLevel
+     * @param sinks The implementations of the logLevel (can be lambda expressions)
+     *
+     * @see FanoutLevel
+     */
+    public static synchronized void registerSinks(LogLevel level, LevelImplementation... sinks)
     {
-        CollectionUtil.replaceOrPut(levels, level.getLevel().toLowerCase(), implementation);
+        configuration = configuration.withLevel(level, new FanoutLevel(List.of(sinks)));
     }
 }
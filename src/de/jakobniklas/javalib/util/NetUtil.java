@@ -5,6 +5,8 @@ import de.jakobniklas.javalib.exception.Exceptions;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Class for network related actions
@@ -16,7 +18,8 @@ import java.net.URLConnection;
 public class NetUtil
 {
     /**
-     * Returns the HTML source of a given URL object
+     * Returns the HTML source of a given URL object. The source is read in bulk, presized by the content length and
+     * decoded with the charset of the content type (UTF-8 if there is none), keeping its line separators
      *
      * @param url the given url
      *
@@ -31,7 +34,9 @@ public class NetUtil
             URLConnection urlConnection = url.openConnection();
             urlConnection.setRequestProperty("User-Agent", "Mozilla/5.0 (Windows NT 6.1; WOW64) AppleWebKit/537.11 (KHTML, like Gecko) Chrome/23.0.1271.95 Safari/537.11");
 
-            return FormatUtil.streamToString(urlConnection.getInputStream());
+            long length = urlConnection.getContentLengthLong();
+
+            return FormatUtil.streamToString(urlConnection.getInputStream(), charsetOf(urlConnection.getContentType()), length > 0 && length < Integer.MAX_VALUE ? (int) length : -1);
         }
         catch(Exception e)
         {
@@ -63,4 +68,36 @@ public class NetUtil
 
         return null;
     }
+
+    /**
+     * Returns the charset of a content type header
+     *
+     * @param contentType the content type, e.g. {@code text/html; charset=ISO-8859-1}, may be {@code null}
+     *
+     * @return the charset, UTF-8 if there is none or it is not supported
+     */
+    private static Charset charsetOf(String contentType)
+    {
+        if(contentType != null)
+        {
+            for(String parameter : contentType.split(";"))
+            {
+                String trimmed = parameter.trim();
+
+                if(trimmed.regionMatches(true, 0, "charset=", 0, 8))
+                {
+                    try
+                    {
+                        return Charset.forName(trimmed.substring(8).replace("\"", "").trim());
+                    }
+                    catch(IllegalArgumentException e)
+                    {
+                        break;
+                    }
+                }
+            }
+        }
+
+        return StandardCharsets.UTF_8;
+    }
 }
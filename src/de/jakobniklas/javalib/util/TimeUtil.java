@@ -1,102 +1,189 @@
 package de.jakobniklas.javalib.util;
 
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
+import de.jakobniklas.javalib.util.subclasses.time.TimestampCache;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Class used for getting formatted dates
  *
  * @author Jakob-Niklas See
  * @see #format(String)
- * @see #format(String, Long) 
+ * @see #format(String, Long)
+ * @see #getFormatter(String)
  * @see #getDate()
+ * @see #getDate(long)
  * @see #getDate(Long)
  * @see #getTime()
- * @see #getTime(Long) 
+ * @see #getTime(long)
+ * @see #getTime(Long)
  */
 public class TimeUtil
 {
+    /**
+     * The maximum amount of formatters kept in {@link #formatters}
+     */
+    private static final int MAX_CACHED_FORMATTERS = 64;
+
+    /**
+     * Compiled formatters by their pattern, used by {@link #format(String)} and {@link #format(String, Long)}
+     */
+    private static final Map<String, DateTimeFormatter> formatters = new ConcurrentHashMap<>();
+
+    /**
+     * Cache of the current date, rendered at most once per second
+     *
+     * @see #getDate()
+     */
+    private static final TimestampCache dateCache = new TimestampCache(getFormatter("dd.MM.yyyy"), 1000);
+
+    /**
+     * Cache of the current time, rendered at most once per second
+     *
+     * @see #getTime()
+     */
+    private static final TimestampCache timeCache = new TimestampCache(getFormatter("HH:mm:ss"), 1000);
+
     /**
      * Formats the current date and time according to the format parameter
      *
-     * @param format Input for formatting a {@link SimpleDateFormat SimpleDateFormat}
+     * @param format Input for formatting a {@link DateTimeFormatter DateTimeFormatter}
      *
      * @return The formatted String according to the format parameter
      *
-     * @see Calendar
-     * @see #format(String, Long) 
+     * @see #getFormatter(String)
+     * @see #format(String, Long)
      */
     public static String format(String format)
     {
-        return new SimpleDateFormat(format).format(Calendar.getInstance().getTime());
+        return getFormatter(format).format(Instant.now());
     }
 
     /**
      * Formats a given unix timestamp according to the format parameter
      *
-     * @param format Input for formatting a {@link SimpleDateFormat SimpleDateFormat}
+     * @param format Input for formatting a {@link DateTimeFormatter DateTimeFormatter}
      * @param unix   The unix timestamp
      *
      * @return The formatted String according to the format parameter
      *
-     * @see Calendar
-     * @see #format(String) 
+     * @see #getFormatter(String)
+     * @see #format(String)
      */
     public static String format(String format, Long unix)
     {
-        return new SimpleDateFormat(format).format(new Date(unix));
+        return getFormatter(format).format(Instant.ofEpochMilli(unix));
     }
 
     /**
-     * Gets the current date in the 'dd.MM.yyyy' format ({@link SimpleDateFormat SimpleDateFormat})
+     * Returns a compiled formatter in the system default time zone for a given pattern. Formatters are cached by their
+     * pattern, the cache is cleared once it holds {@link #MAX_CACHED_FORMATTERS} patterns
+     *
+     * @param format Input for {@link DateTimeFormatter#ofPattern(String)}
+     *
+     * @return The thread-safe formatter of the pattern
+     */
+    public static DateTimeFormatter getFormatter(String format)
+    {
+        DateTimeFormatter formatter = formatters.get(format);
+
+        if(formatter == null)
+        {
+            if(formatters.size() >= MAX_CACHED_FORMATTERS)
+            {
+                formatters.clear();
+            }
+
+            formatter = DateTimeFormatter.ofPattern(format).withZone(ZoneId.systemDefault());
+            formatters.put(format, formatter);
+        }
+
+        return formatter;
+    }
+
+    /**
+     * Gets the current date in the 'dd.MM.yyyy' format ({@link DateTimeFormatter DateTimeFormatter})
      *
      * @return Formatted String
      *
-     * @see #format(String)
+     * @see #dateCache
      */
     public static String getDate()
     {
-        return format("dd.MM.yyyy");
+        return dateCache.get(System.currentTimeMillis());
     }
 
     /**
-     * Gets the date in the 'dd.MM.yyyy' format ({@link SimpleDateFormat SimpleDateFormat}) from a given unix timestamp
+     * Gets the date in the 'dd.MM.yyyy' format ({@link DateTimeFormatter DateTimeFormatter}) from a given unix
+     * timestamp
      *
      * @param unix The unix timestamp
      *
      * @return Formatted String
      *
-     * @see #format(String, Long)
+     * @see #dateCache
+     */
+    public static String getDate(long unix)
+    {
+        return dateCache.get(unix);
+    }
+
+    /**
+     * Gets the date in the 'dd.MM.yyyy' format ({@link DateTimeFormatter DateTimeFormatter}) from a given unix
+     * timestamp
+     *
+     * @param unix The unix timestamp, must not be {@code null}
+     *
+     * @return Formatted String
+     *
+     * @see #getDate(long)
      */
     public static String getDate(Long unix)
     {
-        return format("dd.MM.yyyy", unix);
+        return getDate(unix.longValue());
     }
 
     /**
-     * Gets the current time in the 'HH:mm:ss' format ({@link SimpleDateFormat SimpleDateFormat})
+     * Gets the current time in the 'HH:mm:ss' format ({@link DateTimeFormatter DateTimeFormatter})
      *
      * @return Formatted String
      *
-     * @see #format(String)
+     * @see #timeCache
      */
     public static String getTime()
     {
-        return format("HH:mm:ss");
+        return timeCache.get(System.currentTimeMillis());
     }
 
     /**
-     * Gets the time in the 'HH:mm:ss' format ({@link SimpleDateFormat SimpleDateFormat}) from a given unix timestamp
+     * Gets the time in the 'HH:mm:ss' format ({@link DateTimeFormatter DateTimeFormatter}) from a given unix timestamp
      *
      * @param unix The unix timestamp
      *
      * @return Formatted String
      *
-     * @see #format(String, Long)
+     * @see #timeCache
+     */
+    public static String getTime(long unix)
+    {
+        return timeCache.get(unix);
+    }
+
+    /**
+     * Gets the time in the 'HH:mm:ss' format ({@link DateTimeFormatter DateTimeFormatter}) from a given unix timestamp
+     *
+     * @param unix The unix timestamp, must not be {@code null}
+     *
+     * @return Formatted String
+     *
+     * @see #getTime(long)
      */
     public static String getTime(Long unix)
     {
-        return format("HH:mm:ss", unix);
+        return getTime(unix.longValue());
     }
 }
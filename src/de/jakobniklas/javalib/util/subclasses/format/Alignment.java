@@ -0,0 +1,25 @@
+package de.jakobniklas.javalib.util.subclasses.format;
+
+/**
+ * The alignment of the cells of a {@link TableColumn} within its width
+ *
+ * @author Jakob-Niklas See
+ * @see TableRenderer
+ */
+public enum Alignment
+{
+    /**
+     * Padded to the right, like {@link de.jakobniklas.javalib.util.FormatUtil#padRight(String, Integer)}
+     */
+    LEFT,
+
+    /**
+     * Padded to the left, like {@link de.jakobniklas.javalib.util.FormatUtil#padLeft(String, Integer)}
+     */
+    RIGHT,
+
+    /**
+     * Padded on both sides, the additional space of an odd padding on the right
+     */
+    CENTER
+}
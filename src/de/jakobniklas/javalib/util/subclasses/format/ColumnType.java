@@ -0,0 +1,147 @@
+package de.jakobniklas.javalib.util.subclasses.format;
+
+/**
+ * The type of a column of tabular data, as inferred by {@link ColumnTypeInference}. The numeric types form a chain from
+ * {@link #INT} to {@link #DOUBLE}, a column only widens along it. Booleans cannot be read as numbers, so a column
+ * mixing them with numbers becomes {@link #TEXT}, as does any column with a cell of no other type
+ *
+ * @author Jakob-Niklas See
+ * @see #of(CharSequence, int, int)
+ * @see #widen(CharSequence, int, int)
+ * @see #widen(ColumnType)
+ */
+public enum ColumnType
+{
+    /**
+     * A column without any non-empty cell
+     */
+    EMPTY,
+
+    /**
+     * {@code true} or {@code false}
+     */
+    BOOLEAN,
+
+    /**
+     * Numbers accepted by {@link Integer#parseInt(String)}
+     */
+    INT,
+
+    /**
+     * Numbers accepted by {@link Long#parseLong(String)}
+     */
+    LONG,
+
+    /**
+     * Numbers accepted by {@link Double#parseDouble(String)}
+     */
+    DOUBLE,
+
+    /**
+     * Anything else
+     */
+    TEXT;
+
+    /**
+     * @param text  A text
+     * @param start The index of the first character of a cell
+     * @param end   The index after the last character of the cell
+     *
+     * @return The narrowest type of the cell, {@link #EMPTY} if the cell is empty
+     */
+    public static ColumnType of(CharSequence text, int start, int end)
+    {
+        return EMPTY.widen(text, start, end);
+    }
+
+    /**
+     * Widens this type by a cell, only checking the types the column can still have
+     *
+     * @param text  A text
+     * @param start The index of the first character of a cell
+     * @param end   The index after the last character of the cell
+     *
+     * @return The narrowest type of both this type and the cell, this type if the cell is empty
+     */
+    public ColumnType widen(CharSequence text, int start, int end)
+    {
+        if(start >= end || this == TEXT)
+        {
+            return this;
+        }
+
+        if(this == BOOLEAN)
+        {
+            return isBoolean(text, start, end) ? BOOLEAN : TEXT;
+        }
+
+        if(this == EMPTY && isBoolean(text, start, end))
+        {
+            return BOOLEAN;
+        }
+
+        if((this == EMPTY || this == INT) && NumberScanner.isInt(text, start, end))
+        {
+            return INT;
+        }
+
+        if(this != DOUBLE && NumberScanner.isLong(text, start, end))
+        {
+            return LONG;
+        }
+
+        return NumberScanner.isDouble(text, start, end) ? DOUBLE : TEXT;
+    }
+
+    /**
+     * @param other Another type
+     *
+     * @return The narrowest type both this and the other type widen to
+     */
+    public ColumnType widen(ColumnType other)
+    {
+        if(this == EMPTY || this == other)
+        {
+            return other;
+        }
+
+        if(other == EMPTY)
+        {
+            return this;
+        }
+
+        if(this == BOOLEAN || other == BOOLEAN)
+        {
+            return TEXT;
+        }
+
+        return ordinal() > other.ordinal() ? this : other;
+    }
+
+    /**
+     * @param text  A text
+     * @param start The index of the first character of a cell
+     * @param end   The index after the last character of the cell
+     *
+     * @return If the cell is {@code true} or {@code false}, like {@link de.jakobniklas.javalib.util.FormatUtil#isBoolean(String)}
+     */
+    private static boolean isBoolean(CharSequence text, int start, int end)
+    {
+        String value = end - start == 4 ? "true" : end - start == 5 ? "false" : null;
+
+        if(value == null)
+        {
+            return false;
+        }
+
+        for(int i = 0; i < value.length(); i++)
+        {
+            if(text.charAt(start + i) != value.charAt(i))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
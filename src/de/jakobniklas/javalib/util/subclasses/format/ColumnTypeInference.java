@@ -0,0 +1,444 @@
+package de.jakobniklas.javalib.util.subclasses.format;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Infers the {@link ColumnType} of every column of tabular data, e.g. the lines of a delimited file. The rows are
+ * split into ranges which are classified in parallel in a {@link ForkJoinPool}, every range widens its own types cell
+ * by cell and the ranges are widened into each other when joined. Lines are split at the {@link #delimiter} without
+ * creating a String per cell, quoting is not supported
+ * <p>
+ * A column which is proven to be {@link ColumnType#TEXT} is no longer checked by any range. Rows which are split
+ * already have a known amount of columns, so once every column is text, all ranges stop. Lines may have more cells
+ * than the first one, so their ranges keep looking for cells beyond the known columns. With a {@link #sampleSize},
+ * only that many rows spread evenly over the input are classified
+ *
+ * <pre>{@code
+ * List<String> lines = Files.readAllLines(path);
+ * ColumnType[] types = new ColumnTypeInference(';').infer(lines.subList(1, lines.size()));
+ * }</pre>
+ *
+ * @author Jakob-Niklas See
+ * @see #ColumnTypeInference(char)
+ * @see #infer(List)
+ * @see #inferRows(List)
+ * @see ColumnType
+ */
+public class ColumnTypeInference
+{
+    /**
+     * The default amount of rows below which a range is classified without being split further
+     */
+    private static final int DEFAULT_THRESHOLD = 4096;
+
+    /**
+     * The amount of rows after which a range checks if every column is text already
+     */
+    private static final int CHECK_INTERVAL = 256;
+
+    /**
+     * The character separating the cells of a line
+     */
+    private final char delimiter;
+
+    /**
+     * The maximum amount of rows classified, 0 to classify all of them
+     */
+    private int sampleSize;
+
+    /**
+     * The amount of rows below which a range is classified without being split further
+     */
+    private int threshold = DEFAULT_THRESHOLD;
+
+    /**
+     * The pool the ranges are classified in, the common pool by default
+     */
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * Creates a new inference for lines with the given delimiter
+     *
+     * @param delimiter {@link #delimiter}
+     */
+    public ColumnTypeInference(char delimiter)
+    {
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Infers the types of the columns of delimited lines. Missing cells are treated as empty, lines with more cells than
+     * the first one add columns
+     *
+     * @param lines The lines, without a header
+     *
+     * @return The type of every column
+     */
+    public ColumnType[] infer(List<? extends CharSequence> lines)
+    {
+        return run(lines.size(), lines.isEmpty() ? 0 : cells(lines.get(0)), false, (index, types, text) ->
+        {
+            CharSequence line = lines.get(index);
+            int start = 0;
+            int column = 0;
+
+            for(int i = 0; i <= line.length(); i++)
+            {
+                if(i == line.length() || line.charAt(i) == delimiter)
+                {
+                    if(column == types.length)
+                    {
+                        types = Arrays.copyOf(types, column + 1);
+                        types[column] = ColumnType.EMPTY;
+                    }
+
+                    if(column >= text.length() || text.get(column) == 0)
+                    {
+                        types[column] = types[column].widen(line, start, i);
+                    }
+
+                    start = i + 1;
+                    column++;
+                }
+            }
+
+            return types;
+        });
+    }
+
+    /**
+     * Infers the types of the columns of rows which are split already
+     *
+     * @param rows The rows, without a header
+     *
+     * @return The type of every column
+     */
+    public ColumnType[] inferRows(List<String[]> rows)
+    {
+        int columns = 0;
+
+        for(String[] row : rows)
+        {
+            columns = Math.max(columns, row.length);
+        }
+
+        return run(rows.size(), columns, true, (index, types, text) ->
+        {
+            String[] row = rows.get(index);
+
+            if(row.length > types.length)
+            {
+                int previous = types.length;
+                types = Arrays.copyOf(types, row.length);
+                Arrays.fill(types, previous, types.length, ColumnType.EMPTY);
+            }
+
+            for(int column = 0; column < row.length; column++)
+            {
+                if(row[column] != null && (column >= text.length() || text.get(column) == 0))
+                {
+                    types[column] = types[column].widen(row[column], 0, row[column].length());
+                }
+            }
+
+            return types;
+        });
+    }
+
+    /**
+     * Classifies the (sampled) rows in the {@link #pool}
+     *
+     * @param rows       The amount of rows
+     * @param columns    The expected amount of columns, which are no longer checked once they are text
+     * @param complete   If no row has more than the expected amount of columns, so ranges can stop once every
+     *                   column is text
+     * @param classifier The classifier of a single row
+     *
+     * @return The type of every column
+     */
+    private ColumnType[] run(int rows, int columns, boolean complete, RowClassifier classifier)
+    {
+        int step = sampleSize > 0 && rows > sampleSize ? (rows + sampleSize - 1) / sampleSize : 1;
+        int count = (rows + step - 1) / step;
+
+        Shared shared = new Shared(classifier, step, columns, complete);
+        ColumnType[] types = count == 0 ? new ColumnType[0] : pool.invoke(new RangeTask(shared, 0, count));
+
+        if(types.length < columns)
+        {
+            int previous = types.length;
+            types = Arrays.copyOf(types, columns);
+            Arrays.fill(types, previous, columns, ColumnType.EMPTY);
+        }
+
+        return types;
+    }
+
+    /**
+     * @param line A line
+     *
+     * @return The amount of cells of the line
+     */
+    private int cells(CharSequence line)
+    {
+        int cells = 1;
+
+        for(int i = 0; i < line.length(); i++)
+        {
+            if(line.charAt(i) == delimiter)
+            {
+                cells++;
+            }
+        }
+
+        return cells;
+    }
+
+    /**
+     * @return {@link #delimiter}
+     */
+    public char getDelimiter()
+    {
+        return delimiter;
+    }
+
+    /**
+     * @return {@link #sampleSize}
+     */
+    public int getSampleSize()
+    {
+        return sampleSize;
+    }
+
+    /**
+     * @param sampleSize {@link #sampleSize}
+     */
+    public void setSampleSize(int sampleSize)
+    {
+        if(sampleSize < 0)
+        {
+            throw new IllegalArgumentException("sampleSize must not be negative: " + sampleSize);
+        }
+
+        this.sampleSize = sampleSize;
+    }
+
+    /**
+     * @return {@link #threshold}
+     */
+    public int getThreshold()
+    {
+        return threshold;
+    }
+
+    /**
+     * @param threshold {@link #threshold}
+     */
+    public void setThreshold(int threshold)
+    {
+        if(threshold < 1)
+        {
+            throw new IllegalArgumentException("threshold must be positive: " + threshold);
+        }
+
+        this.threshold = threshold;
+    }
+
+    /**
+     * @return {@link #pool}
+     */
+    public ForkJoinPool getPool()
+    {
+        return pool;
+    }
+
+    /**
+     * @param pool {@link #pool}
+     */
+    public void setPool(ForkJoinPool pool)
+    {
+        this.pool = pool;
+    }
+
+    /**
+     * Widens the types of a range by a single row
+     */
+    @FunctionalInterface
+    private interface RowClassifier
+    {
+        /**
+         * @param index The index of the row
+         * @param types The types of the range so far, modified in place
+         * @param text  1 for every column which is proven to be text
+         *
+         * @return The types, a larger copy if the row has more cells than there are types
+         */
+        ColumnType[] classify(int index, ColumnType[] types, AtomicIntegerArray text);
+    }
+
+    /**
+     * The state shared by all ranges of one inference
+     */
+    private static final class Shared
+    {
+        /**
+         * The classifier of a single row
+         */
+        private final RowClassifier classifier;
+
+        /**
+         * The distance between two classified rows
+         */
+        private final int step;
+
+        /**
+         * If no row has more than the expected amount of columns
+         */
+        private final boolean complete;
+
+        /**
+         * 1 for every expected column which is proven to be text
+         */
+        private final AtomicIntegerArray text;
+
+        /**
+         * The amount of expected columns which are not proven to be text yet
+         */
+        private final AtomicInteger remaining;
+
+        /**
+         * @param classifier {@link #classifier}
+         * @param step       {@link #step}
+         * @param columns    The expected amount of columns
+         * @param complete   {@link #complete}
+         */
+        private Shared(RowClassifier classifier, int step, int columns, boolean complete)
+        {
+            this.classifier = classifier;
+            this.step = step;
+            this.complete = complete;
+
+            text = new AtomicIntegerArray(columns);
+            remaining = new AtomicInteger(columns);
+        }
+
+        /**
+         * @return If every column is text and no row has more columns, so the remaining rows need no classification
+         */
+        private boolean isSettled()
+        {
+            return complete && remaining.get() == 0;
+        }
+    }
+
+    /**
+     * Classifies a range of the sampled rows, splitting it in halves above the {@link #threshold}
+     */
+    private final class RangeTask extends RecursiveTask<ColumnType[]>
+    {
+        /**
+         * The version of the serialized form, which {@link RecursiveTask} declares
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The state of the inference
+         */
+        private final Shared shared;
+
+        /**
+         * The first sampled row of the range
+         */
+        private final int from;
+
+        /**
+         * The sampled row after the range
+         */
+        private final int to;
+
+        /**
+         * @param shared {@link #shared}
+         * @param from   {@link #from}
+         * @param to     {@link #to}
+         */
+        private RangeTask(Shared shared, int from, int to)
+        {
+            this.shared = shared;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ColumnType[] compute()
+        {
+            if(to - from > threshold && !shared.isSettled())
+            {
+                int middle = (from + to) >>> 1;
+
+                RangeTask left = new RangeTask(shared, from, middle);
+                left.fork();
+
+                ColumnType[] right = new RangeTask(shared, middle, to).compute();
+
+                return join(left.join(), right);
+            }
+
+            ColumnType[] types = new ColumnType[shared.text.length()];
+            Arrays.fill(types, ColumnType.EMPTY);
+
+            for(int i = from; i < to; i++)
+            {
+                if((i - from) % CHECK_INTERVAL == 0 && shared.isSettled())
+                {
+                    Arrays.fill(types, ColumnType.TEXT);
+
+                    break;
+                }
+
+                types = shared.classifier.classify(i * shared.step, types, shared.text);
+
+                for(int column = 0; column < shared.text.length(); column++)
+                {
+                    if(types[column] == ColumnType.TEXT && shared.text.get(column) == 0 && shared.text.compareAndSet(column, 0, 1))
+                    {
+                        shared.remaining.decrementAndGet();
+                    }
+                }
+            }
+
+            return types;
+        }
+
+        /**
+         * @param left  The types of a range
+         * @param right The types of the following range
+         *
+         * @return The types widened by each other
+         */
+        private ColumnType[] join(ColumnType[] left, ColumnType[] right)
+        {
+            ColumnType[] longer = left.length >= right.length ? left : right;
+            ColumnType[] shorter = longer == left ? right : left;
+
+            for(int column = 0; column < shorter.length; column++)
+            {
+                longer[column] = longer[column].widen(shorter[column]);
+            }
+
+            for(int column = 0; column < shared.text.length(); column++)
+            {
+                if(shared.text.get(column) == 1)
+                {
+                    longer[column] = ColumnType.TEXT;
+                }
+            }
+
+            return longer;
+        }
+    }
+}
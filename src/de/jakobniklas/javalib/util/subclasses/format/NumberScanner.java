@@ -0,0 +1,467 @@
+package de.jakobniklas.javalib.util.subclasses.format;
+
+/**
+ * Validates and parses numbers within a range of a {@link CharSequence} without throwing and, for common input,
+ * without allocating. The grammars are the ones of {@link Double#parseDouble(String)}, {@link Long#parseLong(String)}
+ * and {@link Integer#parseInt(String)}, so a range is valid if those methods would accept it as a String. The only
+ * exception are digits outside of ASCII, which the integer methods accept but this class does not
+ * <p>
+ * Doubles with up to 15 significant digits and a decimal exponent of at most 22 are computed directly, which is
+ * exact as both the digits and the power of ten are representable. Any other valid double is validated here and then
+ * passed to {@link Double#parseDouble(String)}, so it is rounded the same way
+ *
+ * @author Jakob-Niklas See
+ * @see #isDouble(CharSequence, int, int)
+ * @see #isLong(CharSequence, int, int)
+ * @see #isInt(CharSequence, int, int)
+ * @see #parseDouble(CharSequence, int, int, double)
+ * @see #parseLong(CharSequence, int, int, long)
+ */
+public final class NumberScanner
+{
+    /**
+     * The powers of ten which are exactly representable as a double
+     */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * The maximum amount of significant digits computed directly
+     */
+    private static final int MAX_FAST_DIGITS = 15;
+
+    /**
+     * Only static methods
+     */
+    private NumberScanner()
+    {
+    }
+
+    /**
+     * @param text  A text, may be {@code null}
+     * @param start The index of the first character
+     * @param end   The index after the last character
+     *
+     * @return If {@link Double#parseDouble(String)} would accept the range
+     */
+    public static boolean isDouble(CharSequence text, int start, int end)
+    {
+        if(text == null)
+        {
+            return false;
+        }
+
+        while(start < end && text.charAt(start) <= ' ')
+        {
+            start++;
+        }
+
+        while(end > start && text.charAt(end - 1) <= ' ')
+        {
+            end--;
+        }
+
+        if(start < end && (text.charAt(start) == '+' || text.charAt(start) == '-'))
+        {
+            start++;
+        }
+
+        if(start == end)
+        {
+            return false;
+        }
+
+        if(matches(text, start, end, "NaN") || matches(text, start, end, "Infinity"))
+        {
+            return true;
+        }
+
+        char last = text.charAt(end - 1);
+
+        if(last == 'f' || last == 'F' || last == 'd' || last == 'D')
+        {
+            end--;
+        }
+
+        if(end - start > 2 && text.charAt(start) == '0' && (text.charAt(start + 1) == 'x' || text.charAt(start + 1) == 'X'))
+        {
+            return isHexDouble(text, start + 2, end);
+        }
+
+        int i = start;
+        int digits = 0;
+
+        while(i < end && isDigit(text.charAt(i)))
+        {
+            i++;
+            digits++;
+        }
+
+        if(i < end && text.charAt(i) == '.')
+        {
+            i++;
+
+            while(i < end && isDigit(text.charAt(i)))
+            {
+                i++;
+                digits++;
+            }
+        }
+
+        if(digits == 0)
+        {
+            return false;
+        }
+
+        if(i < end && (text.charAt(i) == 'e' || text.charAt(i) == 'E'))
+        {
+            return isExponent(text, i + 1, end);
+        }
+
+        return i == end;
+    }
+
+    /**
+     * @param text  A text
+     * @param start The index after {@code "0x"}
+     * @param end   The index after the last character, without a type suffix
+     *
+     * @return If the range is the rest of a hexadecimal double, which requires a binary exponent
+     */
+    private static boolean isHexDouble(CharSequence text, int start, int end)
+    {
+        int i = start;
+        int digits = 0;
+
+        while(i < end && Character.digit(text.charAt(i), 16) >= 0)
+        {
+            i++;
+            digits++;
+        }
+
+        if(i < end && text.charAt(i) == '.')
+        {
+            i++;
+
+            while(i < end && Character.digit(text.charAt(i), 16) >= 0)
+            {
+                i++;
+                digits++;
+            }
+        }
+
+        return digits > 0 && i < end && (text.charAt(i) == 'p' || text.charAt(i) == 'P') && isExponent(text, i + 1, end);
+    }
+
+    /**
+     * @param text  A text
+     * @param start The index after the exponent character
+     * @param end   The index after the last character
+     *
+     * @return If the range is an optionally signed, non-empty run of decimal digits
+     */
+    private static boolean isExponent(CharSequence text, int start, int end)
+    {
+        if(start < end && (text.charAt(start) == '+' || text.charAt(start) == '-'))
+        {
+            start++;
+        }
+
+        if(start == end)
+        {
+            return false;
+        }
+
+        for(int i = start; i < end; i++)
+        {
+            if(!isDigit(text.charAt(i)))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param text  A text, may be {@code null}
+     * @param start The index of the first character
+     * @param end   The index after the last character
+     *
+     * @return If {@link Long#parseLong(String)} would accept the range
+     */
+    public static boolean isLong(CharSequence text, int start, int end)
+    {
+        return scanLong(text, start, end, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param text  A text, may be {@code null}
+     * @param start The index of the first character
+     * @param end   The index after the last character
+     *
+     * @return If {@link Integer#parseInt(String)} would accept the range
+     */
+    public static boolean isInt(CharSequence text, int start, int end)
+    {
+        return scanLong(text, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param text  A text, may be {@code null}
+     * @param start The index of the first character
+     * @param end   The index after the last character
+     * @param min   The smallest accepted number
+     * @param max   The largest accepted number
+     *
+     * @return If the range is an optionally signed, non-empty run of decimal digits within the bounds
+     */
+    private static boolean scanLong(CharSequence text, int start, int end, long min, long max)
+    {
+        if(text == null || start >= end)
+        {
+            return false;
+        }
+
+        boolean negative = text.charAt(start) == '-';
+
+        if(negative || text.charAt(start) == '+')
+        {
+            start++;
+        }
+
+        if(start == end)
+        {
+            return false;
+        }
+
+        long limit = negative ? min : -max;
+        long multiplicationLimit = limit / 10;
+        long result = 0;
+
+        for(int i = start; i < end; i++)
+        {
+            char c = text.charAt(i);
+
+            if(!isDigit(c) || result < multiplicationLimit)
+            {
+                return false;
+            }
+
+            result *= 10;
+
+            if(result < limit + (c - '0'))
+            {
+                return false;
+            }
+
+            result -= c - '0';
+        }
+
+        return true;
+    }
+
+    /**
+     * Parses a range like {@link Long#parseLong(String)}, without creating a String
+     *
+     * @param text         A text, may be {@code null}
+     * @param start        The index of the first character
+     * @param end          The index after the last character
+     * @param defaultValue The value returned if the range is not a long
+     *
+     * @return The number of the range, or the default value
+     */
+    public static long parseLong(CharSequence text, int start, int end, long defaultValue)
+    {
+        if(!isLong(text, start, end))
+        {
+            return defaultValue;
+        }
+
+        boolean negative = text.charAt(start) == '-';
+
+        if(negative || text.charAt(start) == '+')
+        {
+            start++;
+        }
+
+        long result = 0;
+
+        for(int i = start; i < end; i++)
+        {
+            result = result * 10 - (text.charAt(i) - '0');
+        }
+
+        return negative ? result : -result;
+    }
+
+    /**
+     * Parses a range like {@link Double#parseDouble(String)}. Decimal numbers with up to {@link #MAX_FAST_DIGITS}
+     * significant digits and a small exponent are computed without creating a String
+     *
+     * @param text         A text, may be {@code null}
+     * @param start        The index of the first character
+     * @param end          The index after the last character
+     * @param defaultValue The value returned if the range is not a double
+     *
+     * @return The number of the range, or the default value
+     */
+    public static double parseDouble(CharSequence text, int start, int end, double defaultValue)
+    {
+        if(!isDouble(text, start, end))
+        {
+            return defaultValue;
+        }
+
+        int from = start;
+        int to = end;
+
+        while(text.charAt(from) <= ' ')
+        {
+            from++;
+        }
+
+        while(text.charAt(to - 1) <= ' ')
+        {
+            to--;
+        }
+
+        boolean negative = text.charAt(from) == '-';
+
+        if(negative || text.charAt(from) == '+')
+        {
+            from++;
+        }
+
+        if(text.charAt(from) == 'N')
+        {
+            return Double.NaN;
+        }
+
+        if(text.charAt(from) == 'I')
+        {
+            return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean fraction = false;
+        int i = from;
+
+        for(; i < to; i++)
+        {
+            char c = text.charAt(i);
+
+            if(c == '.')
+            {
+                fraction = true;
+            }
+            else if(isDigit(c))
+            {
+                if(mantissa != 0 || c != '0')
+                {
+                    if(++digits > MAX_FAST_DIGITS)
+                    {
+                        return Double.parseDouble(text.subSequence(start, end).toString());
+                    }
+
+                    mantissa = mantissa * 10 + (c - '0');
+                }
+
+                if(fraction)
+                {
+                    exponent--;
+                }
+            }
+            else
+            {
+                break;
+            }
+        }
+
+        if(i < to && (text.charAt(i) == 'e' || text.charAt(i) == 'E'))
+        {
+            i++;
+
+            boolean negativeExponent = text.charAt(i) == '-';
+
+            if(negativeExponent || text.charAt(i) == '+')
+            {
+                i++;
+            }
+
+            int written = 0;
+
+            for(; i < to && isDigit(text.charAt(i)); i++)
+            {
+                written = Math.min(written * 10 + (text.charAt(i) - '0'), 10_000);
+            }
+
+            exponent += negativeExponent ? -written : written;
+        }
+        else if(i < to && (text.charAt(i) == 'x' || text.charAt(i) == 'X'))
+        {
+            return Double.parseDouble(text.subSequence(start, end).toString());
+        }
+
+        double value;
+
+        if(mantissa == 0)
+        {
+            value = 0;
+        }
+        else if(exponent >= 0 && exponent < POWERS_OF_TEN.length)
+        {
+            value = mantissa * POWERS_OF_TEN[exponent];
+        }
+        else if(exponent < 0 && -exponent < POWERS_OF_TEN.length)
+        {
+            value = mantissa / POWERS_OF_TEN[-exponent];
+        }
+        else
+        {
+            return Double.parseDouble(text.subSequence(start, end).toString());
+        }
+
+        return negative ? -value : value;
+    }
+
+    /**
+     * @param text     A text
+     * @param start    The index of the first character
+     * @param end      The index after the last character
+     * @param expected The expected content of the range
+     *
+     * @return If the range equals the expected content
+     */
+    private static boolean matches(CharSequence text, int start, int end, String expected)
+    {
+        if(end - start != expected.length())
+        {
+            return false;
+        }
+
+        for(int i = 0; i < expected.length(); i++)
+        {
+            if(text.charAt(start + i) != expected.charAt(i))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param c A character
+     *
+     * @return If the character is an ASCII digit
+     */
+    private static boolean isDigit(char c)
+    {
+        return c >= '0' && c <= '9';
+    }
+}
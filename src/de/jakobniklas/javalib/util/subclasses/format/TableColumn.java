@@ -0,0 +1,151 @@
+package de.jakobniklas.javalib.util.subclasses.format;
+
+/**
+ * The specification of a column rendered by a {@link TableRenderer}: its header, width, alignment and truncation. A
+ * column without a fixed width gets the width of its longest cell within the sampled rows, up to its {@link
+ * #maxWidth}
+ *
+ * @author Jakob-Niklas See
+ * @see #TableColumn(String)
+ * @see #TableColumn(String, int, Alignment, Truncation)
+ * @see #autoWidth(String, int, Alignment, Truncation)
+ */
+public class TableColumn
+{
+    /**
+     * The header of the column, may be {@code null}
+     */
+    private final String header;
+
+    /**
+     * The fixed width of the column, 0 if it is computed from the sampled rows
+     */
+    private final int width;
+
+    /**
+     * The maximum computed width of the column
+     */
+    private final int maxWidth;
+
+    /**
+     * The alignment of the cells within the width
+     */
+    private final Alignment alignment;
+
+    /**
+     * What happens to cells longer than the width
+     */
+    private final Truncation truncation;
+
+    /**
+     * Creates a left aligned column whose width is computed from the sampled rows, cutting longer cells
+     *
+     * @param header {@link #header}
+     */
+    public TableColumn(String header)
+    {
+        this(header, 0, Integer.MAX_VALUE, Alignment.LEFT, Truncation.CUT);
+    }
+
+    /**
+     * Creates a column with a fixed width
+     *
+     * @param header     {@link #header}
+     * @param width      {@link #width}
+     * @param alignment  {@link #alignment}
+     * @param truncation {@link #truncation}
+     */
+    public TableColumn(String header, int width, Alignment alignment, Truncation truncation)
+    {
+        this(header, width, width, alignment, truncation);
+
+        if(width < 1)
+        {
+            throw new IllegalArgumentException("width must be positive: " + width);
+        }
+    }
+
+    /**
+     * @param header     {@link #header}
+     * @param width      {@link #width}
+     * @param maxWidth   {@link #maxWidth}
+     * @param alignment  {@link #alignment}
+     * @param truncation {@link #truncation}
+     */
+    private TableColumn(String header, int width, int maxWidth, Alignment alignment, Truncation truncation)
+    {
+        this.header = header;
+        this.width = width;
+        this.maxWidth = maxWidth;
+        this.alignment = alignment;
+        this.truncation = truncation;
+    }
+
+    /**
+     * Creates a column whose width is computed from the sampled rows
+     *
+     * @param header     {@link #header}
+     * @param maxWidth   {@link #maxWidth}
+     * @param alignment  {@link #alignment}
+     * @param truncation {@link #truncation}
+     *
+     * @return The column
+     */
+    public static TableColumn autoWidth(String header, int maxWidth, Alignment alignment, Truncation truncation)
+    {
+        if(maxWidth < 1)
+        {
+            throw new IllegalArgumentException("maxWidth must be positive: " + maxWidth);
+        }
+
+        return new TableColumn(header, 0, maxWidth, alignment, truncation);
+    }
+
+    /**
+     * @return If the width is computed from the sampled rows
+     */
+    public boolean isAutoWidth()
+    {
+        return width == 0;
+    }
+
+    /**
+     * @return {@link #header}
+     */
+    public String getHeader()
+    {
+        return header;
+    }
+
+    /**
+     * @return {@link #width}
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * @return {@link #maxWidth}
+     */
+    public int getMaxWidth()
+    {
+        return maxWidth;
+    }
+
+    /**
+     * @return {@link #alignment}
+     */
+    public Alignment getAlignment()
+    {
+        return alignment;
+    }
+
+    /**
+     * @return {@link #truncation}
+     */
+    public Truncation getTruncation()
+    {
+        return truncation;
+    }
+}
@@ -0,0 +1,349 @@
+package de.jakobniklas.javalib.util.subclasses.format;
+
+import de.jakobniklas.javalib.util.FormatUtil;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders rows as a table of padded columns to an {@link Appendable}, e.g. a {@link java.io.Writer} or a {@link
+ * StringBuilder}. Every row is padded into a reused line and appended as soon as the widths of the columns are known,
+ * so the table is never held in memory as a whole
+ * <p>
+ * If every column has a fixed width, rows are appended right away. If any column computes its width, the first {@link
+ * #sampleSize} rows are kept until the widths are computed from them and the headers, later rows are cut or overflow
+ * according to their column
+ *
+ * <pre>{@code
+ * TableRenderer table = new TableRenderer(writer, new TableColumn("Name"), new TableColumn("Size", 10, Alignment.RIGHT, Truncation.OVERFLOW));
+ * table.row("a.txt", 120);
+ * table.row("b.txt", 4096);
+ * table.finish();
+ * }</pre>
+ *
+ * @author Jakob-Niklas See
+ * @see #TableRenderer(Appendable, TableColumn...)
+ * @see #TableRenderer(Appendable, List)
+ * @see #row(Object...)
+ * @see #finish()
+ * @see TableColumn
+ */
+public class TableRenderer
+{
+    /**
+     * The default amount of rows the widths are computed from
+     */
+    private static final int DEFAULT_SAMPLE_SIZE = 100;
+
+    /**
+     * The destination of the lines
+     */
+    private final Appendable output;
+
+    /**
+     * The columns of the table
+     */
+    private final TableColumn[] columns;
+
+    /**
+     * The width of every column, once known
+     */
+    private final int[] widths;
+
+    /**
+     * The line every row is padded into
+     */
+    private final StringBuilder line = new StringBuilder(256);
+
+    /**
+     * The rows kept until the widths are known
+     */
+    private final List<String[]> sample = new ArrayList<>();
+
+    /**
+     * If any column computes its width from the sampled rows
+     */
+    private final boolean autoWidth;
+
+    /**
+     * The text between two columns
+     */
+    private String separator = " ";
+
+    /**
+     * The amount of rows the widths are computed from
+     */
+    private int sampleSize = DEFAULT_SAMPLE_SIZE;
+
+    /**
+     * If the widths are known and rows are appended directly
+     */
+    private boolean streaming;
+
+    /**
+     * Creates a new renderer
+     *
+     * @param output  {@link #output}
+     * @param columns {@link #columns}
+     */
+    public TableRenderer(Appendable output, TableColumn... columns)
+    {
+        if(columns.length == 0)
+        {
+            throw new IllegalArgumentException("A table needs at least one column");
+        }
+
+        this.output = output;
+        this.columns = columns.clone();
+
+        widths = new int[columns.length];
+
+        boolean auto = false;
+
+        for(TableColumn column : columns)
+        {
+            auto |= column.isAutoWidth();
+        }
+
+        autoWidth = auto;
+    }
+
+    /**
+     * Creates a new renderer
+     *
+     * @param output  {@link #output}
+     * @param columns {@link #columns}
+     */
+    public TableRenderer(Appendable output, List<TableColumn> columns)
+    {
+        this(output, columns.toArray(new TableColumn[0]));
+    }
+
+    /**
+     * Renders a row. Missing cells are empty, {@code null} cells as well, additional cells are ignored
+     *
+     * @param cells The cells of the row, converted with {@link String#valueOf(Object)}
+     *
+     * @throws IOException If the output could not be written
+     */
+    public void row(Object... cells) throws IOException
+    {
+        if(!streaming && !autoWidth)
+        {
+            start();
+        }
+
+        if(streaming)
+        {
+            render(cells);
+
+            return;
+        }
+
+        String[] row = new String[Math.min(cells.length, columns.length)];
+
+        for(int i = 0; i < row.length; i++)
+        {
+            row[i] = cells[i] == null ? "" : String.valueOf(cells[i]);
+        }
+
+        sample.add(row);
+
+        if(sample.size() >= sampleSize)
+        {
+            start();
+        }
+    }
+
+    /**
+     * Renders the kept rows if the widths were not computed yet and flushes the output if it is {@link Flushable}. The
+     * output is not closed
+     *
+     * @throws IOException If the output could not be written
+     */
+    public void finish() throws IOException
+    {
+        if(!streaming)
+        {
+            start();
+        }
+
+        if(output instanceof Flushable)
+        {
+            ((Flushable) output).flush();
+        }
+    }
+
+    /**
+     * Computes the widths from the kept rows, renders the headers and the kept rows and switches to streaming
+     *
+     * @throws IOException If the output could not be written
+     */
+    private void start() throws IOException
+    {
+        boolean headers = false;
+
+        for(int i = 0; i < columns.length; i++)
+        {
+            TableColumn column = columns[i];
+            headers |= column.getHeader() != null;
+
+            if(!column.isAutoWidth())
+            {
+                widths[i] = column.getWidth();
+
+                continue;
+            }
+
+            int width = column.getHeader() == null ? 1 : Math.max(column.getHeader().length(), 1);
+
+            for(String[] row : sample)
+            {
+                if(i < row.length)
+                {
+                    width = Math.max(width, row[i].length());
+                }
+            }
+
+            widths[i] = Math.min(width, column.getMaxWidth());
+        }
+
+        streaming = true;
+
+        if(headers)
+        {
+            Object[] header = new Object[columns.length];
+            int length = separator.length() * (columns.length - 1);
+
+            for(int i = 0; i < columns.length; i++)
+            {
+                header[i] = columns[i].getHeader();
+                length += widths[i];
+            }
+
+            render(header);
+
+            FormatUtil.fill(line, '-', length);
+            line.append(System.lineSeparator());
+            output.append(line);
+            line.setLength(0);
+        }
+
+        for(String[] row : sample)
+        {
+            render(row);
+        }
+
+        sample.clear();
+    }
+
+    /**
+     * Pads a row into the {@link #line} and appends it
+     *
+     * @param cells The cells of the row
+     *
+     * @throws IOException If the output could not be written
+     */
+    private void render(Object[] cells) throws IOException
+    {
+        for(int i = 0; i < columns.length; i++)
+        {
+            if(i > 0)
+            {
+                line.append(separator);
+            }
+
+            Object cell = i < cells.length ? cells[i] : null;
+            CharSequence text = cell == null ? "" : cell instanceof CharSequence ? (CharSequence) cell : String.valueOf(cell);
+
+            appendCell(text, columns[i], widths[i]);
+        }
+
+        line.append(System.lineSeparator());
+        output.append(line);
+        line.setLength(0);
+    }
+
+    /**
+     * Pads a cell into the {@link #line}
+     *
+     * @param text   The text of the cell
+     * @param column The column of the cell
+     * @param width  The width of the column
+     */
+    private void appendCell(CharSequence text, TableColumn column, int width)
+    {
+        if(text.length() > width)
+        {
+            if(column.getTruncation() == Truncation.OVERFLOW)
+            {
+                line.append(text);
+            }
+            else if(column.getTruncation() == Truncation.ELLIPSIS && width > 3)
+            {
+                line.append(text, 0, width - 3).append("...");
+            }
+            else
+            {
+                line.append(text, 0, width);
+            }
+
+            return;
+        }
+
+        switch(column.getAlignment())
+        {
+            case RIGHT:
+                FormatUtil.padLeft(line, text, width);
+                break;
+            case CENTER:
+                int padding = width - text.length();
+
+                FormatUtil.fill(line, ' ', padding / 2);
+                line.append(text);
+                FormatUtil.fill(line, ' ', padding - padding / 2);
+                break;
+            default:
+                FormatUtil.padRight(line, text, width);
+        }
+    }
+
+    /**
+     * @return {@link #separator}
+     */
+    public String getSeparator()
+    {
+        return separator;
+    }
+
+    /**
+     * @param separator {@link #separator}
+     */
+    public void setSeparator(String separator)
+    {
+        this.separator = separator;
+    }
+
+    /**
+     * @return {@link #sampleSize}
+     */
+    public int getSampleSize()
+    {
+        return sampleSize;
+    }
+
+    /**
+     * @param sampleSize {@link #sampleSize}, has no effect once rows are streamed
+     */
+    public void setSampleSize(int sampleSize)
+    {
+        if(sampleSize < 1)
+        {
+            throw new IllegalArgumentException("sampleSize must be positive: " + sampleSize);
+        }
+
+        this.sampleSize = sampleSize;
+    }
+}
@@ -0,0 +1,25 @@
+package de.jakobniklas.javalib.util.subclasses.format;
+
+/**
+ * What happens to cells longer than the width of their {@link TableColumn}
+ *
+ * @author Jakob-Niklas See
+ * @see TableRenderer
+ */
+public enum Truncation
+{
+    /**
+     * The cell is cut at the width
+     */
+    CUT,
+
+    /**
+     * The cell is cut and ends with {@code "..."} to show that it was, if the width is larger than 3
+     */
+    ELLIPSIS,
+
+    /**
+     * The cell is not cut and moves the following cells of its row to the right
+     */
+    OVERFLOW
+}
@@ -0,0 +1,491 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import de.jakobniklas.javalib.exception.Exceptions;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Class moving the formatting and writing of log statements off the calling thread. Callers only capture a statement
+ * into a preallocated ring buffer of {@link LogRecord} slots, a background consumer drains the buffer in batches and
+ * passes every statement to a {@link LogRecordHandler}
+ *
+ * @author Jakob-Niklas See
+ * @see #AsyncLogDispatcher(int, BackpressurePolicy, LogRecordHandler)
+ * @see #AsyncLogDispatcher(String, int, BackpressurePolicy, LogRecordHandler)
+ * @see #publish(LogRecord)
+ * @see #flush()
+ * @see #close()
+ * @see BackpressurePolicy
+ */
+public class AsyncLogDispatcher
+{
+    /**
+     * The maximum amount of statements the consumer takes out of the ring buffer at once
+     */
+    private static final int MAX_BATCH_SIZE = 512;
+
+    /**
+     * The preallocated slots of the ring buffer
+     */
+    private final LogRecord[] ring;
+
+    /**
+     * Preallocated slots owned by the consumer. Drained slots are swapped with these, so the consumer can work on a
+     * batch without holding the lock and without allocating
+     */
+    private final LogRecord[] batch;
+
+    /**
+     * Guards {@link #ring}, {@link #head}, {@link #size}, {@link #published}, {@link #processed}, {@link #dropped} and
+     * {@link #highWaterMark}
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled when a statement was published
+     */
+    private final Condition notEmpty = lock.newCondition();
+
+    /**
+     * Signalled when the consumer made room in the ring buffer
+     */
+    private final Condition notFull = lock.newCondition();
+
+    /**
+     * Signalled when the consumer finished a batch
+     */
+    private final Condition drained = lock.newCondition();
+
+    /**
+     * The handler called for every statement on the consumer thread
+     */
+    private final LogRecordHandler handler;
+
+    /**
+     * The consumer thread
+     */
+    private final Thread consumer;
+
+    /**
+     * The policy applied if the ring buffer is full
+     */
+    private volatile BackpressurePolicy policy;
+
+    /**
+     * If the consumer should keep waiting for new statements
+     */
+    private volatile boolean running = true;
+
+    /**
+     * If the consumer is reporting a failure of the {@link #handler}, only accessed by the consumer
+     */
+    private boolean reporting;
+
+    /**
+     * Index of the oldest statement in the ring buffer
+     */
+    private int head;
+
+    /**
+     * Amount of statements in the ring buffer
+     */
+    private int size;
+
+    /**
+     * Amount of statements accepted by {@link #publish(LogRecord)}
+     */
+    private long published;
+
+    /**
+     * Amount of statements handled by the consumer or discarded by {@link BackpressurePolicy#DROP_OLDEST}
+     */
+    private long processed;
+
+    /**
+     * Amount of statements discarded because of the {@link #policy}
+     */
+    private long dropped;
+
+    /**
+     * The highest amount of statements which waited in the ring buffer at once
+     */
+    private int highWaterMark;
+
+    /**
+     * Creates a new dispatcher and starts its consumer thread
+     *
+     * @param capacity The amount of preallocated slots in the ring buffer
+     * @param policy   The policy applied if the ring buffer is full
+     * @param handler  The handler called for every statement on the consumer thread (can be a lambda expression)
+     */
+    public AsyncLogDispatcher(int capacity, BackpressurePolicy policy, LogRecordHandler handler)
+    {
+        this("Log-AsyncDispatcher", capacity, policy, handler);
+    }
+
+    /**
+     * Creates a new dispatcher and starts its consumer thread with a given name
+     *
+     * @param name     The name of the consumer thread
+     * @param capacity The amount of preallocated slots in the ring buffer
+     * @param policy   The policy applied if the ring buffer is full
+     * @param handler  The handler called for every statement on the consumer thread (can be a lambda expression)
+     */
+    public AsyncLogDispatcher(String name, int capacity, BackpressurePolicy policy, LogRecordHandler handler)
+    {
+        if(capacity < 1)
+        {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+
+        this.policy = policy;
+        this.handler = handler;
+
+        ring = new LogRecord[capacity];
+        batch = new LogRecord[Math.min(capacity, MAX_BATCH_SIZE)];
+
+        for(int i = 0; i < ring.length; i++)
+        {
+            ring[i] = new LogRecord();
+        }
+
+        for(int i = 0; i < batch.length; i++)
+        {
+            batch[i] = new LogRecord();
+        }
+
+        consumer = new Thread(this::consume, name);
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    /**
+     * Copies a log statement into a preallocated slot of the ring buffer, applying the {@link #policy} if it is full.
+     * Statements published from the consumer thread itself (e.g. by a {@link LevelImplementation} which logs) are
+     * handled directly, as waiting for the consumer would never return, failures of the {@link #handler} are reported
+     * like on the consumer. Statements published after {@link #close()} are counted as dropped
+     *
+     * @param record The captured statement, which can be reused by the caller after this call
+     *
+     * @return If the statement was accepted
+     */
+    public boolean publish(LogRecord record)
+    {
+        if(Thread.currentThread() == consumer)
+        {
+            try
+            {
+                handler.handle(record);
+            }
+            catch(Throwable t)
+            {
+                report(t);
+            }
+
+            return true;
+        }
+
+        lock.lock();
+
+        try
+        {
+            if(!running)
+            {
+                dropped++;
+
+                return false;
+            }
+
+            while(size == ring.length)
+            {
+                if(!running || policy == BackpressurePolicy.DROP)
+                {
+                    dropped++;
+
+                    return false;
+                }
+                else if(policy == BackpressurePolicy.DROP_OLDEST)
+                {
+                    ring[head].clear();
+                    head = (head + 1) % ring.length;
+                    size--;
+                    processed++;
+                    dropped++;
+                }
+                else
+                {
+                    notFull.awaitUninterruptibly();
+                }
+            }
+
+            ring[(head + size) % ring.length].copyFrom(record);
+            size++;
+            published++;
+
+            if(size > highWaterMark)
+            {
+                highWaterMark = size;
+            }
+
+            notEmpty.signal();
+
+            return true;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until every statement published before this call has been handled by the consumer
+     */
+    public void flush()
+    {
+        if(Thread.currentThread() == consumer)
+        {
+            return;
+        }
+
+        lock.lock();
+
+        try
+        {
+            long target = published;
+
+            while(processed < target && consumer.isAlive())
+            {
+                drained.awaitUninterruptibly();
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Handles every remaining statement and stops the consumer thread. Statements published afterwards are dropped and
+     * counted in {@link #dropped}
+     */
+    public void close()
+    {
+        lock.lock();
+
+        try
+        {
+            running = false;
+            notEmpty.signal();
+            notFull.signalAll();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+
+        if(Thread.currentThread() != consumer)
+        {
+            try
+            {
+                consumer.join(TimeUnit.SECONDS.toMillis(10));
+            }
+            catch(InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Loop of the consumer thread, swapping batches out of the ring buffer and handling them without holding the lock
+     */
+    private void consume()
+    {
+        while(true)
+        {
+            int count;
+
+            lock.lock();
+
+            try
+            {
+                while(size == 0 && running)
+                {
+                    notEmpty.awaitUninterruptibly();
+                }
+
+                if(size == 0)
+                {
+                    drained.signalAll();
+
+                    return;
+                }
+
+                count = Math.min(size, batch.length);
+
+                for(int i = 0; i < count; i++)
+                {
+                    int index = (head + i) % ring.length;
+                    LogRecord record = ring[index];
+                    ring[index] = batch[i];
+                    batch[i] = record;
+                }
+
+                head = (head + count) % ring.length;
+                size -= count;
+
+                notFull.signalAll();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+
+            for(int i = 0; i < count; i++)
+            {
+                try
+                {
+                    handler.handle(batch[i]);
+                }
+                catch(Throwable t)
+                {
+                    report(t);
+                }
+                finally
+                {
+                    batch[i].clear();
+                }
+            }
+
+            try
+            {
+                handler.endOfBatch();
+            }
+            catch(Throwable t)
+            {
+                report(t);
+            }
+
+            lock.lock();
+
+            try
+            {
+                processed += count;
+                drained.signalAll();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Reports a failure of the {@link #handler} without stopping the consumer, as publishers waiting for free space
+     * would otherwise wait forever. Reporting logs an error, which is handled directly on the consumer, so a failure
+     * while reporting, e.g. of a handler which fails for errors as well, is only printed to {@link System#err}
+     *
+     * @param t The failure, errors are wrapped to be handled like exceptions
+     */
+    private void report(Throwable t)
+    {
+        if(reporting)
+        {
+            t.printStackTrace();
+
+            return;
+        }
+
+        reporting = true;
+
+        try
+        {
+            Exceptions.handle(t instanceof Exception ? (Exception) t : new RuntimeException(t));
+        }
+        catch(Throwable nested)
+        {
+            nested.printStackTrace();
+        }
+        finally
+        {
+            reporting = false;
+        }
+    }
+
+    /**
+     * @return The amount of statements waiting in the ring buffer
+     */
+    public int getSize()
+    {
+        lock.lock();
+
+        try
+        {
+            return size;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The amount of preallocated slots in the ring buffer
+     */
+    public int getCapacity()
+    {
+        return ring.length;
+    }
+
+    /**
+     * @return {@link #dropped}
+     */
+    public long getDropped()
+    {
+        lock.lock();
+
+        try
+        {
+            return dropped;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return {@link #highWaterMark}
+     */
+    public int getHighWaterMark()
+    {
+        lock.lock();
+
+        try
+        {
+            return highWaterMark;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return {@link #policy}
+     */
+    public BackpressurePolicy getPolicy()
+    {
+        return policy;
+    }
+
+    /**
+     * @param policy {@link #policy}
+     */
+    public void setPolicy(BackpressurePolicy policy)
+    {
+        this.policy = policy;
+    }
+}
@@ -0,0 +1,27 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+/**
+ * Defines what happens to a log statement if the ring buffer of an {@link AsyncLogDispatcher} is full
+ *
+ * @author Jakob-Niklas See
+ * @see #BLOCK
+ * @see #DROP
+ * @see #DROP_OLDEST
+ */
+public enum BackpressurePolicy
+{
+    /**
+     * The calling thread waits until the consumer made room in the ring buffer
+     */
+    BLOCK,
+
+    /**
+     * The new log statement is discarded
+     */
+    DROP,
+
+    /**
+     * The oldest log statement which was not consumed yet is discarded to make room for the new one
+     */
+    DROP_OLDEST
+}
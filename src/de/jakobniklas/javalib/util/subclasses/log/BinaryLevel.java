@@ -0,0 +1,759 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import de.jakobniklas.javalib.exception.Exceptions;
+import de.jakobniklas.javalib.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link LevelImplementation} writing records in a compact binary form instead of formatted text, to be rendered
+ * later by a {@link BinaryLogDecoder}. Strings which repeat between records (prefixes, level names, class, method,
+ * file and thread names, message templates and keys of custom sections) are written once as a definition and referred
+ * to by a dictionary id afterwards. Timestamps are written as the varint difference to the previous record and message
+ * arguments as typed values, so nothing gets formatted while logging.
+ * <p>
+ * The stream starts with {@link #MAGIC} and the {@link #VERSION}, followed by entries which start with a tag byte:
+ * <ul>
+ * <li> {@link #TAG_DEFINE} - varint id, string
+ * <li> {@link #TAG_RESET} - every dictionary id is released and the next timestamp is written relative to 0
+ * <li> {@link #TAG_RECORD} - zigzag varint timestamp delta, level id, flags, prefix id, varint logPointer, thread id,
+ * varint threadId, [class id, method id, varint line, file id], message, [varint count, (key id, string)...]
+ * <li> {@link #TAG_LINE} - zigzag varint timestamp delta, string, written by {@link #log(String)}
+ * </ul>
+ * A message is either a string or, with {@link #FLAG_TEMPLATE}, the style ordinal, template id, varint argument count
+ * and typed arguments, plus the amount of suppressed statements with {@link #FLAG_SUPPRESSED}. Strings are a varint
+ * length of their UTF-8 bytes followed by the bytes, ids are varints where 0 stands for {@code null}. Level names are
+ * written instead of {@link LogLevel#getOrdinal()}, as ordinals depend on the order in which a process registered its
+ * levels
+ * <p>
+ * Once a record is in the dictionary, encoding it does not allocate
+ *
+ * @author Jakob-Niklas See
+ * @see #BinaryLevel(File)
+ * @see #log(LogRecord)
+ * @see #flush()
+ * @see #close()
+ * @see BinaryLogDecoder
+ */
+public class BinaryLevel implements LevelImplementation
+{
+    /**
+     * The bytes every binary log starts with
+     */
+    static final byte[] MAGIC = {'J', 'L', 'O', 'G'};
+
+    /**
+     * The version of the format, written after the {@link #MAGIC}
+     */
+    static final byte VERSION = 1;
+
+    /**
+     * Tag of a dictionary definition
+     */
+    static final int TAG_DEFINE = 1;
+
+    /**
+     * Tag of a dictionary reset
+     */
+    static final int TAG_RESET = 2;
+
+    /**
+     * Tag of a record
+     */
+    static final int TAG_RECORD = 3;
+
+    /**
+     * Tag of a preformatted line
+     */
+    static final int TAG_LINE = 4;
+
+    /**
+     * Flag of records with caller sections
+     */
+    static final int FLAG_CALLER = 1;
+
+    /**
+     * Flag of records whose message is a template with arguments
+     */
+    static final int FLAG_TEMPLATE = 2;
+
+    /**
+     * Flag of records with custom sections
+     */
+    static final int FLAG_CUSTOM = 4;
+
+    /**
+     * Flag of records with a template message and suppressed statements, followed by the varint amount after the
+     * arguments. Other messages contain the amount already
+     */
+    static final int FLAG_SUPPRESSED = 8;
+
+    /**
+     * Type of a {@code null} argument
+     */
+    static final int TYPE_NULL = 0;
+
+    /**
+     * Type of a {@link Byte} argument, written as zigzag varint
+     */
+    static final int TYPE_BYTE = 1;
+
+    /**
+     * Type of a {@link Short} argument, written as zigzag varint
+     */
+    static final int TYPE_SHORT = 2;
+
+    /**
+     * Type of an {@link Integer} argument, written as zigzag varint
+     */
+    static final int TYPE_INT = 3;
+
+    /**
+     * Type of a {@link Long} argument, written as zigzag varint
+     */
+    static final int TYPE_LONG = 4;
+
+    /**
+     * Type of a {@link Float} argument, written as 4 bytes
+     */
+    static final int TYPE_FLOAT = 5;
+
+    /**
+     * Type of a {@link Double} argument, written as 8 bytes
+     */
+    static final int TYPE_DOUBLE = 6;
+
+    /**
+     * Type of a {@code true} argument
+     */
+    static final int TYPE_TRUE = 7;
+
+    /**
+     * Type of a {@code false} argument
+     */
+    static final int TYPE_FALSE = 8;
+
+    /**
+     * Type of a {@link Character} argument, written as varint
+     */
+    static final int TYPE_CHAR = 9;
+
+    /**
+     * Type of a {@link CharSequence} argument, written as string
+     */
+    static final int TYPE_STRING = 10;
+
+    /**
+     * Type of any other argument, written as string of {@link String#valueOf(Object)}. No longer written, as the
+     * template would not format the string like the argument, records with such arguments are written rendered.
+     * Still read from files written before
+     */
+    static final int TYPE_OTHER = 11;
+
+    /**
+     * The maximum amount of strings in the {@link #dictionary} before it is reset
+     */
+    private static final int MAX_DICTIONARY = 1 << 16;
+
+    /**
+     * The default capacity of the {@link #buffer}
+     */
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The file written to
+     */
+    private final File file;
+
+    /**
+     * The buffer entries are encoded into
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The ids of the strings defined so far
+     */
+    private final Map<String, Integer> dictionary = new HashMap<>();
+
+    /**
+     * The reused builder messages without a template are appended to before encoding
+     */
+    private final StringBuilder message = new StringBuilder(256);
+
+    /**
+     * The reused ids of the keys of custom sections of a record
+     */
+    private int[] customKeyIds = new int[4];
+
+    /**
+     * The channel of the {@link #file}, {@code null} once closed
+     */
+    private FileChannel channel;
+
+    /**
+     * The timestamp of the previous entry, which the next timestamp is written relative to
+     */
+    private long lastTimestamp;
+
+    /**
+     * The amount of bytes written to the channel, used to count the bytes of every record
+     */
+    private long written;
+
+    /**
+     * Set while an exception is handled, as handling it logs, which could end up in this implementation again
+     */
+    private boolean handlingError;
+
+    /**
+     * Creates a new implementation appending to a binary log file, which is started with a header if it is empty
+     *
+     * @param file {@link #file}
+     */
+    public BinaryLevel(File file)
+    {
+        this(file, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a new implementation appending to a binary log file, which is started with a header if it is empty
+     *
+     * @param file       {@link #file}
+     * @param bufferSize The capacity of the {@link #buffer}
+     */
+    public BinaryLevel(File file, int bufferSize)
+    {
+        this.file = file;
+
+        buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, 128));
+
+        try
+        {
+            File parent = file.getAbsoluteFile().getParentFile();
+
+            if(parent != null && !parent.exists())
+            {
+                Files.createDirectories(parent.toPath());
+            }
+
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+            if(channel.size() == 0)
+            {
+                buffer.put(MAGIC);
+                buffer.put(VERSION);
+            }
+            else
+            {
+                // The dictionary of a previous process is unknown, so the ids start over
+                buffer.put((byte) TAG_RESET);
+            }
+        }
+        catch(IOException e)
+        {
+            handle(e);
+            channel = null;
+        }
+    }
+
+    /**
+     * Writes a preformatted line, which is decoded as is
+     *
+     * @param string The input to be logged
+     */
+    @Override
+    public synchronized void log(String string)
+    {
+        if(channel == null)
+        {
+            return;
+        }
+
+        try
+        {
+            long timestamp = System.currentTimeMillis();
+
+            ensure(11);
+            buffer.put((byte) TAG_LINE);
+            putVarLong(zigzag(timestamp - lastTimestamp));
+            putString(string);
+
+            lastTimestamp = timestamp;
+        }
+        catch(IOException e)
+        {
+            handle(e);
+        }
+    }
+
+    /**
+     * Writes a record, defining every string of it which is not in the dictionary yet. The encoded bytes are counted in
+     * the {@link Log#getMetrics() metrics}
+     *
+     * @param record The statement to be logged
+     */
+    @Override
+    public synchronized void log(LogRecord record)
+    {
+        if(channel == null)
+        {
+            return;
+        }
+
+        long before = written + buffer.position();
+
+        try
+        {
+            int customCount = record.getCustomCount();
+
+            if(dictionary.size() + 7 + customCount > MAX_DICTIONARY)
+            {
+                ensure(1);
+                buffer.put((byte) TAG_RESET);
+                dictionary.clear();
+                lastTimestamp = 0;
+            }
+
+            boolean caller = record.hasCaller();
+            boolean template = record.hasMessageArgs() && isTyped(record.getMessageArgs());
+
+            int levelId = intern(record.getLevel() == null ? null : record.getLevel().getLevel());
+            int prefixId = intern(record.getPrefix());
+            int threadId = intern(record.getThreadName());
+            int classId = caller ? intern(record.getClassName()) : 0;
+            int methodId = caller ? intern(record.getMethodName()) : 0;
+            int fileId = caller ? intern(record.getFileName()) : 0;
+            int templateId = template ? intern(record.getMessageTemplate()) : 0;
+
+            if(customKeyIds.length < customCount)
+            {
+                customKeyIds = new int[Math.max(customCount, customKeyIds.length * 2)];
+            }
+
+            for(int i = 0; i < customCount; i++)
+            {
+                customKeyIds[i] = intern(record.getCustomKey(i));
+            }
+
+            boolean suppressed = template && record.getSuppressed() > 0;
+            int flags = (caller ? FLAG_CALLER : 0) | (template ? FLAG_TEMPLATE : 0) | (customCount > 0 ? FLAG_CUSTOM : 0) | (suppressed ? FLAG_SUPPRESSED : 0);
+
+            ensure(1 + 10 + 5 + 1 + 5 + 3 + 5 + 10 + 5 + 5 + 5 + 5);
+            buffer.put((byte) TAG_RECORD);
+            putVarLong(zigzag(record.getTimestamp() - lastTimestamp));
+            putVarInt(levelId);
+            buffer.put((byte) flags);
+            putVarInt(prefixId);
+            putVarInt(record.getLogPointer());
+            putVarInt(threadId);
+            putVarLong(record.getThreadId());
+
+            if(caller)
+            {
+                putVarInt(classId);
+                putVarInt(methodId);
+                putVarInt(record.getLine());
+                putVarInt(fileId);
+            }
+
+            if(template)
+            {
+                Object[] args = record.getMessageArgs();
+
+                ensure(15);
+                buffer.put((byte) record.getMessageStyle().ordinal());
+                putVarInt(templateId);
+                putVarInt(args.length);
+
+                for(Object arg : args)
+                {
+                    putArgument(arg);
+                }
+
+                if(suppressed)
+                {
+                    ensure(10);
+                    putVarLong(record.getSuppressed());
+                }
+            }
+            else
+            {
+                message.setLength(0);
+                record.appendMessage(message);
+                putString(message);
+            }
+
+            if(customCount > 0)
+            {
+                ensure(5);
+                putVarInt(customCount);
+
+                for(int i = 0; i < customCount; i++)
+                {
+                    ensure(5);
+                    putVarInt(customKeyIds[i]);
+                    putString(record.getCustomValue(i));
+                }
+            }
+
+            lastTimestamp = record.getTimestamp();
+
+            Log.getMetrics().recordBytes(this, written + buffer.position() - before);
+        }
+        catch(IOException e)
+        {
+            handle(e);
+        }
+    }
+
+    /**
+     * Writes the buffered entries to the file
+     */
+    @Override
+    public synchronized void flush()
+    {
+        if(channel == null)
+        {
+            return;
+        }
+
+        try
+        {
+            writeBuffer();
+        }
+        catch(IOException e)
+        {
+            handle(e);
+        }
+    }
+
+    /**
+     * Writes the buffered entries and closes the file
+     */
+    public synchronized void close()
+    {
+        if(channel == null)
+        {
+            return;
+        }
+
+        try
+        {
+            writeBuffer();
+            channel.close();
+        }
+        catch(IOException e)
+        {
+            handle(e);
+        }
+        finally
+        {
+            channel = null;
+        }
+    }
+
+    /**
+     * Looks up the dictionary id of a string, defining it first if it is new
+     *
+     * @param string The string
+     *
+     * @return The id, 0 for {@code null}
+     *
+     * @throws IOException If the buffer could not be drained
+     */
+    private int intern(String string) throws IOException
+    {
+        if(string == null)
+        {
+            return 0;
+        }
+
+        Integer id = dictionary.get(string);
+
+        if(id == null)
+        {
+            id = dictionary.size() + 1;
+            dictionary.put(string, id);
+
+            ensure(6);
+            buffer.put((byte) TAG_DEFINE);
+            putVarInt(id);
+            putString(string);
+        }
+
+        return id;
+    }
+
+    /**
+     * @param args The arguments of a message
+     *
+     * @return If every argument is written with its type and is decoded as the same value, e.g. a {@link
+     * java.math.BigDecimal}, a date or an array are not, so the message has to be written rendered
+     */
+    private static boolean isTyped(Object[] args)
+    {
+        for(Object arg : args)
+        {
+            if(arg != null && !(arg instanceof Integer || arg instanceof Long || arg instanceof Double || arg instanceof CharSequence || arg instanceof Boolean || arg instanceof Character || arg instanceof Float || arg instanceof Short || arg instanceof Byte))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes a typed argument of a message
+     *
+     * @param arg The argument
+     *
+     * @throws IOException If the buffer could not be drained
+     */
+    private void putArgument(Object arg) throws IOException
+    {
+        ensure(11);
+
+        if(arg == null)
+        {
+            buffer.put((byte) TYPE_NULL);
+        }
+        else if(arg instanceof Integer)
+        {
+            buffer.put((byte) TYPE_INT);
+            putVarLong(zigzag((Integer) arg));
+        }
+        else if(arg instanceof Long)
+        {
+            buffer.put((byte) TYPE_LONG);
+            putVarLong(zigzag((Long) arg));
+        }
+        else if(arg instanceof Double)
+        {
+            buffer.put((byte) TYPE_DOUBLE);
+            buffer.putDouble((Double) arg);
+        }
+        else if(arg instanceof CharSequence)
+        {
+            buffer.put((byte) TYPE_STRING);
+            putString((CharSequence) arg);
+        }
+        else if(arg instanceof Boolean)
+        {
+            buffer.put((byte) ((Boolean) arg ? TYPE_TRUE : TYPE_FALSE));
+        }
+        else if(arg instanceof Character)
+        {
+            buffer.put((byte) TYPE_CHAR);
+            putVarInt((Character) arg);
+        }
+        else if(arg instanceof Float)
+        {
+            buffer.put((byte) TYPE_FLOAT);
+            buffer.putFloat((Float) arg);
+        }
+        else if(arg instanceof Short)
+        {
+            buffer.put((byte) TYPE_SHORT);
+            putVarLong(zigzag((Short) arg));
+        }
+        else if(arg instanceof Byte)
+        {
+            buffer.put((byte) TYPE_BYTE);
+            putVarLong(zigzag((Byte) arg));
+        }
+        else
+        {
+            buffer.put((byte) TYPE_OTHER);
+            putString(String.valueOf(arg));
+        }
+    }
+
+    /**
+     * Writes a string as the varint length of its UTF-8 bytes followed by the bytes. Unpaired surrogates are written
+     * as {@code '?'}
+     *
+     * @param text The string, {@code null} is written as {@code "null"}
+     *
+     * @throws IOException If the buffer could not be drained
+     */
+    private void putString(CharSequence text) throws IOException
+    {
+        if(text == null)
+        {
+            text = "null";
+        }
+
+        int length = text.length();
+        int bytes = LineEncoder.utf8Length(text);
+
+        ensure(5);
+        putVarInt(bytes);
+
+        boolean fits = bytes <= buffer.capacity();
+
+        if(fits)
+        {
+            ensure(bytes);
+        }
+
+        for(int i = 0; i < length; i++)
+        {
+            char c = text.charAt(i);
+
+            if(!fits && buffer.remaining() < 4)
+            {
+                writeBuffer();
+            }
+
+            if(c < 0x80)
+            {
+                buffer.put((byte) c);
+            }
+            else if(c < 0x800)
+            {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+            else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1)))
+            {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            }
+            else if(Character.isSurrogate(c))
+            {
+                buffer.put((byte) '?');
+            }
+            else
+            {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    /**
+     * Writes an unsigned varint, 7 bits per byte starting with the lowest bits
+     *
+     * @param value The value, treated as unsigned
+     */
+    private void putVarInt(int value)
+    {
+        while((value & ~0x7F) != 0)
+        {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Writes an unsigned varint, 7 bits per byte starting with the lowest bits
+     *
+     * @param value The value, treated as unsigned
+     */
+    private void putVarLong(long value)
+    {
+        while((value & ~0x7FL) != 0)
+        {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        buffer.put((byte) value);
+    }
+
+    /**
+     * @param value A signed value
+     *
+     * @return The value mapped to an unsigned one which is small if the absolute value is small
+     */
+    static long zigzag(long value)
+    {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * Drains the buffer if less than a given amount of bytes is remaining
+     *
+     * @param bytes The amount of bytes about to be written
+     *
+     * @throws IOException If the buffer could not be drained
+     */
+    private void ensure(int bytes) throws IOException
+    {
+        if(buffer.remaining() < bytes)
+        {
+            writeBuffer();
+        }
+    }
+
+    /**
+     * Writes the content of the buffer to the channel
+     *
+     * @throws IOException If writing failed
+     */
+    private void writeBuffer() throws IOException
+    {
+        buffer.flip();
+
+        while(buffer.hasRemaining())
+        {
+            written += channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+
+    /**
+     * Handles an exception unless one is handled already, as handling it logs
+     *
+     * @param e The exception
+     */
+    private void handle(IOException e)
+    {
+        if(!handlingError)
+        {
+            handlingError = true;
+
+            try
+            {
+                Exceptions.handle(e);
+            }
+            finally
+            {
+                handlingError = false;
+            }
+        }
+    }
+
+    /**
+     * @return The path of the {@link #file}
+     */
+    @Override
+    public String getName()
+    {
+        return file.getPath();
+    }
+
+    /**
+     * @return {@link #file}
+     */
+    public File getFile()
+    {
+        return file;
+    }
+}
@@ -0,0 +1,415 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import de.jakobniklas.javalib.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a log written by a {@link BinaryLevel} back into {@link LogRecord}s, which can be rendered through the
+ * configured patterns of {@link Log}
+ *
+ * <pre>{@code
+ * try(BinaryLogDecoder decoder = new BinaryLogDecoder(new File("app.blog")))
+ * {
+ *     decoder.renderTo(System.out);
+ * }
+ * }</pre>
+ *
+ * @author Jakob-Niklas See
+ * @see #BinaryLogDecoder(File)
+ * @see #BinaryLogDecoder(InputStream)
+ * @see #next(LogRecord)
+ * @see #renderTo(Appendable)
+ * @see #renderTo(Appendable, LogFormatter)
+ * @see BinaryLevel
+ */
+public class BinaryLogDecoder implements Closeable
+{
+    /**
+     * The stream the log is read from
+     */
+    private final DataInputStream input;
+
+    /**
+     * The defined strings by their id, the index 0 stands for {@code null}
+     */
+    private final List<String> dictionary = new ArrayList<>();
+
+    /**
+     * The reused buffer strings are decoded from
+     */
+    private byte[] bytes = new byte[256];
+
+    /**
+     * The timestamp of the previous entry
+     */
+    private long lastTimestamp;
+
+    /**
+     * The text of the last entry written by {@link BinaryLevel#log(String)}, {@code null} if the last entry was a record
+     */
+    private String line;
+
+    /**
+     * Opens a binary log file
+     *
+     * @param file The file written by a {@link BinaryLevel}
+     *
+     * @throws IOException If the file could not be opened or does not start with the header of a binary log
+     */
+    public BinaryLogDecoder(File file) throws IOException
+    {
+        this(new FileInputStream(file));
+    }
+
+    /**
+     * Starts reading a binary log from a stream
+     *
+     * @param input The stream of a log written by a {@link BinaryLevel}
+     *
+     * @throws IOException If the stream does not start with the header of a binary log
+     */
+    public BinaryLogDecoder(InputStream input) throws IOException
+    {
+        this.input = new DataInputStream(new BufferedInputStream(input, 64 * 1024));
+
+        byte[] header = new byte[BinaryLevel.MAGIC.length + 1];
+        this.input.readFully(header);
+
+        if(!Arrays.equals(Arrays.copyOf(header, BinaryLevel.MAGIC.length), BinaryLevel.MAGIC) || header[header.length - 1] != BinaryLevel.VERSION)
+        {
+            throw new IOException("Not a binary log of version " + BinaryLevel.VERSION);
+        }
+
+        dictionary.add(null);
+    }
+
+    /**
+     * Reads the next entry into a record. Entries written by {@link BinaryLevel#log(String)} are not records, for these
+     * the record is left cleared and {@link #getLine()} returns their text
+     *
+     * @param record The record to be filled, which gets cleared first
+     *
+     * @return If an entry was read, {@code false} at the end of the log
+     *
+     * @throws IOException If the log could not be read or is corrupt
+     */
+    public boolean next(LogRecord record) throws IOException
+    {
+        record.clear();
+        line = null;
+
+        while(true)
+        {
+            int tag = input.read();
+
+            switch(tag)
+            {
+                case -1:
+                    return false;
+                case BinaryLevel.TAG_DEFINE:
+                    int id = readVarInt();
+
+                    if(id != dictionary.size())
+                    {
+                        throw new IOException("Unexpected dictionary id " + id);
+                    }
+
+                    dictionary.add(readString());
+                    break;
+                case BinaryLevel.TAG_RESET:
+                    dictionary.subList(1, dictionary.size()).clear();
+                    lastTimestamp = 0;
+                    break;
+                case BinaryLevel.TAG_LINE:
+                    lastTimestamp += unzigzag(readVarLong());
+                    line = readString();
+
+                    return true;
+                case BinaryLevel.TAG_RECORD:
+                    readRecord(record);
+
+                    return true;
+                default:
+                    throw new IOException("Unknown entry " + tag);
+            }
+        }
+    }
+
+    /**
+     * Reads the content of a {@link BinaryLevel#TAG_RECORD} entry
+     *
+     * @param record The record to be filled
+     *
+     * @throws IOException If the log could not be read or is corrupt
+     */
+    private void readRecord(LogRecord record) throws IOException
+    {
+        lastTimestamp += unzigzag(readVarLong());
+
+        String level = lookup(readVarInt());
+        int flags = input.readUnsignedByte();
+        String prefix = lookup(readVarInt());
+        char logPointer = (char) readVarInt();
+        String threadName = lookup(readVarInt());
+        long threadId = readVarLong();
+
+        record.restore(level == null ? null : new LogLevel(level), lastTimestamp, prefix, logPointer, threadName, threadId);
+
+        if((flags & BinaryLevel.FLAG_CALLER) != 0)
+        {
+            String className = lookup(readVarInt());
+            String methodName = lookup(readVarInt());
+            int line = readVarInt();
+
+            record.setCaller(className, methodName, line, lookup(readVarInt()));
+        }
+
+        if((flags & BinaryLevel.FLAG_TEMPLATE) != 0)
+        {
+            MessageStyle style = MessageStyle.values()[input.readUnsignedByte()];
+            String template = lookup(readVarInt());
+            Object[] args = new Object[readVarInt()];
+
+            for(int i = 0; i < args.length; i++)
+            {
+                args[i] = readArgument();
+            }
+
+            record.setMessage(style, template, args);
+
+            if((flags & BinaryLevel.FLAG_SUPPRESSED) != 0)
+            {
+                record.setSuppressed(readVarLong());
+            }
+        }
+        else
+        {
+            record.setMessage(readString());
+        }
+
+        if((flags & BinaryLevel.FLAG_CUSTOM) != 0)
+        {
+            int count = readVarInt();
+
+            for(int i = 0; i < count; i++)
+            {
+                String key = lookup(readVarInt());
+
+                record.set(key, readString());
+            }
+        }
+    }
+
+    /**
+     * Renders every remaining entry of the log through {@link Log#format(LogRecord)}, one line per entry
+     *
+     * @param output The destination of the rendered lines
+     *
+     * @return The amount of rendered entries
+     *
+     * @throws IOException If the log could not be read or the output could not be written
+     */
+    public long renderTo(Appendable output) throws IOException
+    {
+        return renderTo(output, LogFormatter.PATTERNS);
+    }
+
+    /**
+     * Renders every remaining entry of the log through a given formatter, one line per entry, e.g. to convert it to JSON
+     * lines with a {@link JsonLogFormatter}
+     *
+     * @param output    The destination of the rendered lines
+     * @param formatter The formatter of the records
+     *
+     * @return The amount of rendered entries
+     *
+     * @throws IOException If the log could not be read or the output could not be written
+     */
+    public long renderTo(Appendable output, LogFormatter formatter) throws IOException
+    {
+        LogRecord record = new LogRecord();
+        StringBuilder rendered = new StringBuilder(256);
+        long count = 0;
+
+        while(next(record))
+        {
+            rendered.setLength(0);
+
+            if(line != null)
+            {
+                rendered.append(line);
+            }
+            else
+            {
+                formatter.format(record, rendered);
+            }
+
+            output.append(rendered).append(System.lineSeparator());
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Reads a typed argument of a message
+     *
+     * @return The argument
+     *
+     * @throws IOException If the log could not be read or is corrupt
+     */
+    private Object readArgument() throws IOException
+    {
+        int type = input.readUnsignedByte();
+
+        switch(type)
+        {
+            case BinaryLevel.TYPE_NULL:
+                return null;
+            case BinaryLevel.TYPE_BYTE:
+                return (byte) unzigzag(readVarLong());
+            case BinaryLevel.TYPE_SHORT:
+                return (short) unzigzag(readVarLong());
+            case BinaryLevel.TYPE_INT:
+                return (int) unzigzag(readVarLong());
+            case BinaryLevel.TYPE_LONG:
+                return unzigzag(readVarLong());
+            case BinaryLevel.TYPE_FLOAT:
+                return input.readFloat();
+            case BinaryLevel.TYPE_DOUBLE:
+                return input.readDouble();
+            case BinaryLevel.TYPE_TRUE:
+                return true;
+            case BinaryLevel.TYPE_FALSE:
+                return false;
+            case BinaryLevel.TYPE_CHAR:
+                return (char) readVarInt();
+            case BinaryLevel.TYPE_STRING:
+            case BinaryLevel.TYPE_OTHER:
+                return readString();
+            default:
+                throw new IOException("Unknown argument type " + type);
+        }
+    }
+
+    /**
+     * @param id A dictionary id
+     *
+     * @return The string defined with the id
+     *
+     * @throws IOException If the id was not defined
+     */
+    private String lookup(int id) throws IOException
+    {
+        if(id < 0 || id >= dictionary.size())
+        {
+            throw new IOException("Undefined dictionary id " + id);
+        }
+
+        return dictionary.get(id);
+    }
+
+    /**
+     * @return A string of a varint length of UTF-8 bytes and the bytes
+     *
+     * @throws IOException If the log could not be read
+     */
+    private String readString() throws IOException
+    {
+        int length = readVarInt();
+
+        if(length < 0)
+        {
+            throw new IOException("Invalid string length " + length);
+        }
+
+        if(bytes.length < length)
+        {
+            bytes = new byte[Math.max(length, bytes.length * 2)];
+        }
+
+        input.readFully(bytes, 0, length);
+
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return An unsigned varint of at most 32 bits
+     *
+     * @throws IOException If the log could not be read
+     */
+    private int readVarInt() throws IOException
+    {
+        return (int) readVarLong();
+    }
+
+    /**
+     * @return An unsigned varint of at most 64 bits
+     *
+     * @throws IOException If the log could not be read or the varint is longer than 10 bytes
+     */
+    private long readVarLong() throws IOException
+    {
+        long value = 0;
+
+        for(int shift = 0; shift < 64; shift += 7)
+        {
+            int b = input.read();
+
+            if(b < 0)
+            {
+                throw new EOFException();
+            }
+
+            value |= (long) (b & 0x7F) << shift;
+
+            if((b & 0x80) == 0)
+            {
+                return value;
+            }
+        }
+
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * @param value A value mapped by {@link BinaryLevel#zigzag(long)}
+     *
+     * @return The signed value
+     */
+    private static long unzigzag(long value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * @return {@link #line}
+     */
+    public String getLine()
+    {
+        return line;
+    }
+
+    /**
+     * Closes the underlying stream
+     *
+     * @throws IOException If closing failed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        input.close();
+    }
+}
@@ -0,0 +1,25 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Functional interface called by {@link LineEncoder} if the target buffer is full
+ *
+ * @author Jakob-Niklas See
+ * @see #drain(ByteBuffer)
+ */
+@FunctionalInterface
+public interface BufferDrain
+{
+    /**
+     * Makes room in a full buffer, e.g. by writing its content to a channel (can be a lambda expression)
+     *
+     * @param buffer The full buffer, in write mode
+     *
+     * @return The buffer to continue encoding into, in write mode and with remaining space
+     *
+     * @throws IOException If the content could not be written
+     */
+    ByteBuffer drain(ByteBuffer buffer) throws IOException;
+}
@@ -0,0 +1,477 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link LevelImplementation} collapsing repeated identical statements before passing them on to another
+ * implementation. The first statement of a run is written, identical statements (same logLevel, prefix and message,
+ * ignoring the timestamp) within the {@link #window} after it are only counted. Once the window of a run passed, a
+ * single line with the message and {@code [repeated N times]} is written for the counted statements
+ * <p>
+ * Runs are kept in a fixed table of {@link #slots}, looked up by a 64-bit hash of the statement. Counting a repeat only
+ * reads the run of its slot and increments its counter with a compare-and-set, so a flood of identical statements does
+ * not contend on a lock. An ended run takes its counter atomically and marks it as ended, so a repeat is either part of
+ * the repeat line or starts a new run. If two runs share a slot, the newer one replaces the older one, which then gets
+ * its repeat line written
+ *
+ * <pre>{@code
+ * Log.registerLevel(LogLevel.ERROR, new DeduplicatingLevel(System.err::println, 1000));
+ * }</pre>
+ *
+ * @author Jakob-Niklas See
+ * @see #DeduplicatingLevel(LevelImplementation, long)
+ * @see #DeduplicatingLevel(LevelImplementation, long, int)
+ * @see #log(String)
+ * @see #log(LogRecord)
+ * @see #flush()
+ * @see #drain()
+ */
+public class DeduplicatingLevel implements LevelImplementation
+{
+    /**
+     * The default amount of {@link #slots}
+     */
+    private static final int DEFAULT_SLOTS = 1024;
+
+    /**
+     * The offset basis of the FNV-1a hash
+     */
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    /**
+     * The prime of the FNV-1a hash
+     */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * The builder messages are rendered into on every thread
+     */
+    private static final ThreadLocal<StringBuilder> messageBuilder = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    /**
+     * The implementation statements and repeat lines are passed on to
+     */
+    private final LevelImplementation target;
+
+    /**
+     * The time in milliseconds after the first statement of a run in which identical statements are counted
+     */
+    private final long window;
+
+    /**
+     * The table of runs, the length is a power of two
+     */
+    private final Slot[] slots;
+
+    /**
+     * The unix timestamp from which on the next statement or flush looks for runs whose window passed
+     */
+    private final AtomicLong nextSweep = new AtomicLong();
+
+    /**
+     * Creates a new implementation with {@link #DEFAULT_SLOTS} slots
+     *
+     * @param target {@link #target} (can be a lambda expression)
+     * @param window {@link #window}
+     */
+    public DeduplicatingLevel(LevelImplementation target, long window)
+    {
+        this(target, window, DEFAULT_SLOTS);
+    }
+
+    /**
+     * Creates a new implementation
+     *
+     * @param target {@link #target} (can be a lambda expression)
+     * @param window {@link #window}
+     * @param slots  The amount of runs which can be tracked at once, rounded up to a power of two
+     */
+    public DeduplicatingLevel(LevelImplementation target, long window, int slots)
+    {
+        if(window < 1 || slots < 1)
+        {
+            throw new IllegalArgumentException("Invalid deduplication: window=" + window + ", slots=" + slots);
+        }
+
+        int size = 1;
+
+        while(size < slots)
+        {
+            size <<= 1;
+        }
+
+        this.target = target;
+        this.window = window;
+        this.slots = new Slot[size];
+
+        for(int i = 0; i < size; i++)
+        {
+            this.slots[i] = new Slot();
+        }
+    }
+
+    /**
+     * Writes a preformatted line unless it repeats the line of a run
+     *
+     * @param string The input to be logged
+     */
+    @Override
+    public void log(String string)
+    {
+        long now = System.currentTimeMillis();
+
+        if(admit(null, null, string, now, null))
+        {
+            target.log(string);
+        }
+
+        sweep(now);
+    }
+
+    /**
+     * Writes a statement unless it repeats the statement of a run. The message is compared without the amount of
+     * statements suppressed by a {@link LogSampler}
+     *
+     * @param record The statement to be logged
+     */
+    @Override
+    public void log(LogRecord record)
+    {
+        StringBuilder message = messageBuilder.get();
+        message.setLength(0);
+        record.appendMessage(message);
+
+        if(record.getSuppressed() > 0)
+        {
+            message.setLength(message.lastIndexOf(" ["));
+        }
+
+        if(admit(record.getLevel(), record.getPrefix(), message, record.getTimestamp(), record))
+        {
+            target.log(record);
+        }
+
+        sweep(record.getTimestamp());
+    }
+
+    /**
+     * Counts a statement as a repeat of the run of its slot, or starts a new run with it
+     *
+     * @param level   The logLevel of the statement, {@code null} for preformatted lines
+     * @param prefix  The prefix of the statement
+     * @param message The message of the statement
+     * @param now     The unix timestamp of the statement
+     * @param record  The record of the statement, {@code null} for preformatted lines
+     *
+     * @return If the statement is written, {@code false} if it was counted as a repeat
+     */
+    private boolean admit(LogLevel level, String prefix, CharSequence message, long now, LogRecord record)
+    {
+        long hash = hash(level == null ? null : level.getLevel(), FNV_OFFSET);
+        hash = hash(prefix, hash);
+        hash = hash(message, hash);
+
+        Slot slot = slots[(int) (hash ^ (hash >>> 32)) & (slots.length - 1)];
+        Run run = slot.run;
+
+        if(run != null && run.matches(hash, level, prefix, message) && now < run.windowEnd && run.repeat())
+        {
+            return false;
+        }
+
+        Run replaced;
+
+        synchronized(slot)
+        {
+            run = slot.run;
+
+            if(run != null && run.matches(hash, level, prefix, message) && now < run.windowEnd && run.repeat())
+            {
+                return false;
+            }
+
+            replaced = run;
+            slot.run = new Run(hash, level, prefix, message.toString(), now + window, record);
+        }
+
+        writeRepeats(replaced);
+
+        return true;
+    }
+
+    /**
+     * Ends every run whose window passed, at most once per {@link #window}
+     *
+     * @param now The current unix timestamp
+     */
+    private void sweep(long now)
+    {
+        long next = nextSweep.get();
+
+        if(now < next || !nextSweep.compareAndSet(next, now + window))
+        {
+            return;
+        }
+
+        for(Slot slot : slots)
+        {
+            Run run = slot.run;
+
+            if(run != null && now >= run.windowEnd)
+            {
+                synchronized(slot)
+                {
+                    if(slot.run != run)
+                    {
+                        continue;
+                    }
+
+                    slot.run = null;
+                }
+
+                writeRepeats(run);
+            }
+        }
+    }
+
+    /**
+     * Ends a run which was removed from its slot and writes its repeat line if it counted any repeats
+     *
+     * @param run The removed run, may be {@code null}
+     */
+    private void writeRepeats(Run run)
+    {
+        if(run == null)
+        {
+            return;
+        }
+
+        long repeats = run.end();
+
+        if(repeats <= 0)
+        {
+            return;
+        }
+
+        String message = run.message + " [repeated " + repeats + " times]";
+
+        if(run.preformatted)
+        {
+            target.log(message);
+        }
+        else
+        {
+            LogRecord record = new LogRecord();
+            record.restore(run.level, System.currentTimeMillis(), run.prefix, run.logPointer, run.threadName, run.threadId);
+            record.setMessage(message);
+
+            target.log(record);
+        }
+    }
+
+    /**
+     * Ends the runs whose window passed and flushes the {@link #target}
+     */
+    @Override
+    public void flush()
+    {
+        sweep(System.currentTimeMillis());
+        target.flush();
+    }
+
+    /**
+     * Ends every run, writing the repeat lines of all of them, and drains the {@link #target}
+     */
+    @Override
+    public void drain()
+    {
+        for(Slot slot : slots)
+        {
+            Run run;
+
+            synchronized(slot)
+            {
+                run = slot.run;
+                slot.run = null;
+            }
+
+            writeRepeats(run);
+        }
+
+        target.drain();
+    }
+
+    /**
+     * @param text A text, may be {@code null}
+     * @param hash The hash so far
+     *
+     * @return The FNV-1a hash continued with the characters of the text and a separator
+     */
+    private static long hash(CharSequence text, long hash)
+    {
+        if(text != null)
+        {
+            for(int i = 0; i < text.length(); i++)
+            {
+                hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+            }
+        }
+
+        return (hash ^ 0xFFFF) * FNV_PRIME;
+    }
+
+    /**
+     * @return {@link #target}
+     */
+    public LevelImplementation getTarget()
+    {
+        return target;
+    }
+
+    /**
+     * @return {@link #window}
+     */
+    public long getWindow()
+    {
+        return window;
+    }
+
+    /**
+     * A slot of the table, guarding the replacement of its run
+     */
+    private static final class Slot
+    {
+        /**
+         * The run of the slot, {@code null} if it has none
+         */
+        private volatile Run run;
+    }
+
+    /**
+     * The first statement of a run of identical statements and the amount of repeats counted for it
+     */
+    private static final class Run
+    {
+        /**
+         * The hash of the statement
+         */
+        private final long hash;
+
+        /**
+         * If the statement is a preformatted line instead of a record
+         */
+        private final boolean preformatted;
+
+        /**
+         * The logLevel of the statement
+         */
+        private final LogLevel level;
+
+        /**
+         * The prefix of the statement
+         */
+        private final String prefix;
+
+        /**
+         * The message of the statement
+         */
+        private final String message;
+
+        /**
+         * The unix timestamp until which identical statements are counted
+         */
+        private final long windowEnd;
+
+        /**
+         * The logPointer of the statement
+         */
+        private final char logPointer;
+
+        /**
+         * The name of the thread of the statement
+         */
+        private final String threadName;
+
+        /**
+         * The id of the thread of the statement
+         */
+        private final long threadId;
+
+        /**
+         * The amount of counted repeats, negative once the run ended
+         */
+        private final AtomicLong repeats = new AtomicLong();
+
+        /**
+         * @param hash      {@link #hash}
+         * @param level     {@link #level}
+         * @param prefix    {@link #prefix}
+         * @param message   {@link #message}
+         * @param windowEnd {@link #windowEnd}
+         * @param record    The record of the statement, {@code null} for preformatted lines
+         */
+        private Run(long hash, LogLevel level, String prefix, String message, long windowEnd, LogRecord record)
+        {
+            this.hash = hash;
+            this.level = level;
+            this.prefix = prefix;
+            this.message = message;
+            this.windowEnd = windowEnd;
+
+            preformatted = record == null;
+            logPointer = preformatted ? 0 : record.getLogPointer();
+            threadName = preformatted ? null : record.getThreadName();
+            threadId = preformatted ? 0 : record.getThreadId();
+        }
+
+        /**
+         * @param hash    The hash of a statement
+         * @param level   The logLevel of the statement
+         * @param prefix  The prefix of the statement
+         * @param message The message of the statement
+         *
+         * @return If the statement is identical to the one of this run
+         */
+        private boolean matches(long hash, LogLevel level, String prefix, CharSequence message)
+        {
+            return this.hash == hash &&
+                Objects.equals(this.level == null ? null : this.level.getLevel(), level == null ? null : level.getLevel()) &&
+                Objects.equals(this.prefix, prefix) &&
+                this.message.contentEquals(message);
+        }
+
+        /**
+         * Counts a repeat unless the run ended
+         *
+         * @return If the repeat was counted
+         */
+        private boolean repeat()
+        {
+            long count;
+
+            do
+            {
+                count = repeats.get();
+
+                if(count < 0)
+                {
+                    return false;
+                }
+            }
+            while(!repeats.compareAndSet(count, count + 1));
+
+            return true;
+        }
+
+        /**
+         * Ends the run, so later repeats are no longer counted for it
+         *
+         * @return The amount of repeats counted before, -1 if the run ended already
+         */
+        private long end()
+        {
+            return repeats.getAndSet(-1);
+        }
+    }
+}
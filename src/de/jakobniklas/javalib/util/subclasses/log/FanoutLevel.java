@@ -0,0 +1,110 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import de.jakobniklas.javalib.exception.Exceptions;
+import de.jakobniklas.javalib.util.Log;
+
+import java.util.List;
+
+/**
+ * A {@link LevelImplementation} passing every statement on to several sinks, registered with {@link
+ * Log#registerSinks(LogLevel, LevelImplementation...)}. A sink failing to write does not keep the others from writing.
+ * Sinks are called one after another on the calling thread, wrapping them in a {@link QueuedLevel} gives each of them
+ * a queue and consumer thread of its own
+ *
+ * @author Jakob-Niklas See
+ * @see #FanoutLevel(List)
+ * @see #log(String)
+ * @see #log(LogRecord)
+ * @see #flush()
+ * @see #drain()
+ * @see QueuedLevel
+ */
+public class FanoutLevel implements LevelImplementation
+{
+    /**
+     * The implementations every statement is passed on to
+     */
+    private final List<LevelImplementation> sinks;
+
+    /**
+     * @param sinks {@link #sinks}, copied
+     */
+    public FanoutLevel(List<LevelImplementation> sinks)
+    {
+        this.sinks = List.copyOf(sinks);
+    }
+
+    /**
+     * Passes a preformatted line on to every sink
+     *
+     * @param string The input to be logged
+     */
+    @Override
+    public void log(String string)
+    {
+        for(LevelImplementation sink : sinks)
+        {
+            try
+            {
+                sink.log(string);
+            }
+            catch(Exception e)
+            {
+                Exceptions.handle(e);
+            }
+        }
+    }
+
+    /**
+     * Passes a record on to every sink
+     *
+     * @param record The statement to be logged
+     */
+    @Override
+    public void log(LogRecord record)
+    {
+        for(LevelImplementation sink : sinks)
+        {
+            try
+            {
+                sink.log(record);
+            }
+            catch(Exception e)
+            {
+                Exceptions.handle(e);
+            }
+        }
+    }
+
+    /**
+     * Flushes every sink
+     */
+    @Override
+    public void flush()
+    {
+        for(LevelImplementation sink : sinks)
+        {
+            sink.flush();
+        }
+    }
+
+    /**
+     * Drains every sink
+     */
+    @Override
+    public void drain()
+    {
+        for(LevelImplementation sink : sinks)
+        {
+            sink.drain();
+        }
+    }
+
+    /**
+     * @return {@link #sinks}, which cannot be modified
+     */
+    public List<LevelImplementation> getSinks()
+    {
+        return sinks;
+    }
+}
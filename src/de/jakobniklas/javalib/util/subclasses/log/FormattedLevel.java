@@ -0,0 +1,109 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import de.jakobniklas.javalib.util.Log;
+
+/**
+ * A {@link LevelImplementation} formatting records with its own {@link LogFormatter} instead of the configured patterns
+ * and passing the lines on to another implementation, e.g. JSON lines to {@link System#out}
+ *
+ * <pre>{@code
+ * Log.registerLevel(LogLevel.INFO, new FormattedLevel(new JsonLogFormatter(), System.out::println));
+ * }</pre>
+ *
+ * @author Jakob-Niklas See
+ * @see #FormattedLevel(LogFormatter, LevelImplementation)
+ * @see #log(LogRecord)
+ * @see JsonLogFormatter
+ */
+public class FormattedLevel implements LevelImplementation
+{
+    /**
+     * The builder records are formatted into on every thread
+     */
+    private static final ThreadLocal<StringBuilder> lineBuilder = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    /**
+     * The formatter of the records
+     */
+    private final LogFormatter formatter;
+
+    /**
+     * The implementation the formatted lines are passed to
+     */
+    private final LevelImplementation target;
+
+    /**
+     * Creates a new implementation formatting records for another one
+     *
+     * @param formatter {@link #formatter}
+     * @param target    {@link #target} (can be a lambda expression)
+     */
+    public FormattedLevel(LogFormatter formatter, LevelImplementation target)
+    {
+        this.formatter = formatter;
+        this.target = target;
+    }
+
+    /**
+     * Passes a preformatted line on to the {@link #target}
+     *
+     * @param string The input to be logged
+     */
+    @Override
+    public void log(String string)
+    {
+        target.log(string);
+    }
+
+    /**
+     * Formats a record with the {@link #formatter} and passes it on to the {@link #target}, counting the UTF-8 length of
+     * the line and a line separator in the {@link Log#getMetrics() metrics}
+     *
+     * @param record The statement to be logged
+     */
+    @Override
+    public void log(LogRecord record)
+    {
+        StringBuilder line = lineBuilder.get();
+        line.setLength(0);
+
+        formatter.format(record, line);
+
+        target.log(line.toString());
+        Log.getMetrics().recordBytes(this, LineEncoder.utf8Length(line) + System.lineSeparator().length());
+    }
+
+    /**
+     * Flushes the {@link #target}
+     */
+    @Override
+    public void flush()
+    {
+        target.flush();
+    }
+
+    /**
+     * Drains the {@link #target}, so output it keeps beyond {@link #flush()} is written as well
+     */
+    @Override
+    public void drain()
+    {
+        target.drain();
+    }
+
+    /**
+     * @return {@link #formatter}
+     */
+    public LogFormatter getFormatter()
+    {
+        return formatter;
+    }
+
+    /**
+     * @return {@link #target}
+     */
+    public LevelImplementation getTarget()
+    {
+        return target;
+    }
+}
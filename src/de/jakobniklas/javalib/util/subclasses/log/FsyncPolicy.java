@@ -0,0 +1,34 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+/**
+ * Defines when a file based {@link LevelImplementation} forces its written bytes to the storage device
+ *
+ * @author Jakob-Niklas See
+ * @see #NEVER
+ * @see #ON_ROLL
+ * @see #INTERVAL
+ * @see #ALWAYS
+ */
+public enum FsyncPolicy
+{
+    /**
+     * Written bytes are left to the operating system
+     */
+    NEVER,
+
+    /**
+     * A file is forced once it is rolled or closed
+     */
+    ON_ROLL,
+
+    /**
+     * A file is forced on flush if the configured interval passed since it was last forced, and once it is rolled or
+     * closed
+     */
+    INTERVAL,
+
+    /**
+     * A file is forced on every flush
+     */
+    ALWAYS
+}
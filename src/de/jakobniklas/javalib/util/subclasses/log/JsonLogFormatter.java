@@ -0,0 +1,389 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import de.jakobniklas.javalib.util.TimeUtil;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A {@link LogFormatter} writing every record as one JSON object, e.g. for an indexer reading JSON lines. The object is
+ * streamed into the output builder field by field, so no map is built and no reflection is used:
+ *
+ * <pre>{@code
+ * {"date":"01.01.2020","time":"12:00:00","milliseconds":1577880000000,"level":"info","prefix":"Log",
+ *  "message":"text","class":"Main","method":"main","line":12,"file":"Main.java","thread":"main","threadId":1}
+ * }</pre>
+ * <p>
+ * The caller fields are only written if they were captured. Custom sections follow as additional fields and are written
+ * as strings, so a key keeps its JSON type from record to record. Only the values of the {@link #numericKeys} are
+ * written as numbers if they are valid JSON numbers. A custom section overriding a known section replaces its value,
+ * values overriding a numeric field are written as numbers if they are valid
+ *
+ * @author Jakob-Niklas See
+ * @see #JsonLogFormatter(String...)
+ * @see #format(LogRecord, StringBuilder)
+ * @see #appendString(CharSequence, StringBuilder)
+ */
+public class JsonLogFormatter implements LogFormatter
+{
+    /**
+     * Hexadecimal digits used for unicode escapes
+     */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * The keys of the fields written for every record
+     */
+    private static final String[] FIELDS = {"date", "time", "milliseconds", "level", "prefix", "message", "thread", "threadId"};
+
+    /**
+     * The keys of the fields written for records with caller sections
+     */
+    private static final String[] CALLER_FIELDS = {"class", "method", "line", "file"};
+
+    /**
+     * The builder a message is appended to on every thread before it gets escaped
+     */
+    private static final ThreadLocal<StringBuilder> messageBuilder = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    /**
+     * The keys of the custom sections whose values are written as numbers if they are valid JSON numbers
+     */
+    private final Set<String> numericKeys;
+
+    /**
+     * Creates a new formatter
+     *
+     * @param numericKeys {@link #numericKeys}, none to write every custom section as a string
+     */
+    public JsonLogFormatter(String... numericKeys)
+    {
+        this.numericKeys = new HashSet<>(Arrays.asList(numericKeys));
+    }
+
+    /**
+     * Appends a record as a JSON object
+     *
+     * @param record The record of a statement
+     * @param output The builder to append to
+     */
+    @Override
+    public void format(LogRecord record, StringBuilder output)
+    {
+        long timestamp = record.getTimestamp();
+
+        output.append('{');
+        appendField("date", TimeUtil.getDate(timestamp), record, output, false);
+        appendField("time", TimeUtil.getTime(timestamp), record, output, true);
+        appendNumberField("milliseconds", timestamp, record, output);
+        appendField("level", record.getLevel() == null ? null : record.getLevel().getLevel(), record, output, true);
+        appendField("prefix", record.getPrefix(), record, output, true);
+
+        int custom = customIndex(record, "message");
+
+        output.append(",\"message\":");
+
+        if(custom >= 0)
+        {
+            appendString(record.getCustomValue(custom), output);
+        }
+        else
+        {
+            StringBuilder message = messageBuilder.get();
+            message.setLength(0);
+            record.appendMessage(message);
+
+            appendString(message, output);
+        }
+
+        if(record.hasCaller())
+        {
+            appendField("class", record.getClassName(), record, output, true);
+            appendField("method", record.getMethodName(), record, output, true);
+            appendNumberField("line", record.getLine(), record, output);
+            appendField("file", record.getFileName(), record, output, true);
+        }
+
+        appendField("thread", record.getThreadName(), record, output, true);
+        appendNumberField("threadId", record.getThreadId(), record, output);
+
+        for(int i = 0; i < record.getCustomCount(); i++)
+        {
+            String key = record.getCustomKey(i);
+
+            if(!contains(FIELDS, key) && !(record.hasCaller() && contains(CALLER_FIELDS, key)))
+            {
+                output.append(',');
+                appendString(key, output);
+                output.append(':');
+                appendValue(record.getCustomValue(i), numericKeys.contains(key), output);
+            }
+        }
+
+        output.append('}');
+    }
+
+    /**
+     * Appends a field with a String value, or the value of a custom section overriding it
+     *
+     * @param key    The key of the field
+     * @param value  The value of the field
+     * @param record The record, looked up for overrides
+     * @param output The builder to append to
+     * @param comma  If a comma is appended before the field
+     */
+    private static void appendField(String key, String value, LogRecord record, StringBuilder output, boolean comma)
+    {
+        if(comma)
+        {
+            output.append(',');
+        }
+
+        output.append('"').append(key).append("\":");
+
+        int custom = customIndex(record, key);
+
+        appendString(custom >= 0 ? record.getCustomValue(custom) : value, output);
+    }
+
+    /**
+     * Appends a field with a numeric value, or the value of a custom section overriding it
+     *
+     * @param key    The key of the field
+     * @param value  The value of the field
+     * @param record The record, looked up for overrides
+     * @param output The builder to append to
+     */
+    private static void appendNumberField(String key, long value, LogRecord record, StringBuilder output)
+    {
+        output.append(",\"").append(key).append("\":");
+
+        int custom = customIndex(record, key);
+
+        if(custom >= 0)
+        {
+            appendValue(record.getCustomValue(custom), true, output);
+        }
+        else
+        {
+            output.append(value);
+        }
+    }
+
+    /**
+     * Appends a value of a custom section, as a number if it may be one and is a valid JSON number and as a string
+     * otherwise
+     *
+     * @param value   The value
+     * @param numeric If the value may be written as a number
+     * @param output  The builder to append to
+     */
+    private static void appendValue(String value, boolean numeric, StringBuilder output)
+    {
+        if(numeric && isNumber(value))
+        {
+            output.append(value);
+        }
+        else
+        {
+            appendString(value, output);
+        }
+    }
+
+    /**
+     * Appends a string as a quoted JSON string. Quotes, backslashes, control characters, unpaired surrogates and the
+     * line separators U+2028 and U+2029 are escaped, runs of other characters are appended as a whole
+     *
+     * @param text   The string, {@code null} is appended as {@code null}
+     * @param output The builder to append to
+     */
+    public static void appendString(CharSequence text, StringBuilder output)
+    {
+        if(text == null)
+        {
+            output.append("null");
+
+            return;
+        }
+
+        int length = text.length();
+        int run = 0;
+
+        output.append('"');
+
+        for(int i = 0; i < length; i++)
+        {
+            char c = text.charAt(i);
+
+            if(c >= 0x20 && c != '"' && c != '\\' && c != 0x2028 && c != 0x2029)
+            {
+                if(!Character.isSurrogate(c))
+                {
+                    continue;
+                }
+
+                if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1)))
+                {
+                    i++;
+
+                    continue;
+                }
+            }
+
+            output.append(text, run, i);
+            run = i + 1;
+
+            switch(c)
+            {
+                case '"':
+                    output.append("\\\"");
+                    break;
+                case '\\':
+                    output.append("\\\\");
+                    break;
+                case '\n':
+                    output.append("\\n");
+                    break;
+                case '\r':
+                    output.append("\\r");
+                    break;
+                case '\t':
+                    output.append("\\t");
+                    break;
+                case '\b':
+                    output.append("\\b");
+                    break;
+                case '\f':
+                    output.append("\\f");
+                    break;
+                default:
+                    output.append("\\u").append(HEX[c >> 12]).append(HEX[(c >> 8) & 0xF]).append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+                    break;
+            }
+        }
+
+        output.append(text, run, length).append('"');
+    }
+
+    /**
+     * @param value A String
+     *
+     * @return If the String is a number according to the JSON grammar ({@code -?(0|[1-9][0-9]*)(.[0-9]+)?([eE][+-]?[0-9]+)?})
+     */
+    private static boolean isNumber(String value)
+    {
+        if(value == null || value.isEmpty())
+        {
+            return false;
+        }
+
+        int length = value.length();
+        int i = value.charAt(0) == '-' ? 1 : 0;
+
+        if(i == length)
+        {
+            return false;
+        }
+
+        if(value.charAt(i) == '0')
+        {
+            i++;
+        }
+        else
+        {
+            int start = i;
+            i = skipDigits(value, i);
+
+            if(i == start)
+            {
+                return false;
+            }
+        }
+
+        if(i < length && value.charAt(i) == '.')
+        {
+            int start = ++i;
+            i = skipDigits(value, i);
+
+            if(i == start)
+            {
+                return false;
+            }
+        }
+
+        if(i < length && (value.charAt(i) == 'e' || value.charAt(i) == 'E'))
+        {
+            i++;
+
+            if(i < length && (value.charAt(i) == '+' || value.charAt(i) == '-'))
+            {
+                i++;
+            }
+
+            int start = i;
+            i = skipDigits(value, i);
+
+            if(i == start)
+            {
+                return false;
+            }
+        }
+
+        return i == length;
+    }
+
+    /**
+     * @param value A String
+     * @param index The index to start at
+     *
+     * @return The index of the first character from the index on which is not a digit
+     */
+    private static int skipDigits(String value, int index)
+    {
+        while(index < value.length() && value.charAt(index) >= '0' && value.charAt(index) <= '9')
+        {
+            index++;
+        }
+
+        return index;
+    }
+
+    /**
+     * @param keys A list of keys
+     * @param key  A key
+     *
+     * @return If the list contains the key
+     */
+    private static boolean contains(String[] keys, String key)
+    {
+        for(String candidate : keys)
+        {
+            if(candidate.equals(key))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param record A record
+     * @param key    The key of a section
+     *
+     * @return The index of the custom section of the record with the key, -1 if there is none
+     */
+    private static int customIndex(LogRecord record, String key)
+    {
+        for(int i = 0; i < record.getCustomCount(); i++)
+        {
+            if(record.getCustomKey(i).equals(key))
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,241 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size histogram of durations in nanoseconds, which can be recorded to from many threads concurrently. Values
+ * are counted in log-linear buckets: every power of two is split into {@link #SUB_BUCKETS} linear buckets, so a
+ * quantile is off by at most about 3% of its value while the whole range of a long fits into {@link #BUCKETS} counters
+ *
+ * @author Jakob-Niklas See
+ * @see #record(long)
+ * @see #quantile(double)
+ * @see #getCount()
+ * @see #getMax()
+ * @see #getMean()
+ * @see #reset()
+ * @see #summary()
+ */
+public class LatencyHistogram
+{
+    /**
+     * The amount of bits of a value kept below its highest bit
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /**
+     * The amount of linear buckets every power of two is split into
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The amount of buckets needed for every positive long
+     */
+    private static final int BUCKETS = indexOf(Long.MAX_VALUE) + 1;
+
+    /**
+     * The count of every bucket
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * The amount of recorded values
+     */
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * The sum of all recorded values
+     */
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * The highest recorded value
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration
+     *
+     * @param nanos The duration in nanoseconds, negative durations are recorded as 0
+     */
+    public void record(long nanos)
+    {
+        long value = Math.max(0, nanos);
+
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+
+        long current = max.get();
+
+        while(current < value && !max.compareAndSet(current, value))
+        {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Returns the value below or at which a given fraction of the recorded values lie. The result is the highest value
+     * of the bucket containing the quantile, but never higher than the {@link #max}
+     *
+     * @param quantile The fraction, e.g. {@code 0.99} for the 99th percentile
+     *
+     * @return The duration in nanoseconds, 0 if nothing was recorded
+     */
+    public long quantile(double quantile)
+    {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+
+        for(int i = 0; i < BUCKETS; i++)
+        {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+
+        if(total == 0)
+        {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(Math.min(1, Math.max(0, quantile)) * total));
+        long seen = 0;
+
+        for(int i = 0; i < BUCKETS; i++)
+        {
+            seen += snapshot[i];
+
+            if(seen >= target)
+            {
+                return Math.min(highestValueOf(i), max.get());
+            }
+        }
+
+        return max.get();
+    }
+
+    /**
+     * Clears every recorded value. Values recorded concurrently may be kept partially
+     */
+    public void reset()
+    {
+        for(int i = 0; i < BUCKETS; i++)
+        {
+            counts.set(i, 0);
+        }
+
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    /**
+     * @return The count, median, 99th and 99.9th percentile and maximum of the recorded durations
+     */
+    public String summary()
+    {
+        return "count=" + getCount() +
+            ", p50=" + formatNanos(quantile(0.5)) +
+            ", p99=" + formatNanos(quantile(0.99)) +
+            ", p999=" + formatNanos(quantile(0.999)) +
+            ", max=" + formatNanos(getMax());
+    }
+
+    /**
+     * Formats a duration with a unit fitting its magnitude
+     *
+     * @param nanos The duration in nanoseconds
+     *
+     * @return The duration, e.g. {@code "1.250ms"}
+     */
+    public static String formatNanos(long nanos)
+    {
+        if(nanos < 1_000L)
+        {
+            return nanos + "ns";
+        }
+        else if(nanos < 1_000_000L)
+        {
+            return String.format(Locale.ROOT, "%.3fus", nanos / 1e3);
+        }
+        else if(nanos < 1_000_000_000L)
+        {
+            return String.format(Locale.ROOT, "%.3fms", nanos / 1e6);
+        }
+
+        return String.format(Locale.ROOT, "%.3fs", nanos / 1e9);
+    }
+
+    /**
+     * Maps a value to its bucket. Values below {@code 2 * SUB_BUCKETS} have a bucket of their own, higher values share
+     * a bucket with every value having the same highest {@link #SUB_BUCKET_BITS} + 1 bits
+     *
+     * @param value A positive value
+     *
+     * @return The index of the bucket
+     */
+    private static int indexOf(long value)
+    {
+        if(value < 2 * SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+
+        return SUB_BUCKETS * shift + (int) (value >>> shift);
+    }
+
+    /**
+     * @param index The index of a bucket
+     *
+     * @return The highest value counted in the bucket
+     */
+    private static long highestValueOf(int index)
+    {
+        if(index < 2 * SUB_BUCKETS)
+        {
+            return index;
+        }
+
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index - (long) SUB_BUCKETS * shift;
+
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * @return The amount of recorded values
+     */
+    public long getCount()
+    {
+        return count.sum();
+    }
+
+    /**
+     * @return {@link #max}
+     */
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    /**
+     * @return The mean of the recorded values in nanoseconds, 0 if nothing was recorded
+     */
+    public double getMean()
+    {
+        long values = count.sum();
+
+        return values == 0 ? 0 : (double) sum.sum() / values;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "LatencyHistogram{" + summary() + '}';
+    }
+}
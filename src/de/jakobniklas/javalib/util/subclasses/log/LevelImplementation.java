@@ -1,11 +1,17 @@
 package de.jakobniklas.javalib.util.subclasses.log;
 
+import de.jakobniklas.javalib.util.Log;
+
 /**
  * Interface to be implemented in {@link de.jakobniklas.javalib.util.Log#registerLevel(LogLevel, LevelImplementation)
  * Log#registerLevel(LogLevel, LevelImplementation)}
  *
  * @author Jakob-Niklas See
  * @see #log(String)
+ * @see #log(LogRecord)
+ * @see #flush()
+ * @see #drain()
+ * @see #getName()
  */
 public interface LevelImplementation
 {
@@ -15,4 +21,49 @@ public interface LevelImplementation
      * @param string The input to be logged
      */
     void log(String string);
+
+    /**
+     * Method called by {@link Log} for every statement of the logLevel. By default the record is formatted according to
+     * the configured patterns ({@link Log#format(LogRecord)}) and passed to {@link #log(String)}, implementations which
+     * write the sections themselves can override this. The UTF-8 length of the line and a line separator is counted as
+     * its size in the {@link Log#getMetrics() metrics}, as the encoding of a String implementation is unknown
+     *
+     * @param record The statement to be logged, only valid for the duration of the call
+     */
+    default void log(LogRecord record)
+    {
+        String line = Log.format(record);
+
+        log(line);
+        Log.getMetrics().recordBytes(this, LineEncoder.utf8Length(line) + System.lineSeparator().length());
+    }
+
+    /**
+     * Called by {@link Log} after a statement was written synchronously and after every batch of asynchronously written
+     * statements. Implementations which buffer output should write it here
+     */
+    default void flush()
+    {
+    }
+
+    /**
+     * Called by {@link Log#flush()} and when the application shuts down. Implementations which keep output beyond
+     * {@link #flush()}, e.g. for a background thread, have to write all of it here. Calls {@link #flush()} by default
+     */
+    default void drain()
+    {
+        flush();
+    }
+
+    /**
+     * The name the bytes written by this implementation are counted under in the {@link Log#getMetrics() metrics}, so
+     * the counter outlives implementations which are replaced. Implementations writing to a destination, e.g. a file,
+     * return it. The class name is returned by default, so implementations of the same class share a counter
+     *
+     * @return The name of the implementation, called for every statement
+     */
+    default String getName()
+    {
+        return getClass().getName();
+    }
 }
@@ -0,0 +1,181 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Class encoding formatted log lines into byte buffers with a reused {@link CharsetEncoder} and char buffer, so that
+ * writing a line does not create a String or a byte array. Not thread-safe
+ *
+ * @author Jakob-Niklas See
+ * @see #LineEncoder(Charset)
+ * @see #encode(CharSequence, ByteBuffer, BufferDrain)
+ */
+public class LineEncoder
+{
+    /**
+     * The reused encoder
+     */
+    private final CharsetEncoder encoder;
+
+    /**
+     * The reused buffer the characters of a line are copied to
+     */
+    private CharBuffer chars = CharBuffer.allocate(1024);
+
+    /**
+     * Creates a new encoder which replaces characters that cannot be encoded
+     *
+     * @param charset The charset of the encoded lines
+     */
+    public LineEncoder(Charset charset)
+    {
+        encoder = charset.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * Encodes a text into a buffer, calling a drain whenever the buffer is full
+     *
+     * @param text   The text to encode
+     * @param target The buffer to encode into, in write mode
+     * @param drain  Makes room if the buffer is full (can be a lambda expression)
+     *
+     * @return The buffer the end of the text was encoded into, in write mode
+     *
+     * @throws IOException If the drain failed
+     */
+    public ByteBuffer encode(CharSequence text, ByteBuffer target, BufferDrain drain) throws IOException
+    {
+        int length = text.length();
+
+        if(chars.capacity() < length)
+        {
+            chars = CharBuffer.allocate(Math.max(length, chars.capacity() * 2));
+        }
+
+        chars.clear();
+
+        if(text instanceof StringBuilder)
+        {
+            ((StringBuilder) text).getChars(0, length, chars.array(), 0);
+        }
+        else if(text instanceof String)
+        {
+            ((String) text).getChars(0, length, chars.array(), 0);
+        }
+        else
+        {
+            for(int i = 0; i < length; i++)
+            {
+                chars.array()[i] = text.charAt(i);
+            }
+        }
+
+        chars.limit(length);
+        encoder.reset();
+
+        CoderResult result;
+
+        while((result = encoder.encode(chars, target, true)).isOverflow())
+        {
+            target = drain.drain(target);
+        }
+
+        check(result);
+
+        while((result = encoder.flush(target)).isOverflow())
+        {
+            target = drain.drain(target);
+        }
+
+        check(result);
+
+        return target;
+    }
+
+    /**
+     * @param result The result of an encoding step
+     *
+     * @throws CharacterCodingException If the result is an error, which cannot happen with replacing actions
+     */
+    private static void check(CoderResult result) throws CharacterCodingException
+    {
+        if(result.isError())
+        {
+            result.throwException();
+        }
+    }
+
+    /**
+     * @return The maximum amount of bytes a single character can be encoded to
+     */
+    public float maxBytesPerChar()
+    {
+        return encoder.maxBytesPerChar();
+    }
+
+    /**
+     * Computes the length of a text encoded as UTF-8 without encoding it. Unpaired surrogates count as one byte, like
+     * the {@code '?'} they are replaced with
+     *
+     * @param text A text
+     *
+     * @return The amount of UTF-8 bytes of the text
+     */
+    static int utf8Length(CharSequence text)
+    {
+        return utf8Length(text, 0, text.length());
+    }
+
+    /**
+     * Computes the length of a range of a text encoded as UTF-8 without encoding it
+     *
+     * @param text  A text
+     * @param start The index of the first character
+     * @param end   The index after the last character
+     *
+     * @return The amount of UTF-8 bytes of the range
+     * @see #utf8Length(CharSequence)
+     */
+    static int utf8Length(CharSequence text, int start, int end)
+    {
+        int bytes = 0;
+
+        for(int i = start; i < end; i++)
+        {
+            char c = text.charAt(i);
+
+            if(c < 0x80)
+            {
+                bytes++;
+            }
+            else if(c < 0x800)
+            {
+                bytes += 2;
+            }
+            else if(Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1)))
+            {
+                bytes += 4;
+                i++;
+            }
+            else if(Character.isSurrogate(c))
+            {
+                bytes++;
+            }
+            else
+            {
+                bytes += 3;
+            }
+        }
+
+        return bytes;
+    }
+}
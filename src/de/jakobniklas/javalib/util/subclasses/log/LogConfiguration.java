@@ -0,0 +1,175 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import de.jakobniklas.javalib.util.Log;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of the configuration of {@link Log}. Every print statement reads the current snapshot once, so
+ * it sees a consistent set of patterns and levels without locking. Changes create a new snapshot through one of the
+ * {@code with} methods, which is then published as a whole
+ *
+ * @author Jakob-Niklas See
+ * @see #LogConfiguration(List, Map, char)
+ * @see #withPatterns(List)
+ * @see #withLevels(Map)
+ * @see #withLevel(LogLevel, LevelImplementation)
+ * @see #withLogPointer(char)
+ * @see #implementationOf(LogLevel)
+ * @see #requiresCaller()
+ */
+public final class LogConfiguration
+{
+    /**
+     * The patterns every statement is formatted with
+     */
+    private final List<LogPattern> patterns;
+
+    /**
+     * The implementations of logLevels by their name
+     */
+    private final Map<String, LevelImplementation> levels;
+
+    /**
+     * The implementations of the {@link #levels}, indexed by {@link LogLevel#getOrdinal()}
+     */
+    private final LevelImplementation[] implementations;
+
+    /**
+     * The character rendered for the section {@code #logPointer}
+     */
+    private final char logPointer;
+
+    /**
+     * Creates a new snapshot, copying the given patterns and levels
+     *
+     * @param patterns   {@link #patterns}
+     * @param levels     {@link #levels}
+     * @param logPointer {@link #logPointer}
+     */
+    public LogConfiguration(List<LogPattern> patterns, Map<String, LevelImplementation> levels, char logPointer)
+    {
+        this.patterns = List.copyOf(patterns);
+        this.levels = Collections.unmodifiableMap(new HashMap<>(levels));
+        this.logPointer = logPointer;
+
+        int size = 0;
+        LogLevel[] indexed = new LogLevel[levels.size()];
+        int count = 0;
+
+        for(String name : this.levels.keySet())
+        {
+            indexed[count] = new LogLevel(name);
+            size = Math.max(size, indexed[count].getOrdinal() + 1);
+            count++;
+        }
+
+        implementations = new LevelImplementation[size];
+
+        for(LogLevel level : indexed)
+        {
+            implementations[level.getOrdinal()] = this.levels.get(level.getLevel());
+        }
+    }
+
+    /**
+     * @param patterns The new patterns
+     *
+     * @return A copy of this snapshot with other {@link #patterns}
+     */
+    public LogConfiguration withPatterns(List<LogPattern> patterns)
+    {
+        return new LogConfiguration(patterns, levels, logPointer);
+    }
+
+    /**
+     * @param levels The new levels
+     *
+     * @return A copy of this snapshot with other {@link #levels}
+     */
+    public LogConfiguration withLevels(Map<String, LevelImplementation> levels)
+    {
+        return new LogConfiguration(patterns, levels, logPointer);
+    }
+
+    /**
+     * @param level          The logLevel
+     * @param implementation The implementation of the logLevel
+     *
+     * @return A copy of this snapshot with a logLevel overridden or added
+     */
+    public LogConfiguration withLevel(LogLevel level, LevelImplementation implementation)
+    {
+        Map<String, LevelImplementation> copy = new HashMap<>(levels);
+        copy.put(level.getLevel(), implementation);
+
+        return new LogConfiguration(patterns, copy, logPointer);
+    }
+
+    /**
+     * @param logPointer The new logPointer
+     *
+     * @return A copy of this snapshot with another {@link #logPointer}
+     */
+    public LogConfiguration withLogPointer(char logPointer)
+    {
+        return new LogConfiguration(patterns, levels, logPointer);
+    }
+
+    /**
+     * Looks up the implementation of a logLevel by its ordinal
+     *
+     * @param level The logLevel
+     *
+     * @return The registered implementation, {@code null} if the logLevel has none
+     */
+    public LevelImplementation implementationOf(LogLevel level)
+    {
+        return level.getOrdinal() < implementations.length ? implementations[level.getOrdinal()] : null;
+    }
+
+    /**
+     * @return If any of the {@link #patterns} references a section describing the caller of a print statement
+     *
+     * @see LogPattern#referencesCaller()
+     */
+    public boolean requiresCaller()
+    {
+        for(int i = 0; i < patterns.size(); i++)
+        {
+            if(patterns.get(i).referencesCaller())
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return {@link #patterns}, which cannot be modified
+     */
+    public List<LogPattern> getPatterns()
+    {
+        return patterns;
+    }
+
+    /**
+     * @return {@link #levels}, which cannot be modified
+     */
+    public Map<String, LevelImplementation> getLevels()
+    {
+        return levels;
+    }
+
+    /**
+     * @return {@link #logPointer}
+     */
+    public char getLogPointer()
+    {
+        return logPointer;
+    }
+}
@@ -0,0 +1,31 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import de.jakobniklas.javalib.util.Log;
+
+/**
+ * Interface turning a {@link LogRecord} into a line of output, used by the implementations which format records
+ * themselves
+ *
+ * @author Jakob-Niklas See
+ * @see #PATTERNS
+ * @see JsonLogFormatter
+ * @see #format(LogRecord, StringBuilder)
+ */
+public interface LogFormatter
+{
+    /**
+     * Formats records according to the configured patterns of {@link Log}, as done by default
+     *
+     * @see Log#format(LogRecord, StringBuilder)
+     */
+    LogFormatter PATTERNS = Log::format;
+
+    /**
+     * Method to be implemented appending a formatted record to a builder, without a line separator (can be a lambda
+     * expression)
+     *
+     * @param record The record of a statement
+     * @param output The builder to append to
+     */
+    void format(LogRecord record, StringBuilder output);
+}
@@ -1,29 +1,120 @@
 package de.jakobniklas.javalib.util.subclasses.log;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Class storing the level of log outputs. This class wraps {@link String}, so that in the various print statements its
- * distinct
+ * distinct. Every level has a severity, used to compare it with a threshold, and an ordinal, used to look up its
+ * implementation in an array. Levels with the same name share both, no matter how often they are created
  *
  * @author Jakob-Niklas See
  * @see #level
+ * @see #severity
+ * @see #ordinal
  * @see #LogLevel(String)
+ * @see #LogLevel(String, int)
  * @see #getLevel()
+ * @see #getSeverity()
+ * @see #getOrdinal()
  */
 public class LogLevel
 {
+    /**
+     * Every level created so far by its name
+     */
+    private static final Map<String, LogLevel> registered = new HashMap<>();
+
+    /**
+     * The most detailed level, used for tracing the flow of a program
+     */
+    public static final LogLevel TRACE = new LogLevel("trace", 100);
+
+    /**
+     * Level used for diagnostic output
+     */
+    public static final LogLevel DEBUG = new LogLevel("debug", 200);
+
+    /**
+     * The default level of print statements
+     */
+    public static final LogLevel INFO = new LogLevel("info", 300);
+
+    /**
+     * Level used for unexpected but recoverable situations
+     */
+    public static final LogLevel WARN = new LogLevel("warn", 400);
+
+    /**
+     * Level used for errors, e.g. by {@link de.jakobniklas.javalib.exception.Exceptions}
+     */
+    public static final LogLevel ERROR = new LogLevel("error", 500);
+
     /**
      * The value of the logLevel
      */
-    private String level;
+    private final String level;
+
+    /**
+     * The severity of the logLevel, compared with thresholds
+     */
+    private final int severity;
 
     /**
-     * Creates a new logLevel with a given value
+     * The index of the logLevel in an array of implementations
+     */
+    private final int ordinal;
+
+    /**
+     * Creates a new logLevel with a given value. Known levels keep their severity, new levels get the severity of
+     * {@link #INFO}
      *
      * @param level The given value of the level
      */
     public LogLevel(String level)
     {
-        this.level = level;
+        this(level, 300);
+    }
+
+    /**
+     * Creates a new logLevel with a given value and severity. If a level with the same value was created before, its
+     * severity is kept and the given one is ignored
+     *
+     * @param level    The given value of the level
+     * @param severity The severity of the level, compared with thresholds
+     */
+    public LogLevel(String level, int severity)
+    {
+        this.level = level.toLowerCase();
+
+        synchronized(registered)
+        {
+            LogLevel known = registered.get(this.level);
+
+            if(known != null)
+            {
+                this.severity = known.severity;
+                this.ordinal = known.ordinal;
+            }
+            else
+            {
+                this.severity = severity;
+                this.ordinal = registered.size();
+
+                registered.put(this.level, this);
+            }
+        }
+    }
+
+    /**
+     * @return The amount of distinct levels created so far, each ordinal is smaller than this
+     */
+    public static int getRegisteredCount()
+    {
+        synchronized(registered)
+        {
+            return registered.size();
+        }
     }
 
     /**
@@ -31,6 +122,42 @@ public class LogLevel
      */
     public String getLevel()
     {
-        return level.toLowerCase();
+        return level;
+    }
+
+    /**
+     * @return {@link #severity}
+     */
+    public int getSeverity()
+    {
+        return severity;
+    }
+
+    /**
+     * @return {@link #ordinal}
+     */
+    public int getOrdinal()
+    {
+        return ordinal;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if(this == o) return true;
+        if(!(o instanceof LogLevel)) return false;
+        return ordinal == ((LogLevel) o).ordinal;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return ordinal;
+    }
+
+    @Override
+    public String toString()
+    {
+        return level;
     }
 }
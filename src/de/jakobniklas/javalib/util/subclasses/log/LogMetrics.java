@@ -0,0 +1,225 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import de.jakobniklas.javalib.util.Log;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of what logging itself costs, updated by {@link Log} and the file based {@link LevelImplementation}s. Every
+ * counter is a {@link LongAdder} or {@link LongAccumulator}, which spread concurrent updates over several cells, so
+ * counting does not make the threads of a print statement contend. A consistent view is taken with {@link
+ * #snapshot(AsyncLogDispatcher)}
+ *
+ * @author Jakob-Niklas See
+ * @see Log#getMetrics()
+ * @see #snapshot(AsyncLogDispatcher)
+ * @see #reset()
+ * @see LogMetricsSnapshot
+ */
+public class LogMetrics
+{
+    /**
+     * The amount of written statements by the name of their logLevel
+     */
+    private final Map<String, LongAdder> records = new ConcurrentHashMap<>();
+
+    /**
+     * The amount of bytes written by every implementation by its {@link LevelImplementation#getName() name}, so
+     * implementations sharing a logLevel, e.g. through a {@link FanoutLevel}, are counted separately
+     */
+    private final Map<String, LongAdder> bytes = new ConcurrentHashMap<>();
+
+    /**
+     * The amount of records formatted according to the patterns
+     */
+    private final LongAdder formatted = new LongAdder();
+
+    /**
+     * The time spent formatting records according to the patterns in nanoseconds
+     */
+    private final LongAdder formatNanos = new LongAdder();
+
+    /**
+     * The amount of statements written because a sampler admitted them
+     */
+    private final LongAdder sampled = new LongAdder();
+
+    /**
+     * The amount of statements suppressed by a sampler
+     */
+    private final LongAdder suppressed = new LongAdder();
+
+    /**
+     * The amount of statements dropped by asynchronous dispatchers which were closed since
+     */
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * The amount of flushes of implementations
+     */
+    private final LongAdder flushes = new LongAdder();
+
+    /**
+     * The time spent flushing implementations in nanoseconds
+     */
+    private final LongAdder flushNanos = new LongAdder();
+
+    /**
+     * The longest flush of an implementation in nanoseconds
+     */
+    private final LongAccumulator flushMax = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Counts a statement handed to the implementation of its logLevel
+     *
+     * @param level The logLevel of the statement
+     */
+    public void recordStatement(LogLevel level)
+    {
+        counter(records, level).increment();
+    }
+
+    /**
+     * Counts bytes written by an implementation
+     *
+     * @param sink  The implementation which wrote the bytes
+     * @param count The amount of bytes
+     */
+    public void recordBytes(LevelImplementation sink, long count)
+    {
+        String name = sink.getName();
+        LongAdder counter = bytes.get(name);
+
+        (counter != null ? counter : bytes.computeIfAbsent(name, (key) -> new LongAdder())).add(count);
+    }
+
+    /**
+     * Counts a record formatted according to the patterns
+     *
+     * @param nanos The time formatting took in nanoseconds
+     */
+    public void recordFormat(long nanos)
+    {
+        formatted.increment();
+        formatNanos.add(nanos);
+    }
+
+    /**
+     * Counts the decision of a sampler
+     *
+     * @param admitted If the statement is written
+     */
+    public void recordSampling(boolean admitted)
+    {
+        (admitted ? sampled : suppressed).increment();
+    }
+
+    /**
+     * Counts statements dropped by an asynchronous dispatcher which gets closed, so they are kept after it is replaced
+     *
+     * @param count The amount of dropped statements
+     */
+    public void recordDropped(long count)
+    {
+        dropped.add(count);
+    }
+
+    /**
+     * Counts a flush of an implementation
+     *
+     * @param nanos The time the flush took in nanoseconds
+     */
+    public void recordFlush(long nanos)
+    {
+        flushes.increment();
+        flushNanos.add(nanos);
+        flushMax.accumulate(nanos);
+    }
+
+    /**
+     * Reads every counter. Counters updated concurrently may already contain some of the concurrent updates
+     *
+     * @param dispatcher The current asynchronous dispatcher whose queue is included, {@code null} if logging is
+     *                   synchronous
+     *
+     * @return The current values of the counters
+     */
+    public LogMetricsSnapshot snapshot(AsyncLogDispatcher dispatcher)
+    {
+        int queueDepth = 0;
+        int queueCapacity = 0;
+        int queueHighWaterMark = 0;
+        long queueDropped = 0;
+
+        if(dispatcher != null)
+        {
+            queueDepth = dispatcher.getSize();
+            queueCapacity = dispatcher.getCapacity();
+            queueHighWaterMark = dispatcher.getHighWaterMark();
+            queueDropped = dispatcher.getDropped();
+        }
+
+        return new LogMetricsSnapshot(
+            sums(records),
+            sums(bytes),
+            formatted.sum(),
+            formatNanos.sum(),
+            queueDepth,
+            queueCapacity,
+            queueHighWaterMark,
+            dropped.sum() + queueDropped,
+            sampled.sum(),
+            suppressed.sum(),
+            flushes.sum(),
+            flushNanos.sum(),
+            flushMax.get());
+    }
+
+    /**
+     * Sets every counter back to 0. Updates made concurrently may be kept partially
+     */
+    public void reset()
+    {
+        records.values().forEach(LongAdder::reset);
+        bytes.values().forEach(LongAdder::reset);
+        formatted.reset();
+        formatNanos.reset();
+        sampled.reset();
+        suppressed.reset();
+        dropped.reset();
+        flushes.reset();
+        flushNanos.reset();
+        flushMax.reset();
+    }
+
+    /**
+     * @param counters Counters by the name of a logLevel
+     * @param level    A logLevel
+     *
+     * @return The counter of the logLevel, added if it has none yet
+     */
+    private static LongAdder counter(Map<String, LongAdder> counters, LogLevel level)
+    {
+        String key = level == null ? "null" : level.getLevel();
+        LongAdder counter = counters.get(key);
+
+        return counter != null ? counter : counters.computeIfAbsent(key, (name) -> new LongAdder());
+    }
+
+    /**
+     * @param counters Counters by a name
+     *
+     * @return The sums of the counters, sorted by their names
+     */
+    private static Map<String, Long> sums(Map<String, LongAdder> counters)
+    {
+        Map<String, Long> sums = new TreeMap<>();
+        counters.forEach((key, counter) -> sums.put(key, counter.sum()));
+
+        return sums;
+    }
+}
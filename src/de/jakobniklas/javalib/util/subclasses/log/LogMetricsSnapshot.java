@@ -0,0 +1,272 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The values of the {@link LogMetrics} at one point in time
+ *
+ * @author Jakob-Niklas See
+ * @see LogMetrics#snapshot(AsyncLogDispatcher)
+ * @see #summary()
+ */
+public final class LogMetricsSnapshot
+{
+    /**
+     * The amount of written statements by the name of their logLevel
+     */
+    private final Map<String, Long> records;
+
+    /**
+     * The amount of bytes written by every implementation, by its {@link LevelImplementation#getName() name}
+     */
+    private final Map<String, Long> bytes;
+
+    /**
+     * The amount of records formatted according to the patterns
+     */
+    private final long formatted;
+
+    /**
+     * The time spent formatting records according to the patterns in nanoseconds
+     */
+    private final long formatNanos;
+
+    /**
+     * The amount of statements waiting in the queue of the asynchronous dispatcher
+     */
+    private final int queueDepth;
+
+    /**
+     * The amount of statements the queue of the asynchronous dispatcher can hold, 0 if logging is synchronous
+     */
+    private final int queueCapacity;
+
+    /**
+     * The highest amount of statements which waited in the queue of the asynchronous dispatcher at once
+     */
+    private final int queueHighWaterMark;
+
+    /**
+     * The amount of statements dropped because the queue of an asynchronous dispatcher was full
+     */
+    private final long dropped;
+
+    /**
+     * The amount of statements written because a sampler admitted them
+     */
+    private final long sampled;
+
+    /**
+     * The amount of statements suppressed by a sampler
+     */
+    private final long suppressed;
+
+    /**
+     * The amount of flushes of implementations
+     */
+    private final long flushes;
+
+    /**
+     * The time spent flushing implementations in nanoseconds
+     */
+    private final long flushNanos;
+
+    /**
+     * The longest flush of an implementation in nanoseconds
+     */
+    private final long flushMax;
+
+    /**
+     * @param records            {@link #records}
+     * @param bytes              {@link #bytes}
+     * @param formatted          {@link #formatted}
+     * @param formatNanos        {@link #formatNanos}
+     * @param queueDepth         {@link #queueDepth}
+     * @param queueCapacity      {@link #queueCapacity}
+     * @param queueHighWaterMark {@link #queueHighWaterMark}
+     * @param dropped            {@link #dropped}
+     * @param sampled            {@link #sampled}
+     * @param suppressed         {@link #suppressed}
+     * @param flushes            {@link #flushes}
+     * @param flushNanos         {@link #flushNanos}
+     * @param flushMax           {@link #flushMax}
+     */
+    public LogMetricsSnapshot(Map<String, Long> records, Map<String, Long> bytes, long formatted, long formatNanos, int queueDepth, int queueCapacity, int queueHighWaterMark, long dropped, long sampled, long suppressed, long flushes, long flushNanos, long flushMax)
+    {
+        this.records = Collections.unmodifiableMap(records);
+        this.bytes = Collections.unmodifiableMap(bytes);
+        this.formatted = formatted;
+        this.formatNanos = formatNanos;
+        this.queueDepth = queueDepth;
+        this.queueCapacity = queueCapacity;
+        this.queueHighWaterMark = queueHighWaterMark;
+        this.dropped = dropped;
+        this.sampled = sampled;
+        this.suppressed = suppressed;
+        this.flushes = flushes;
+        this.flushNanos = flushNanos;
+        this.flushMax = flushMax;
+    }
+
+    /**
+     * @return Every value in one line, e.g. for a periodic report
+     */
+    public String summary()
+    {
+        return "records=" + records +
+            ", bytes=" + bytes +
+            ", formatted=" + formatted +
+            ", format=" + LatencyHistogram.formatNanos(getMeanFormatNanos()) +
+            ", queue=" + queueDepth + "/" + queueCapacity +
+            ", highWaterMark=" + queueHighWaterMark +
+            ", dropped=" + dropped +
+            ", sampled=" + sampled +
+            ", suppressed=" + suppressed +
+            ", flushes=" + flushes +
+            ", flush=" + LatencyHistogram.formatNanos(getMeanFlushNanos()) +
+            ", flushMax=" + LatencyHistogram.formatNanos(flushMax);
+    }
+
+    /**
+     * @return The total amount of written statements of every logLevel
+     */
+    public long getTotalRecords()
+    {
+        return records.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * @return The total amount of bytes written by every implementation
+     */
+    public long getTotalBytes()
+    {
+        return bytes.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * @return The mean time formatting a record took in nanoseconds, 0 if nothing was formatted
+     */
+    public long getMeanFormatNanos()
+    {
+        return formatted == 0 ? 0 : formatNanos / formatted;
+    }
+
+    /**
+     * @return The mean time a flush took in nanoseconds, 0 if nothing was flushed
+     */
+    public long getMeanFlushNanos()
+    {
+        return flushes == 0 ? 0 : flushNanos / flushes;
+    }
+
+    /**
+     * @return {@link #records}
+     */
+    public Map<String, Long> getRecords()
+    {
+        return records;
+    }
+
+    /**
+     * @return {@link #bytes}
+     */
+    public Map<String, Long> getBytes()
+    {
+        return bytes;
+    }
+
+    /**
+     * @return {@link #formatted}
+     */
+    public long getFormatted()
+    {
+        return formatted;
+    }
+
+    /**
+     * @return {@link #formatNanos}
+     */
+    public long getFormatNanos()
+    {
+        return formatNanos;
+    }
+
+    /**
+     * @return {@link #queueDepth}
+     */
+    public int getQueueDepth()
+    {
+        return queueDepth;
+    }
+
+    /**
+     * @return {@link #queueCapacity}
+     */
+    public int getQueueCapacity()
+    {
+        return queueCapacity;
+    }
+
+    /**
+     * @return {@link #queueHighWaterMark}
+     */
+    public int getQueueHighWaterMark()
+    {
+        return queueHighWaterMark;
+    }
+
+    /**
+     * @return {@link #dropped}
+     */
+    public long getDropped()
+    {
+        return dropped;
+    }
+
+    /**
+     * @return {@link #sampled}
+     */
+    public long getSampled()
+    {
+        return sampled;
+    }
+
+    /**
+     * @return {@link #suppressed}
+     */
+    public long getSuppressed()
+    {
+        return suppressed;
+    }
+
+    /**
+     * @return {@link #flushes}
+     */
+    public long getFlushes()
+    {
+        return flushes;
+    }
+
+    /**
+     * @return {@link #flushNanos}
+     */
+    public long getFlushNanos()
+    {
+        return flushNanos;
+    }
+
+    /**
+     * @return {@link #flushMax}
+     */
+    public long getFlushMax()
+    {
+        return flushMax;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "LogMetricsSnapshot{" + summary() + '}';
+    }
+}
@@ -2,8 +2,18 @@ package de.jakobniklas.javalib.util.subclasses.log;
 
 import de.jakobniklas.javalib.util.Log;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
- * Class to define the pattern used in {@link Log#print(String, String)}
+ * Class to define the pattern used in {@link Log#print(String, String)}. The pattern gets compiled once into a fixed
+ * list of literal segments and section references (defined as {@code "text #key text"}), so that rendering a log line
+ * is a single pass without regular expressions
+ * <p>
+ * A pattern is rendered by every logging thread concurrently: the compiled form is published as a whole when the
+ * pattern is set, and the {@link #length} only ever grows through a compare-and-set
  *
  * @author Jakob-Niklas See
  * @see #pattern
@@ -13,6 +23,10 @@ import de.jakobniklas.javalib.util.Log;
  * @see #setPattern(String)
  * @see #getLength()
  * @see #setLength(int)
+ * @see #render(Map, StringBuilder)
+ * @see #render(LogRecord, StringBuilder)
+ * @see #references(String)
+ * @see #referencesCaller()
  * @see Log#defaultSections()
  */
 public class LogPattern
@@ -20,12 +34,18 @@ public class LogPattern
     /**
      * The stored pattern for the section
      */
-    private String pattern;
+    private volatile String pattern;
 
     /**
-     * The length of the section, used to append spaces
+     * The length of the section, used to append spaces. Only widened by {@link #pad(StringBuilder, int)} unless set
+     * explicitly
      */
-    private int length;
+    private final AtomicInteger length = new AtomicInteger();
+
+    /**
+     * The compiled form of the {@link #pattern}
+     */
+    private volatile Compiled compiled;
 
     /**
      * Creates a new section which stores pattern and a default length of 0
@@ -34,8 +54,192 @@ public class LogPattern
      */
     public LogPattern(String pattern)
     {
-        this.pattern = pattern;
-        length = 0;
+        setPattern(pattern);
+    }
+
+    /**
+     * Splits the {@link #pattern} into {@link #segments}. A section reference is a {@code '#'} followed by one or more
+     * ASCII letters, every other character is kept as literal text
+     *
+     * @param pattern The pattern to be compiled
+     *
+     * @return The compiled pattern
+     */
+    private static Compiled compile(String pattern)
+    {
+        String source = pattern == null ? "null" : pattern;
+        List<String> segmentList = new ArrayList<>();
+        List<Boolean> referenceList = new ArrayList<>();
+        int literalStart = 0;
+        int index = 0;
+
+        while(index < source.length())
+        {
+            int keyEnd = index + 1;
+
+            if(source.charAt(index) == '#')
+            {
+                while(keyEnd < source.length() && isKeyCharacter(source.charAt(keyEnd)))
+                {
+                    keyEnd++;
+                }
+            }
+
+            if(keyEnd > index + 1)
+            {
+                if(literalStart < index)
+                {
+                    segmentList.add(source.substring(literalStart, index));
+                    referenceList.add(false);
+                }
+
+                segmentList.add(source.substring(index + 1, keyEnd));
+                referenceList.add(true);
+
+                literalStart = keyEnd;
+                index = keyEnd;
+            }
+            else
+            {
+                index++;
+            }
+        }
+
+        if(literalStart < source.length())
+        {
+            segmentList.add(source.substring(literalStart));
+            referenceList.add(false);
+        }
+
+        String[] segments = segmentList.toArray(new String[0]);
+        boolean[] references = new boolean[segments.length];
+        int[] sectionIds = new int[segments.length];
+        boolean caller = false;
+
+        for(int i = 0; i < references.length; i++)
+        {
+            references[i] = referenceList.get(i);
+            sectionIds[i] = references[i] ? LogRecord.sectionId(segments[i]) : LogRecord.CUSTOM;
+            caller |= sectionIds[i] >= LogRecord.CLASS && sectionIds[i] <= LogRecord.FILE;
+        }
+
+        return new Compiled(segments, references, sectionIds, caller);
+    }
+
+    /**
+     * @param character A character of the pattern
+     *
+     * @return If the character can be part of a section key
+     */
+    private static boolean isKeyCharacter(char character)
+    {
+        return (character >= 'a' && character <= 'z') || (character >= 'A' && character <= 'Z');
+    }
+
+    /**
+     * Appends the pattern with every section reference replaced by its value to a given builder, padded with spaces
+     * to the longest output of this pattern so far. Missing sections are rendered as {@code "null"}
+     *
+     * @param sections The sections defining values of keys referenced in the pattern
+     * @param output   The builder to append to
+     */
+    public void render(Map<String, String> sections, StringBuilder output)
+    {
+        Compiled compiled = this.compiled;
+        String[] segments = compiled.segments;
+        boolean[] references = compiled.references;
+        int start = output.length();
+
+        for(int i = 0; i < segments.length; i++)
+        {
+            output.append(references[i] ? sections.get(segments[i]) : segments[i]);
+        }
+
+        pad(output, output.length() - start);
+    }
+
+    /**
+     * Appends the pattern with every section reference replaced by the section of a record to a given builder, padded
+     * with spaces to the longest output of this pattern so far. Numeric sections are appended without creating a
+     * String
+     *
+     * @param record The record defining the values of keys referenced in the pattern
+     * @param output The builder to append to
+     */
+    public void render(LogRecord record, StringBuilder output)
+    {
+        Compiled compiled = this.compiled;
+        String[] segments = compiled.segments;
+        boolean[] references = compiled.references;
+        int[] sectionIds = compiled.sectionIds;
+        int start = output.length();
+
+        for(int i = 0; i < segments.length; i++)
+        {
+            if(references[i])
+            {
+                record.appendSection(sectionIds[i], segments[i], output);
+            }
+            else
+            {
+                output.append(segments[i]);
+            }
+        }
+
+        pad(output, output.length() - start);
+    }
+
+    /**
+     * Widens the {@link #length} to a rendered length and appends spaces up to it. Widening retries its compare-and-set
+     * until the length is at least the rendered length, so a concurrent narrower render can never shrink it
+     *
+     * @param output   The builder the pattern was rendered to
+     * @param rendered The length of the rendered pattern
+     */
+    private void pad(StringBuilder output, int rendered)
+    {
+        int current = length.get();
+
+        while(current < rendered && !length.compareAndSet(current, rendered))
+        {
+            current = length.get();
+        }
+
+        for(int i = rendered; i < current; i++)
+        {
+            output.append(' ');
+        }
+    }
+
+    /**
+     * @param key The key of a section
+     *
+     * @return If the pattern references the section with the given key
+     */
+    public boolean references(String key)
+    {
+        Compiled compiled = this.compiled;
+        String[] segments = compiled.segments;
+        boolean[] references = compiled.references;
+
+        for(int i = 0; i < segments.length; i++)
+        {
+            if(references[i] && segments[i].equals(key))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return If the pattern references a section describing the caller of a print statement (class, method, line or
+     * file)
+     */
+    public boolean referencesCaller()
+    {
+        return compiled.caller;
     }
 
     /**
@@ -49,12 +253,13 @@ public class LogPattern
     }
 
     /**
-     * Sets the stored pattern
+     * Sets and compiles the stored pattern
      *
      * @param pattern {@link #pattern}
      */
     public void setPattern(String pattern)
     {
+        this.compiled = compile(pattern);
         this.pattern = pattern;
     }
 
@@ -65,7 +270,7 @@ public class LogPattern
      */
     public int getLength()
     {
-        return length;
+        return length.get();
     }
 
     /**
@@ -75,7 +280,7 @@ public class LogPattern
      */
     public void setLength(int length)
     {
-        this.length = length;
+        this.length.set(length);
     }
 
     @Override
@@ -86,4 +291,44 @@ public class LogPattern
             ", length=" + length +
             '}';
     }
+
+    /**
+     * The immutable compiled form of a pattern, replaced as a whole when the pattern changes
+     */
+    private static final class Compiled
+    {
+        /**
+         * The segments of the pattern, either literal text or the key of a section
+         */
+        private final String[] segments;
+
+        /**
+         * Marks which of the {@link #segments} are section keys
+         */
+        private final boolean[] references;
+
+        /**
+         * The {@link LogRecord#sectionId(String)} of every segment which is a section key
+         */
+        private final int[] sectionIds;
+
+        /**
+         * If any segment references a section describing the caller
+         */
+        private final boolean caller;
+
+        /**
+         * @param segments   {@link #segments}
+         * @param references {@link #references}
+         * @param sectionIds {@link #sectionIds}
+         * @param caller     {@link #caller}
+         */
+        private Compiled(String[] segments, boolean[] references, int[] sectionIds, boolean caller)
+        {
+            this.segments = segments;
+            this.references = references;
+            this.sectionIds = sectionIds;
+            this.caller = caller;
+        }
+    }
 }
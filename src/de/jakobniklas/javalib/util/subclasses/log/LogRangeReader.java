@@ -0,0 +1,206 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Reads the lines of a log file within a time range. The {@link TimeIndex} of the file is searched for the offset to
+ * start at, so only the lines around the range are read instead of the whole file. Lines without a timestamp, like the
+ * continuation of a multi-line message, belong to the line before them
+ * <p>
+ * As lines can be written slightly out of order, e.g. by several threads, reading starts {@link #ORDER_TOLERANCE}
+ * before the range and only stops once a line is that far behind it
+ *
+ * <pre>{@code
+ * new LogRangeReader(new File("app.log")).read(from, to, System.out::println);
+ * }</pre>
+ *
+ * @author Jakob-Niklas See
+ * @see #LogRangeReader(File)
+ * @see #LogRangeReader(File, TimestampParser, Charset)
+ * @see #read(long, long, Consumer)
+ * @see #renderTo(long, long, Appendable)
+ * @see #rebuildIndex(long)
+ * @see TimeIndex
+ */
+public class LogRangeReader
+{
+    /**
+     * How far in milliseconds lines may be out of order
+     */
+    public static final long ORDER_TOLERANCE = 1000;
+
+    /**
+     * The size of the buffer lines are read with
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The log file
+     */
+    private final File file;
+
+    /**
+     * The parser of the timestamps of the lines
+     */
+    private final TimestampParser parser;
+
+    /**
+     * The charset of the log file
+     */
+    private final Charset charset;
+
+    /**
+     * The index of the log file, empty if it has none
+     */
+    private TimeIndex index;
+
+    /**
+     * Opens a UTF-8 log file written with the default patterns
+     *
+     * @param file {@link #file}
+     *
+     * @throws IOException If the index could not be read
+     */
+    public LogRangeReader(File file) throws IOException
+    {
+        this(file, TimestampParser.PATTERNS, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Opens a log file
+     *
+     * @param file    {@link #file}
+     * @param parser  {@link #parser} (can be a lambda expression)
+     * @param charset {@link #charset}
+     *
+     * @throws IOException If the index could not be read
+     */
+    public LogRangeReader(File file, TimestampParser parser, Charset charset) throws IOException
+    {
+        this.file = file;
+        this.parser = parser;
+        this.charset = charset;
+
+        index = TimeIndex.load(file);
+    }
+
+    /**
+     * Replaces the index of the log file by sampling its lines, e.g. for files written without one
+     *
+     * @param spacing The amount of bytes between two samples
+     *
+     * @throws IOException If the log file could not be read or the index could not be written
+     *
+     * @see TimeIndex#rebuild(File, long, TimestampParser, Charset)
+     */
+    public void rebuildIndex(long spacing) throws IOException
+    {
+        index = TimeIndex.rebuild(file, spacing, parser, charset);
+    }
+
+    /**
+     * Passes every line within a time range to a consumer
+     *
+     * @param from  The first unix timestamp of the range
+     * @param to    The last unix timestamp of the range
+     * @param lines The consumer of the lines (can be a lambda expression)
+     *
+     * @return The amount of passed lines
+     *
+     * @throws IOException If the log file could not be read
+     */
+    public long read(long from, long to, Consumer<String> lines) throws IOException
+    {
+        long count = 0;
+
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            channel.position(index.floorOffset(from - ORDER_TOLERANCE));
+
+            BufferedReader reader = new BufferedReader(Channels.newReader(channel, charset), BUFFER_SIZE);
+            boolean including = false;
+            String line;
+
+            while((line = reader.readLine()) != null)
+            {
+                long timestamp = parser.parse(line);
+
+                if(timestamp >= 0)
+                {
+                    if(timestamp > to + ORDER_TOLERANCE)
+                    {
+                        break;
+                    }
+
+                    including = timestamp >= from && timestamp <= to;
+                }
+
+                if(including)
+                {
+                    lines.accept(line);
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Appends every line within a time range to an output, one line per entry
+     *
+     * @param from   The first unix timestamp of the range
+     * @param to     The last unix timestamp of the range
+     * @param output The destination of the lines
+     *
+     * @return The amount of appended lines
+     *
+     * @throws IOException If the log file could not be read or the output could not be written
+     */
+    public long renderTo(long from, long to, Appendable output) throws IOException
+    {
+        try
+        {
+            return read(from, to, (line) ->
+            {
+                try
+                {
+                    output.append(line).append(System.lineSeparator());
+                }
+                catch(IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        catch(UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @return {@link #file}
+     */
+    public File getFile()
+    {
+        return file;
+    }
+
+    /**
+     * @return {@link #index}
+     */
+    public TimeIndex getIndex()
+    {
+        return index;
+    }
+}
@@ -0,0 +1,978 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import de.jakobniklas.javalib.util.TimeUtil;
+import de.jakobniklas.javalib.util.subclasses.format.NumberScanner;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A reusable, fixed-slot representation of a single log statement. Records are taken from a thread-local or a ring
+ * buffer slot and reset after use, so that printing does not allocate a map of sections. Numbers like the timestamp,
+ * the line and the thread id are kept as primitives and appended to the output without being converted to a String
+ * first.
+ * <p>
+ * Every known section is stored in its own field, any other section (e.g. set by a {@link LogSection} with a custom
+ * key) is stored as an override which takes precedence when rendering. A record is only valid for the duration of the
+ * call it was passed to and must be copied with {@link #copyFrom(LogRecord)} if it should be kept
+ *
+ * @author Jakob-Niklas See
+ * @see #sectionId(String)
+ * @see #set(String, String)
+ * @see #get(String)
+ * @see #appendSection(int, String, StringBuilder)
+ * @see #copyFrom(LogRecord)
+ * @see #clear()
+ * @see #toSections()
+ * @see #setMessage(MessageStyle, String, Object[])
+ * @see #bufferMessage()
+ * @see #appendMessage(StringBuilder)
+ */
+public class LogRecord
+{
+    /**
+     * Id of a section which is not a known field of the record
+     */
+    public static final int CUSTOM = -1;
+
+    /**
+     * Id of the {@code date} section, rendered from {@link #timestamp}
+     */
+    public static final int DATE = 0;
+
+    /**
+     * Id of the {@code time} section, rendered from {@link #timestamp}
+     */
+    public static final int TIME = 1;
+
+    /**
+     * Id of the {@code milliseconds} section
+     */
+    public static final int MILLISECONDS = 2;
+
+    /**
+     * Id of the {@code prefix} section
+     */
+    public static final int PREFIX = 3;
+
+    /**
+     * Id of the {@code logPointer} section
+     */
+    public static final int LOG_POINTER = 4;
+
+    /**
+     * Id of the {@code message} section
+     */
+    public static final int MESSAGE = 5;
+
+    /**
+     * Id of the {@code class} section
+     */
+    public static final int CLASS = 6;
+
+    /**
+     * Id of the {@code method} section
+     */
+    public static final int METHOD = 7;
+
+    /**
+     * Id of the {@code line} section
+     */
+    public static final int LINE = 8;
+
+    /**
+     * Id of the {@code file} section
+     */
+    public static final int FILE = 9;
+
+    /**
+     * Id of the {@code thread} section
+     */
+    public static final int THREAD = 10;
+
+    /**
+     * Id of the {@code threadId} section
+     */
+    public static final int THREAD_ID = 11;
+
+    /**
+     * The keys of the known sections, indexed by their id
+     */
+    private static final String[] SECTION_KEYS = {"date", "time", "milliseconds", "prefix", "logPointer", "message",
+        "class", "method", "line", "file", "thread", "threadId"};
+
+    /**
+     * Bitmask of every known section
+     */
+    private static final int ALL_SECTIONS = (1 << SECTION_KEYS.length) - 1;
+
+    /**
+     * Bitmask of the sections describing the caller
+     */
+    private static final int CALLER_SECTIONS = (1 << CLASS) | (1 << METHOD) | (1 << LINE) | (1 << FILE);
+
+    /**
+     * The capacity up to which the {@link #messageBuffer} is kept when the record is cleared
+     */
+    private static final int MAX_RETAINED_BUFFER = 8192;
+
+    /**
+     * The level the record is written to
+     */
+    private LogLevel level;
+
+    /**
+     * The unix timestamp of the statement in milliseconds
+     */
+    private long timestamp;
+
+    /**
+     * The prefix of the statement
+     */
+    private String prefix;
+
+    /**
+     * The character splitting prefix and message
+     */
+    private char logPointer;
+
+    /**
+     * The message of the statement
+     */
+    private String message;
+
+    /**
+     * The message of the statement containing the positions of {@link #messageArgs}, {@code null} if the message has no
+     * arguments
+     */
+    private String messageTemplate;
+
+    /**
+     * The arguments inserted into the {@link #messageTemplate} when rendering
+     */
+    private Object[] messageArgs;
+
+    /**
+     * The style of the {@link #messageTemplate}
+     */
+    private MessageStyle messageStyle;
+
+    /**
+     * Holds the message after the arguments were inserted by {@link #bufferMessage()}
+     */
+    private StringBuilder messageBuffer = new StringBuilder(64);
+
+    /**
+     * If the message is stored in the {@link #messageBuffer}
+     */
+    private boolean messageBuffered;
+
+    /**
+     * The amount of statements of the same call site or prefix which were suppressed by a {@link LogSampler} since the
+     * previous written one, appended to the message if it is not 0
+     */
+    private long suppressed;
+
+    /**
+     * The name of the class calling any log method
+     */
+    private String className;
+
+    /**
+     * The name of the method calling any log method
+     */
+    private String methodName;
+
+    /**
+     * The line in the method calling any log method
+     */
+    private int line;
+
+    /**
+     * The file of the class calling any log method
+     */
+    private String fileName;
+
+    /**
+     * The name of the thread calling any log method
+     */
+    private String threadName;
+
+    /**
+     * The id of the thread calling any log method
+     */
+    private long threadId;
+
+    /**
+     * Bitmask of the known sections which were set, sections without their bit are rendered as {@code "null"}
+     */
+    private int present;
+
+    /**
+     * Keys of the overriding sections
+     */
+    private String[] customKeys = new String[4];
+
+    /**
+     * Values of the overriding sections
+     */
+    private String[] customValues = new String[4];
+
+    /**
+     * Amount of overriding sections
+     */
+    private int customCount;
+
+    /**
+     * If the record is currently used by a print statement, guards against reusing a thread-local record while it is
+     * being written (e.g. if a {@link LevelImplementation} logs)
+     */
+    private boolean inUse;
+
+    /**
+     * Returns the id of a section key, used to compile a {@link LogPattern}
+     *
+     * @param key The key of a section
+     *
+     * @return The id of a known section or {@link #CUSTOM}
+     */
+    public static int sectionId(String key)
+    {
+        for(int i = 0; i < SECTION_KEYS.length; i++)
+        {
+            if(SECTION_KEYS[i].equals(key))
+            {
+                return i;
+            }
+        }
+
+        return CUSTOM;
+    }
+
+    /**
+     * Fills every section except the caller sections with the current state of the calling thread
+     *
+     * @param level      {@link #level}
+     * @param prefix     {@link #prefix}
+     * @param message    {@link #message}
+     * @param logPointer {@link #logPointer}
+     */
+    public void capture(LogLevel level, String prefix, String message, char logPointer)
+    {
+        Thread thread = Thread.currentThread();
+
+        this.level = level;
+        this.timestamp = System.currentTimeMillis();
+        this.prefix = prefix;
+        this.logPointer = logPointer;
+
+        setMessage(message);
+        this.threadName = thread.getName();
+        this.threadId = thread.getId();
+
+        present = ALL_SECTIONS & ~CALLER_SECTIONS;
+    }
+
+    /**
+     * Fills every section except the caller sections and the message with given values instead of the state of the
+     * calling thread, e.g. when a record is read back from a stored log
+     *
+     * @param level      {@link #level}
+     * @param timestamp  {@link #timestamp}
+     * @param prefix     {@link #prefix}
+     * @param logPointer {@link #logPointer}
+     * @param threadName {@link #threadName}
+     * @param threadId   {@link #threadId}
+     */
+    public void restore(LogLevel level, long timestamp, String prefix, char logPointer, String threadName, long threadId)
+    {
+        this.level = level;
+        this.timestamp = timestamp;
+        this.prefix = prefix;
+        this.logPointer = logPointer;
+        this.threadName = threadName;
+        this.threadId = threadId;
+
+        present = ALL_SECTIONS & ~CALLER_SECTIONS & ~(1 << MESSAGE);
+    }
+
+    /**
+     * Sets the caller sections
+     *
+     * @param className  {@link #className}
+     * @param methodName {@link #methodName}
+     * @param line       {@link #line}
+     * @param fileName   {@link #fileName}
+     */
+    public void setCaller(String className, String methodName, int line, String fileName)
+    {
+        this.className = className;
+        this.methodName = methodName;
+        this.line = line;
+        this.fileName = fileName;
+
+        present |= CALLER_SECTIONS;
+    }
+
+    /**
+     * Sets a section by its key. Known sections are stored in their field (numeric sections only if the value is a
+     * number), every other section is stored as an override
+     *
+     * @param key   The key of the section
+     * @param value The value of the section
+     */
+    public void set(String key, String value)
+    {
+        int id = sectionId(key);
+
+        switch(id)
+        {
+            case PREFIX:
+                prefix = value;
+                break;
+            case MESSAGE:
+                setMessage(value);
+                break;
+            case CLASS:
+                className = value;
+                break;
+            case METHOD:
+                methodName = value;
+                break;
+            case FILE:
+                fileName = value;
+                break;
+            case THREAD:
+                threadName = value;
+                break;
+            case MILLISECONDS:
+            case LINE:
+            case THREAD_ID:
+                if(!setNumber(id, value))
+                {
+                    putCustom(key, value);
+
+                    return;
+                }
+
+                break;
+            case LOG_POINTER:
+                if(value == null || value.length() != 1)
+                {
+                    putCustom(key, value);
+
+                    return;
+                }
+
+                logPointer = value.charAt(0);
+                break;
+            default:
+                putCustom(key, value);
+
+                return;
+        }
+
+        present |= 1 << id;
+        removeCustom(key);
+    }
+
+    /**
+     * Sets a numeric section from its String value
+     *
+     * @param id    The id of the section
+     * @param value The value of the section
+     *
+     * @return If the value was a number which fits the section
+     */
+    private boolean setNumber(int id, String value)
+    {
+        if(value == null || !NumberScanner.isLong(value, 0, value.length()))
+        {
+            return false;
+        }
+
+        long number = NumberScanner.parseLong(value, 0, value.length(), 0);
+
+        if(id == MILLISECONDS)
+        {
+            timestamp = number;
+        }
+        else if(id == THREAD_ID)
+        {
+            threadId = number;
+        }
+        else if(number == (int) number)
+        {
+            line = (int) number;
+        }
+        else
+        {
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the value of a section as a String
+     *
+     * @param key The key of the section
+     *
+     * @return The value, {@code null} if the section was not set
+     */
+    public String get(String key)
+    {
+        String custom = getCustom(key);
+
+        if(custom != null)
+        {
+            return custom;
+        }
+
+        int id = sectionId(key);
+
+        if(id == CUSTOM || (present & (1 << id)) == 0)
+        {
+            return null;
+        }
+
+        StringBuilder output = new StringBuilder();
+        appendSection(id, key, output);
+
+        return output.toString();
+    }
+
+    /**
+     * Appends the value of a section to a given builder. Overrides are looked up first, known sections which were not
+     * set and unknown sections are rendered as {@code "null"}
+     *
+     * @param id     The id of the section ({@link #sectionId(String)})
+     * @param key    The key of the section
+     * @param output The builder to append to
+     */
+    public void appendSection(int id, String key, StringBuilder output)
+    {
+        if(customCount > 0)
+        {
+            String custom = getCustom(key);
+
+            if(custom != null)
+            {
+                output.append(custom);
+
+                return;
+            }
+        }
+
+        if(id == CUSTOM || (present & (1 << id)) == 0)
+        {
+            output.append("null");
+
+            return;
+        }
+
+        switch(id)
+        {
+            case DATE:
+                output.append(TimeUtil.getDate(timestamp));
+                break;
+            case TIME:
+                output.append(TimeUtil.getTime(timestamp));
+                break;
+            case MILLISECONDS:
+                output.append(timestamp);
+                break;
+            case PREFIX:
+                output.append(prefix);
+                break;
+            case LOG_POINTER:
+                output.append(logPointer);
+                break;
+            case MESSAGE:
+                appendMessage(output);
+                break;
+            case CLASS:
+                output.append(className);
+                break;
+            case METHOD:
+                output.append(methodName);
+                break;
+            case LINE:
+                output.append(line);
+                break;
+            case FILE:
+                output.append(fileName);
+                break;
+            case THREAD:
+                output.append(threadName);
+                break;
+            case THREAD_ID:
+                output.append(threadId);
+                break;
+        }
+    }
+
+    /**
+     * Sets a message without arguments
+     *
+     * @param message {@link #message}
+     */
+    public void setMessage(String message)
+    {
+        this.message = message;
+        messageTemplate = null;
+        messageArgs = null;
+        messageBuffered = false;
+        present |= 1 << MESSAGE;
+    }
+
+    /**
+     * Sets a message whose arguments are only inserted when the record is rendered, which may happen on another thread
+     * for asynchronous logging
+     *
+     * @param style    {@link #messageStyle}
+     * @param template {@link #messageTemplate}
+     * @param args     {@link #messageArgs}
+     */
+    public void setMessage(MessageStyle style, String template, Object[] args)
+    {
+        message = null;
+        messageStyle = style;
+        messageTemplate = template;
+        messageArgs = args;
+        messageBuffered = false;
+        present |= 1 << MESSAGE;
+    }
+
+    /**
+     * Inserts the arguments of the message into the {@link #messageBuffer} now, e.g. because they might change before
+     * the record is rendered on another thread
+     */
+    public void bufferMessage()
+    {
+        if(messageArgs != null)
+        {
+            messageBuffer.setLength(0);
+            MessageFormatter.format(messageStyle, messageTemplate, messageArgs, messageBuffer);
+
+            messageTemplate = null;
+            messageArgs = null;
+            messageBuffered = true;
+        }
+    }
+
+    /**
+     * @return If the message has arguments which were not inserted yet
+     */
+    public boolean hasMessageArgs()
+    {
+        return messageArgs != null;
+    }
+
+    /**
+     * Appends the message with its arguments inserted to a given builder, followed by the amount of {@link #suppressed}
+     * statements if there are any
+     *
+     * @param output The builder to append to
+     */
+    public void appendMessage(StringBuilder output)
+    {
+        if(messageBuffered)
+        {
+            output.append(messageBuffer);
+        }
+        else if(messageArgs != null)
+        {
+            MessageFormatter.format(messageStyle, messageTemplate, messageArgs, output);
+        }
+        else
+        {
+            output.append(message);
+        }
+
+        if(suppressed > 0)
+        {
+            output.append(" [").append(suppressed).append(" suppressed]");
+        }
+    }
+
+    /**
+     * Copies every section of another record into this one, reusing the storage of this record
+     *
+     * @param other The record to copy
+     */
+    public void copyFrom(LogRecord other)
+    {
+        level = other.level;
+        timestamp = other.timestamp;
+        prefix = other.prefix;
+        logPointer = other.logPointer;
+        message = other.message;
+        messageTemplate = other.messageTemplate;
+        messageArgs = other.messageArgs;
+        messageStyle = other.messageStyle;
+        messageBuffered = other.messageBuffered;
+
+        if(messageBuffered)
+        {
+            messageBuffer.setLength(0);
+            messageBuffer.append(other.messageBuffer);
+        }
+
+        className = other.className;
+        methodName = other.methodName;
+        line = other.line;
+        fileName = other.fileName;
+        threadName = other.threadName;
+        threadId = other.threadId;
+        suppressed = other.suppressed;
+        present = other.present;
+
+        if(customKeys.length < other.customCount)
+        {
+            customKeys = new String[other.customKeys.length];
+            customValues = new String[other.customValues.length];
+        }
+
+        if(customCount > other.customCount)
+        {
+            Arrays.fill(customKeys, other.customCount, customCount, null);
+            Arrays.fill(customValues, other.customCount, customCount, null);
+        }
+
+        System.arraycopy(other.customKeys, 0, customKeys, 0, other.customCount);
+        System.arraycopy(other.customValues, 0, customValues, 0, other.customCount);
+        customCount = other.customCount;
+    }
+
+    /**
+     * Unsets every section and releases every reference, so that the record can be reused
+     */
+    public void clear()
+    {
+        level = null;
+        prefix = null;
+        message = null;
+        messageTemplate = null;
+        messageArgs = null;
+        messageStyle = null;
+        messageBuffered = false;
+        className = null;
+        methodName = null;
+        fileName = null;
+        threadName = null;
+        suppressed = 0;
+        present = 0;
+
+        if(messageBuffer.capacity() > MAX_RETAINED_BUFFER)
+        {
+            messageBuffer = new StringBuilder(64);
+        }
+
+        messageBuffer.setLength(0);
+        Arrays.fill(customKeys, 0, customCount, null);
+        Arrays.fill(customValues, 0, customCount, null);
+        customCount = 0;
+    }
+
+    /**
+     * @return Every section which was set as a map of Strings, as used by {@link de.jakobniklas.javalib.util.FormatUtil#formatLog(java.util.List,
+     * Map)}
+     */
+    public Map<String, String> toSections()
+    {
+        Map<String, String> sections = new HashMap<>();
+
+        for(int id = 0; id < SECTION_KEYS.length; id++)
+        {
+            if((present & (1 << id)) != 0)
+            {
+                sections.put(SECTION_KEYS[id], get(SECTION_KEYS[id]));
+            }
+        }
+
+        for(int i = 0; i < customCount; i++)
+        {
+            sections.put(customKeys[i], customValues[i]);
+        }
+
+        return sections;
+    }
+
+    /**
+     * @param key The key of an override
+     *
+     * @return The value of the override, {@code null} if there is none
+     */
+    private String getCustom(String key)
+    {
+        for(int i = 0; i < customCount; i++)
+        {
+            if(customKeys[i].equals(key))
+            {
+                return customValues[i];
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Adds or replaces an override
+     *
+     * @param key   The key of the override
+     * @param value The value of the override
+     */
+    private void putCustom(String key, String value)
+    {
+        for(int i = 0; i < customCount; i++)
+        {
+            if(customKeys[i].equals(key))
+            {
+                customValues[i] = value;
+
+                return;
+            }
+        }
+
+        if(customCount == customKeys.length)
+        {
+            customKeys = Arrays.copyOf(customKeys, customCount * 2);
+            customValues = Arrays.copyOf(customValues, customCount * 2);
+        }
+
+        customKeys[customCount] = key;
+        customValues[customCount] = value;
+        customCount++;
+    }
+
+    /**
+     * Removes an override, so that the field of a known section is rendered again
+     *
+     * @param key The key of the override
+     */
+    private void removeCustom(String key)
+    {
+        for(int i = 0; i < customCount; i++)
+        {
+            if(customKeys[i].equals(key))
+            {
+                customCount--;
+                customKeys[i] = customKeys[customCount];
+                customValues[i] = customValues[customCount];
+                customKeys[customCount] = null;
+                customValues[customCount] = null;
+
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return If the caller sections were set
+     */
+    public boolean hasCaller()
+    {
+        return (present & CALLER_SECTIONS) == CALLER_SECTIONS;
+    }
+
+    /**
+     * @return {@link #inUse}
+     */
+    public boolean isInUse()
+    {
+        return inUse;
+    }
+
+    /**
+     * @param inUse {@link #inUse}
+     */
+    public void setInUse(boolean inUse)
+    {
+        this.inUse = inUse;
+    }
+
+    /**
+     * @return {@link #level}
+     */
+    public LogLevel getLevel()
+    {
+        return level;
+    }
+
+    /**
+     * @param level {@link #level}
+     */
+    public void setLevel(LogLevel level)
+    {
+        this.level = level;
+    }
+
+    /**
+     * @return {@link #timestamp}
+     */
+    public long getTimestamp()
+    {
+        return timestamp;
+    }
+
+    /**
+     * @param timestamp {@link #timestamp}
+     */
+    public void setTimestamp(long timestamp)
+    {
+        this.timestamp = timestamp;
+        present |= (1 << DATE) | (1 << TIME) | (1 << MILLISECONDS);
+    }
+
+    /**
+     * @return {@link #prefix}
+     */
+    public String getPrefix()
+    {
+        return prefix;
+    }
+
+    /**
+     * @return {@link #logPointer}
+     */
+    public char getLogPointer()
+    {
+        return logPointer;
+    }
+
+    /**
+     * @return The message with its arguments inserted, creates a new String if the message has arguments
+     *
+     * @see #appendMessage(StringBuilder)
+     */
+    public String getMessage()
+    {
+        if(messageBuffered || messageArgs != null)
+        {
+            StringBuilder output = new StringBuilder();
+            appendMessage(output);
+
+            return output.toString();
+        }
+
+        return message;
+    }
+
+    /**
+     * @return {@link #suppressed}
+     */
+    public long getSuppressed()
+    {
+        return suppressed;
+    }
+
+    /**
+     * @param suppressed {@link #suppressed}
+     */
+    public void setSuppressed(long suppressed)
+    {
+        this.suppressed = suppressed;
+    }
+
+    /**
+     * @return {@link #messageTemplate}
+     */
+    public String getMessageTemplate()
+    {
+        return messageTemplate;
+    }
+
+    /**
+     * @return {@link #messageArgs}
+     */
+    public Object[] getMessageArgs()
+    {
+        return messageArgs;
+    }
+
+    /**
+     * @return {@link #messageStyle}
+     */
+    public MessageStyle getMessageStyle()
+    {
+        return messageStyle;
+    }
+
+    /**
+     * @return {@link #className}
+     */
+    public String getClassName()
+    {
+        return className;
+    }
+
+    /**
+     * @return {@link #methodName}
+     */
+    public String getMethodName()
+    {
+        return methodName;
+    }
+
+    /**
+     * @return {@link #line}
+     */
+    public int getLine()
+    {
+        return line;
+    }
+
+    /**
+     * @return {@link #fileName}
+     */
+    public String getFileName()
+    {
+        return fileName;
+    }
+
+    /**
+     * @return {@link #threadName}
+     */
+    public String getThreadName()
+    {
+        return threadName;
+    }
+
+    /**
+     * @return {@link #threadId}
+     */
+    public long getThreadId()
+    {
+        return threadId;
+    }
+
+    /**
+     * @return The amount of sections which are not a known field of the record
+     */
+    public int getCustomCount()
+    {
+        return customCount;
+    }
+
+    /**
+     * @param index The index of a section which is not a known field, smaller than {@link #getCustomCount()}
+     *
+     * @return The key of the section
+     */
+    public String getCustomKey(int index)
+    {
+        return customKeys[index];
+    }
+
+    /**
+     * @param index The index of a section which is not a known field, smaller than {@link #getCustomCount()}
+     *
+     * @return The value of the section
+     */
+    public String getCustomValue(int index)
+    {
+        return customValues[index];
+    }
+}
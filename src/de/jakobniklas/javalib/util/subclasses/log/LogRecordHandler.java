@@ -0,0 +1,26 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+/**
+ * Functional interface to be implemented as the consumer of an {@link AsyncLogDispatcher}
+ *
+ * @author Jakob-Niklas See
+ * @see #handle(LogRecord)
+ * @see #endOfBatch()
+ */
+@FunctionalInterface
+public interface LogRecordHandler
+{
+    /**
+     * Called on the consumer thread for every captured log statement (can be a lambda expression)
+     *
+     * @param record The captured statement, only valid for the duration of the call
+     */
+    void handle(LogRecord record);
+
+    /**
+     * Called on the consumer thread after every batch of records was handled
+     */
+    default void endOfBatch()
+    {
+    }
+}
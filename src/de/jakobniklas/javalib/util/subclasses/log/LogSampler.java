@@ -0,0 +1,312 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import de.jakobniklas.javalib.util.Log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Limits how many statements of a call site or prefix are written, set with {@link Log#setSampler(LogSampler)}. A
+ * statement is written if it is the first of every {@link #everyNth} statements and if the rate limit allows it. The
+ * rate limit is a generic cell rate algorithm: a site may write {@link #perSecond} statements per second on average and
+ * up to {@link #burst} statements at once after being idle.
+ * <p>
+ * The state of the sites is kept in a fixed-size table updated with compare-and-set only, so sampling never locks. If
+ * too many sites collide in the table, the state of one of them is replaced, which only resets its limits
+ *
+ * @author Jakob-Niklas See
+ * @see #LogSampler(SamplingScope, long, double, int)
+ * @see #everyNth(SamplingScope, long)
+ * @see #perSecond(SamplingScope, double, int)
+ * @see #admit(String, String, int)
+ */
+public class LogSampler
+{
+    /**
+     * The amount of slots in the {@link #sites} table
+     */
+    private static final int TABLE_SIZE = 1024;
+
+    /**
+     * The amount of slots probed for a site before the state of another site is replaced
+     */
+    private static final int MAX_PROBES = 8;
+
+    /**
+     * What the limits are counted for
+     */
+    private final SamplingScope scope;
+
+    /**
+     * Only the first of this many statements of a site is written, 1 writes every statement
+     */
+    private final long everyNth;
+
+    /**
+     * The average amount of statements per second written for a site, 0 disables the rate limit
+     */
+    private final double perSecond;
+
+    /**
+     * The amount of statements of a site which may be written at once
+     */
+    private final int burst;
+
+    /**
+     * The time in nanoseconds a site has to wait for every written statement, derived from {@link #perSecond}
+     */
+    private final long emissionInterval;
+
+    /**
+     * How far in nanoseconds a site may get ahead of its rate, derived from {@link #burst}
+     */
+    private final long tolerance;
+
+    /**
+     * The state of every site, looked up by the hash of its key with linear probing
+     */
+    private final AtomicReferenceArray<Site> sites = new AtomicReferenceArray<>(TABLE_SIZE);
+
+    /**
+     * Creates a new sampler combining both limits
+     *
+     * @param scope     {@link #scope}
+     * @param everyNth  {@link #everyNth}
+     * @param perSecond {@link #perSecond}
+     * @param burst     {@link #burst}
+     */
+    public LogSampler(SamplingScope scope, long everyNth, double perSecond, int burst)
+    {
+        if(everyNth < 1 || perSecond < 0 || burst < 1)
+        {
+            throw new IllegalArgumentException("Invalid sampling limits: everyNth=" + everyNth + ", perSecond=" + perSecond + ", burst=" + burst);
+        }
+
+        this.scope = scope;
+        this.everyNth = everyNth;
+        this.perSecond = perSecond;
+        this.burst = burst;
+
+        emissionInterval = perSecond == 0 ? 0 : (long) (1_000_000_000L / perSecond);
+        tolerance = emissionInterval * (burst - 1);
+    }
+
+    /**
+     * @param scope    What the limit is counted for
+     * @param everyNth Only the first of this many statements of a site is written
+     *
+     * @return A sampler writing one of every n statements of a site
+     */
+    public static LogSampler everyNth(SamplingScope scope, long everyNth)
+    {
+        return new LogSampler(scope, everyNth, 0, 1);
+    }
+
+    /**
+     * @param scope     What the limit is counted for
+     * @param perSecond The average amount of statements per second written for a site
+     * @param burst     The amount of statements of a site which may be written at once
+     *
+     * @return A sampler limiting the rate of the statements of a site
+     */
+    public static LogSampler perSecond(SamplingScope scope, double perSecond, int burst)
+    {
+        return new LogSampler(scope, 1, perSecond, burst);
+    }
+
+    /**
+     * Decides if a statement is written. The key of the site is the class and line of the caller for {@link
+     * SamplingScope#CALL_SITE}, or the prefix for {@link SamplingScope#PREFIX} and if the caller is unknown
+     *
+     * @param prefix    The prefix of the statement
+     * @param className The class of the caller, may be {@code null} if the caller is unknown
+     * @param line      The line of the caller
+     *
+     * @return The amount of statements of the site suppressed since the last written one, or -1 if this statement is
+     * suppressed
+     */
+    public long admit(String prefix, String className, int line)
+    {
+        String key = prefix;
+        int keyLine = -1;
+
+        if(scope == SamplingScope.CALL_SITE && className != null)
+        {
+            key = className;
+            keyLine = line;
+        }
+
+        Site site = site(key == null ? "null" : key, keyLine);
+
+        if(!site.admit(System.nanoTime()))
+        {
+            site.suppressed.incrementAndGet();
+
+            return -1;
+        }
+
+        return site.suppressed.getAndSet(0);
+    }
+
+    /**
+     * Looks up the state of a site, adding it if it has none yet
+     *
+     * @param key  The class or prefix of the site
+     * @param line The line of the site, -1 for prefixes
+     *
+     * @return The state of the site
+     */
+    private Site site(String key, int line)
+    {
+        int hash = key.hashCode() * 31 + line;
+        hash ^= hash >>> 16;
+
+        int home = hash & (TABLE_SIZE - 1);
+
+        for(int probe = 0; probe < MAX_PROBES; probe++)
+        {
+            int index = (home + probe) & (TABLE_SIZE - 1);
+            Site site = sites.get(index);
+
+            if(site == null)
+            {
+                Site created = new Site(key, line);
+
+                if(sites.compareAndSet(index, null, created))
+                {
+                    return created;
+                }
+
+                site = sites.get(index);
+            }
+
+            if(site.matches(key, line))
+            {
+                return site;
+            }
+        }
+
+        Site created = new Site(key, line);
+        sites.set(home, created);
+
+        return created;
+    }
+
+    /**
+     * @return {@link #scope}
+     */
+    public SamplingScope getScope()
+    {
+        return scope;
+    }
+
+    /**
+     * @return {@link #everyNth}
+     */
+    public long getEveryNth()
+    {
+        return everyNth;
+    }
+
+    /**
+     * @return {@link #perSecond}
+     */
+    public double getPerSecond()
+    {
+        return perSecond;
+    }
+
+    /**
+     * @return {@link #burst}
+     */
+    public int getBurst()
+    {
+        return burst;
+    }
+
+    /**
+     * The limits of a single call site or prefix
+     */
+    private final class Site
+    {
+        /**
+         * The class or prefix of the site
+         */
+        private final String key;
+
+        /**
+         * The line of the site, -1 for prefixes
+         */
+        private final int line;
+
+        /**
+         * The amount of statements of the site so far
+         */
+        private final AtomicLong count = new AtomicLong();
+
+        /**
+         * The theoretical arrival time of the next statement in nanoseconds according to the rate
+         */
+        private final AtomicLong arrival = new AtomicLong(Long.MIN_VALUE);
+
+        /**
+         * The amount of statements suppressed since the last written one
+         */
+        private final AtomicLong suppressed = new AtomicLong();
+
+        /**
+         * @param key  {@link #key}
+         * @param line {@link #line}
+         */
+        private Site(String key, int line)
+        {
+            this.key = key;
+            this.line = line;
+        }
+
+        /**
+         * @param key  The class or prefix of a site
+         * @param line The line of a site
+         *
+         * @return If this is the state of the site
+         */
+        private boolean matches(String key, int line)
+        {
+            return this.line == line && this.key.equals(key);
+        }
+
+        /**
+         * @param now The current {@link System#nanoTime()}
+         *
+         * @return If a statement of the site passes both limits
+         */
+        private boolean admit(long now)
+        {
+            if(everyNth > 1 && count.getAndIncrement() % everyNth != 0)
+            {
+                return false;
+            }
+
+            if(emissionInterval == 0)
+            {
+                return true;
+            }
+
+            while(true)
+            {
+                long current = arrival.get();
+                long start = current == Long.MIN_VALUE ? now : Math.max(current, now);
+
+                if(start - now > tolerance)
+                {
+                    return false;
+                }
+
+                if(arrival.compareAndSet(current, start + emissionInterval))
+                {
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -12,6 +12,16 @@ public class LogSection
         this.value = value;
     }
 
+    /**
+     * Overrides the section of a record with the key of this section
+     *
+     * @param record The record to be changed
+     */
+    public void apply(LogRecord record)
+    {
+        record.set(key, value);
+    }
+
     public String getKey()
     {
         return key;
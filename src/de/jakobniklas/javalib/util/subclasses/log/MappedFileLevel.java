@@ -0,0 +1,552 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import de.jakobniklas.javalib.exception.Exceptions;
+import de.jakobniklas.javalib.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link LevelImplementation} appending log lines into a memory-mapped region of a file. Lines are encoded straight
+ * into a preallocated {@link MappedByteBuffer}, so writing costs about as much as copying memory, and lines written
+ * before a crash of the JVM are still in the page cache of the operating system. Once a region is full the next region
+ * is mapped behind it.
+ * <p>
+ * Regions are zero-filled when mapped, so a file which was not closed properly ends with zero bytes. When such a file
+ * is opened again, writing continues after the last non-zero byte. {@link #drain()}, which {@link Log} calls when the
+ * application shuts down, and {@link #close()} truncate the file to the written content, a region is mapped again with
+ * the next line. This requires a charset in which a zero byte only encodes NUL, which is checked by requiring an ASCII
+ * compatible charset, so e.g. UTF-16 and UTF-32 are rejected
+ *
+ * @author Jakob-Niklas See
+ * @see #MappedFileLevel(File, int)
+ * @see #log(String)
+ * @see #log(LogRecord)
+ * @see #flush()
+ * @see #drain()
+ * @see #close()
+ * @see #setFormatter(LogFormatter)
+ * @see #getRegionBytes()
+ */
+public class MappedFileLevel implements LevelImplementation
+{
+    /**
+     * The default size of a mapped region
+     */
+    public static final int DEFAULT_REGION_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * The file written to
+     */
+    private final File file;
+
+    /**
+     * The size of a mapped region in bytes
+     */
+    private final int regionSize;
+
+    /**
+     * The reused encoder of lines
+     */
+    private final LineEncoder encoder;
+
+    /**
+     * Maps the next region if the current one is full while encoding
+     */
+    private final BufferDrain remap = (full) -> mapNext();
+
+    /**
+     * The reused builder records are formatted into
+     */
+    private final StringBuilder line = new StringBuilder(256);
+
+    /**
+     * The formatter of records, the configured patterns of {@link Log} by default
+     */
+    private volatile LogFormatter formatter = LogFormatter.PATTERNS;
+
+    /**
+     * The bytes written to every completed region, in the order of the regions
+     */
+    private final List<Long> regionBytes = new ArrayList<>();
+
+    /**
+     * The channel of the {@link #file}, {@code null} once closed
+     */
+    private FileChannel channel;
+
+    /**
+     * The currently mapped region, {@code null} if it was completed by {@link #drain()} and no line was written since
+     */
+    private MappedByteBuffer region;
+
+    /**
+     * The position of the current {@link #region} in the file
+     */
+    private long regionStart;
+
+    /**
+     * When the mapped regions are forced to the storage device, {@link FsyncPolicy#ON_ROLL} forces a region once it is
+     * full
+     */
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.ON_ROLL;
+
+    /**
+     * The minimum interval in milliseconds between two forces with {@link FsyncPolicy#INTERVAL}
+     */
+    private long fsyncInterval = 1000;
+
+    /**
+     * The unix timestamp at which the region was last forced
+     */
+    private long lastSync;
+
+    /**
+     * Set while an exception is handled, as handling it logs, which could end up in this implementation again
+     */
+    private boolean handlingError;
+
+    /**
+     * Creates a new implementation writing UTF-8 lines to a file with regions of {@link #DEFAULT_REGION_SIZE}
+     *
+     * @param file {@link #file}
+     */
+    public MappedFileLevel(File file)
+    {
+        this(file, DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * Creates a new implementation writing UTF-8 lines to a file, continuing after its content if it exists
+     *
+     * @param file       {@link #file}
+     * @param regionSize {@link #regionSize}
+     */
+    public MappedFileLevel(File file, int regionSize)
+    {
+        this(file, regionSize, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates a new implementation writing lines to a file, continuing after its content if it exists
+     *
+     * @param file       {@link #file}
+     * @param regionSize {@link #regionSize}
+     * @param charset    The charset lines are encoded with, which has to be ASCII compatible
+     *
+     * @throws IllegalArgumentException If the charset is not ASCII compatible or the region is too small
+     */
+    public MappedFileLevel(File file, int regionSize, Charset charset)
+    {
+        if(!isAsciiCompatible(charset))
+        {
+            throw new IllegalArgumentException("Charset has to be ASCII compatible, as zero bytes mark the end of the content: " + charset);
+        }
+
+        this.file = file;
+        this.regionSize = regionSize;
+
+        encoder = new LineEncoder(charset);
+
+        if(regionSize < encoder.maxBytesPerChar() * 2)
+        {
+            throw new IllegalArgumentException("regionSize too small: " + regionSize);
+        }
+
+        try
+        {
+            File parent = file.getAbsoluteFile().getParentFile();
+
+            if(parent != null && !parent.exists())
+            {
+                Files.createDirectories(parent.toPath());
+            }
+
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            regionStart = contentEnd();
+            region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, regionSize);
+            lastSync = System.currentTimeMillis();
+        }
+        catch(IOException e)
+        {
+            handle(e);
+            channel = null;
+        }
+    }
+
+    /**
+     * Writes a line into the mapped region
+     *
+     * @param string The input to be logged
+     */
+    @Override
+    public synchronized void log(String string)
+    {
+        line.setLength(0);
+        line.append(string);
+
+        write();
+    }
+
+    /**
+     * Formats a record with the {@link #formatter} into a reused builder and writes it into the mapped region, counting
+     * the encoded bytes in the {@link Log#getMetrics() metrics}
+     *
+     * @param record The statement to be logged
+     */
+    @Override
+    public synchronized void log(LogRecord record)
+    {
+        line.setLength(0);
+        formatter.format(record, line);
+
+        Log.getMetrics().recordBytes(this, write());
+    }
+
+    /**
+     * Encodes the {@link #line} with a line separator into the mapped region, mapping a region if there is none or the
+     * next region if it is full
+     *
+     * @return The amount of encoded bytes
+     */
+    private long write()
+    {
+        if(channel == null)
+        {
+            return 0;
+        }
+
+        long before = regionStart;
+
+        try
+        {
+            if(region == null)
+            {
+                region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, regionSize);
+            }
+
+            before += region.position();
+            line.append(System.lineSeparator());
+
+            encoder.encode(line, region, remap);
+        }
+        catch(IOException e)
+        {
+            handle(e);
+        }
+
+        return region == null ? 0 : regionStart + region.position() - before;
+    }
+
+    /**
+     * Completes the current region and maps the region behind it
+     *
+     * @return The newly mapped region
+     *
+     * @throws IOException If the region could not be mapped
+     */
+    private ByteBuffer mapNext() throws IOException
+    {
+        int used = region.position();
+
+        regionBytes.add((long) (used));
+
+        if(fsyncPolicy != FsyncPolicy.NEVER)
+        {
+            region.force();
+        }
+
+        regionStart += used;
+        region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, regionSize);
+
+        return region;
+    }
+
+    /**
+     * Forces the mapped region to the storage device according to the {@link #fsyncPolicy}. Written lines are visible to
+     * readers of the file without flushing
+     */
+    @Override
+    public synchronized void flush()
+    {
+        if(channel == null || region == null)
+        {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+
+        if(fsyncPolicy == FsyncPolicy.ALWAYS || (fsyncPolicy == FsyncPolicy.INTERVAL && now - lastSync >= fsyncInterval))
+        {
+            region.force();
+            lastSync = now;
+        }
+    }
+
+    /**
+     * Forces the written content, completes the current region and truncates the file to the content, so it does not
+     * end with the zero bytes of the region. The next line maps a new region behind the content
+     */
+    @Override
+    public synchronized void drain()
+    {
+        if(channel == null || region == null)
+        {
+            return;
+        }
+
+        try
+        {
+            truncate();
+        }
+        catch(IOException e)
+        {
+            handle(e);
+        }
+    }
+
+    /**
+     * Forces the written content, truncates the file to it and closes the file
+     */
+    public synchronized void close()
+    {
+        if(channel == null)
+        {
+            return;
+        }
+
+        try
+        {
+            truncate();
+        }
+        catch(IOException e)
+        {
+            handle(e);
+        }
+        finally
+        {
+            try
+            {
+                channel.close();
+            }
+            catch(IOException e)
+            {
+                handle(e);
+            }
+
+            channel = null;
+            region = null;
+        }
+    }
+
+    /**
+     * Completes the current region, if there is one, and truncates the file to the content
+     *
+     * @throws IOException If the file could not be truncated
+     */
+    private void truncate() throws IOException
+    {
+        if(region != null)
+        {
+            int used = region.position();
+
+            if(fsyncPolicy != FsyncPolicy.NEVER)
+            {
+                region.force();
+            }
+
+            regionBytes.add((long) used);
+            regionStart += used;
+            region = null;
+        }
+
+        channel.truncate(regionStart);
+    }
+
+    /**
+     * @param charset A charset
+     *
+     * @return If the charset encodes ASCII characters as single bytes of the same value, in which case a zero byte
+     * can only be NUL
+     */
+    private static boolean isAsciiCompatible(Charset charset)
+    {
+        if(!charset.canEncode())
+        {
+            return false;
+        }
+
+        byte[] encoded = "\n\u0001A~".getBytes(charset);
+
+        return encoded.length == 4 && encoded[0] == '\n' && encoded[1] == 1 && encoded[2] == 'A' && encoded[3] == '~';
+    }
+
+    /**
+     * Finds the end of the content of an existing file, skipping the zero bytes of a region which was not truncated
+     *
+     * @return The position after the last non-zero byte
+     *
+     * @throws IOException If the file could not be read
+     */
+    private long contentEnd() throws IOException
+    {
+        long end = channel.size();
+        ByteBuffer block = ByteBuffer.allocate(8192);
+
+        while(end > 0)
+        {
+            long start = Math.max(0, end - block.capacity());
+
+            block.clear();
+            block.limit((int) (end - start));
+
+            while(block.hasRemaining())
+            {
+                if(channel.read(block, start + block.position()) < 0)
+                {
+                    break;
+                }
+            }
+
+            for(int i = block.position() - 1; i >= 0; i--)
+            {
+                if(block.get(i) != 0)
+                {
+                    return start + i + 1;
+                }
+            }
+
+            end = start;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Handles an exception unless one is handled already, as handling it logs
+     *
+     * @param e The exception
+     */
+    private void handle(IOException e)
+    {
+        if(!handlingError)
+        {
+            handlingError = true;
+
+            try
+            {
+                Exceptions.handle(e);
+            }
+            finally
+            {
+                handlingError = false;
+            }
+        }
+    }
+
+    /**
+     * Returns the amount of bytes written to every region so far, the last entry being the current region if one is
+     * mapped. A region is completed once it is full or by {@link #drain()}
+     *
+     * @return The written bytes per region, in the order of the regions in the file
+     */
+    public synchronized long[] getRegionBytes()
+    {
+        long[] bytes = new long[regionBytes.size() + (region != null ? 1 : 0)];
+
+        for(int i = 0; i < regionBytes.size(); i++)
+        {
+            bytes[i] = regionBytes.get(i);
+        }
+
+        if(region != null)
+        {
+            bytes[bytes.length - 1] = region.position();
+        }
+
+        return bytes;
+    }
+
+    /**
+     * @return The path of the {@link #file}
+     */
+    @Override
+    public String getName()
+    {
+        return file.getPath();
+    }
+
+    /**
+     * @return {@link #file}
+     */
+    public File getFile()
+    {
+        return file;
+    }
+
+    /**
+     * @return {@link #regionSize}
+     */
+    public int getRegionSize()
+    {
+        return regionSize;
+    }
+
+    /**
+     * @return {@link #fsyncPolicy}
+     */
+    public FsyncPolicy getFsyncPolicy()
+    {
+        return fsyncPolicy;
+    }
+
+    /**
+     * @param fsyncPolicy {@link #fsyncPolicy}
+     */
+    public void setFsyncPolicy(FsyncPolicy fsyncPolicy)
+    {
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    /**
+     * @return {@link #fsyncInterval}
+     */
+    public long getFsyncInterval()
+    {
+        return fsyncInterval;
+    }
+
+    /**
+     * @param fsyncInterval {@link #fsyncInterval}
+     */
+    public void setFsyncInterval(long fsyncInterval)
+    {
+        this.fsyncInterval = fsyncInterval;
+    }
+
+    /**
+     * @return {@link #formatter}
+     */
+    public LogFormatter getFormatter()
+    {
+        return formatter;
+    }
+
+    /**
+     * @param formatter {@link #formatter}
+     */
+    public void setFormatter(LogFormatter formatter)
+    {
+        this.formatter = formatter;
+    }
+}
@@ -5,11 +5,18 @@ public class Measurement
 {
     private String message;
     private long timestamp;
+    private long nanoTime;
 
     public Measurement(String message, long timestamp)
+    {
+        this(message, timestamp, System.nanoTime());
+    }
+
+    public Measurement(String message, long timestamp, long nanoTime)
     {
         this.message = message;
         this.timestamp = timestamp;
+        this.nanoTime = nanoTime;
     }
 
     public String getMessage()
@@ -21,4 +28,9 @@ public class Measurement
     {
         return timestamp;
     }
+
+    public long getNanoTime()
+    {
+        return nanoTime;
+    }
 }
@@ -0,0 +1,77 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import de.jakobniklas.javalib.util.Log;
+
+/**
+ * A running measurement, recording the time between its creation and {@link #close()} into a {@link LatencyHistogram}.
+ * Scopes are independent of each other, so the same id can be measured in nested or concurrent scopes
+ *
+ * <pre>{@code
+ * try(MeasurementScope scope = Log.measure("query"))
+ * {
+ *     ...
+ * }
+ * }</pre>
+ *
+ * @author Jakob-Niklas See
+ * @see Log#measure(String)
+ * @see #close()
+ * @see #elapsed()
+ */
+public class MeasurementScope implements AutoCloseable
+{
+    /**
+     * The histogram the duration is recorded into
+     */
+    private final LatencyHistogram histogram;
+
+    /**
+     * The {@link System#nanoTime()} at which the scope was opened
+     */
+    private final long start;
+
+    /**
+     * If the duration was already recorded
+     */
+    private boolean closed;
+
+    /**
+     * Opens a new scope, starting the measurement
+     *
+     * @param histogram {@link #histogram}
+     */
+    public MeasurementScope(LatencyHistogram histogram)
+    {
+        this.histogram = histogram;
+        this.start = System.nanoTime();
+    }
+
+    /**
+     * @return The nanoseconds since the scope was opened
+     */
+    public long elapsed()
+    {
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Records the elapsed time into the {@link #histogram}. Closing a scope more than once records it only once
+     */
+    @Override
+    public void close()
+    {
+        if(!closed)
+        {
+            closed = true;
+            histogram.record(elapsed());
+        }
+    }
+
+    /**
+     * @return {@link #histogram}
+     */
+    public LatencyHistogram getHistogram()
+    {
+        return histogram;
+    }
+}
@@ -0,0 +1,209 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.IllegalFormatException;
+import java.util.UUID;
+
+/**
+ * Class inserting the arguments of a print statement into its message, appending straight to a builder
+ *
+ * @author Jakob-Niklas See
+ * @see #format(MessageStyle, String, Object[], StringBuilder)
+ * @see #appendArgument(Object, StringBuilder)
+ * @see #isImmutable(Object[])
+ * @see MessageStyle
+ */
+public class MessageFormatter
+{
+    /**
+     * Appends a message with its arguments inserted according to a style. As formatting is deferred to the sinks, an
+     * invalid {@link MessageStyle#FORMAT} template does not throw, the template is appended with its arguments instead
+     *
+     * @param style    The style of the message
+     * @param template The message containing the positions of the arguments
+     * @param args     The arguments of the message
+     * @param output   The builder to append to
+     */
+    public static void format(MessageStyle style, String template, Object[] args, StringBuilder output)
+    {
+        if(style == MessageStyle.FORMAT)
+        {
+            int start = output.length();
+
+            try
+            {
+                new Formatter(output).format(template, args);
+            }
+            catch(IllegalFormatException e)
+            {
+                output.setLength(start);
+                output.append(template).append(" [");
+
+                for(int i = 0; args != null && i < args.length; i++)
+                {
+                    if(i > 0)
+                    {
+                        output.append(", ");
+                    }
+
+                    appendArgument(args[i], output);
+                }
+
+                output.append(']');
+            }
+        }
+        else
+        {
+            formatPlaceholders(template, args, output);
+        }
+    }
+
+    /**
+     * Appends a message with every {@code {}} replaced by the next argument. A placeholder preceded by a backslash is
+     * appended literally, placeholders without an argument are kept and surplus arguments are ignored
+     *
+     * @param template The message containing placeholders, {@code null} is appended as {@code "null"}
+     * @param args     The arguments of the message
+     * @param output   The builder to append to
+     */
+    public static void formatPlaceholders(String template, Object[] args, StringBuilder output)
+    {
+        if(template == null)
+        {
+            output.append("null");
+
+            return;
+        }
+
+        int argument = 0;
+        int start = 0;
+        int length = template.length();
+
+        for(int i = 0; i < length - 1; i++)
+        {
+            if(template.charAt(i) != '{' || template.charAt(i + 1) != '}')
+            {
+                continue;
+            }
+
+            if(i > 0 && template.charAt(i - 1) == '\\')
+            {
+                output.append(template, start, i - 1).append("{}");
+            }
+            else if(args != null && argument < args.length)
+            {
+                output.append(template, start, i);
+                appendArgument(args[argument++], output);
+            }
+            else
+            {
+                output.append(template, start, i + 2);
+            }
+
+            start = i + 2;
+            i++;
+        }
+
+        output.append(template, start, length);
+    }
+
+    /**
+     * Appends a single argument. Primitive wrappers and {@link CharSequence}s are appended without creating a String,
+     * arrays are appended with their content
+     *
+     * @param argument The argument to append
+     * @param output   The builder to append to
+     */
+    public static void appendArgument(Object argument, StringBuilder output)
+    {
+        if(argument == null)
+        {
+            output.append("null");
+        }
+        else if(argument instanceof CharSequence)
+        {
+            output.append((CharSequence) argument);
+        }
+        else if(argument instanceof Integer || argument instanceof Short || argument instanceof Byte)
+        {
+            output.append(((Number) argument).intValue());
+        }
+        else if(argument instanceof Long)
+        {
+            output.append((long) (Long) argument);
+        }
+        else if(argument instanceof Double)
+        {
+            output.append((double) (Double) argument);
+        }
+        else if(argument instanceof Float)
+        {
+            output.append((float) (Float) argument);
+        }
+        else if(argument instanceof Boolean)
+        {
+            output.append((boolean) (Boolean) argument);
+        }
+        else if(argument instanceof Character)
+        {
+            output.append((char) (Character) argument);
+        }
+        else if(argument instanceof Object[])
+        {
+            output.append(Arrays.deepToString((Object[]) argument));
+        }
+        else if(argument.getClass().isArray())
+        {
+            String array = Arrays.deepToString(new Object[]{argument});
+            output.append(array, 1, array.length() - 1);
+        }
+        else
+        {
+            output.append(argument);
+        }
+    }
+
+    /**
+     * Checks if the arguments of a message cannot change after the statement, so that formatting can be deferred to
+     * another thread
+     *
+     * @param args The arguments of a message
+     *
+     * @return If every argument is {@code null}, a String, a primitive wrapper or another immutable value
+     */
+    public static boolean isImmutable(Object[] args)
+    {
+        if(args == null)
+        {
+            return true;
+        }
+
+        for(Object argument : args)
+        {
+            if(argument != null && !isImmutable(argument))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param argument An argument of a message
+     *
+     * @return If the argument is a String, a primitive wrapper or another value type which cannot change
+     */
+    private static boolean isImmutable(Object argument)
+    {
+        Class<?> type = argument.getClass();
+
+        return type == String.class || type == Integer.class || type == Long.class || type == Double.class
+            || type == Float.class || type == Short.class || type == Byte.class || type == Boolean.class
+            || type == Character.class || type == BigInteger.class || type == BigDecimal.class || type == UUID.class
+            || argument instanceof Enum;
+    }
+}
@@ -0,0 +1,23 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+/**
+ * Defines how the arguments of a print statement are inserted into its message
+ *
+ * @author Jakob-Niklas See
+ * @see #FORMAT
+ * @see #PLACEHOLDER
+ * @see MessageFormatter
+ */
+public enum MessageStyle
+{
+    /**
+     * The message is a format String for {@link String#format(String, Object...)}, e.g. {@code "Took %dms"}
+     */
+    FORMAT,
+
+    /**
+     * Every {@code {}} in the message is replaced by the next argument, e.g. {@code "Took {}ms"}. Arguments are
+     * appended without an intermediate String where possible
+     */
+    PLACEHOLDER
+}
@@ -0,0 +1,934 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import de.jakobniklas.javalib.exception.Exceptions;
+import de.jakobniklas.javalib.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A {@link LevelImplementation} shipping log lines to a collector over TCP, so they do not have to be written to disk
+ * and read again by a separate agent. Lines are queued by the calling thread and sent by a background thread in
+ * batches of up to {@link #batchSize} lines or after {@link #batchInterval}, whichever comes first. Every batch is one
+ * frame: the length of the payload and the length of the lines as big-endian ints, followed by the UTF-8 lines
+ * separated by {@code '\n'} and compressed with a {@link Deflater}. {@link #readFrame(DataInputStream)} decodes a frame
+ * on the side of the collector
+ * <p>
+ * If the collector is unavailable, frames are kept in memory up to {@link #maxPendingBytes} and the oldest ones are
+ * appended to the {@link #spillFile} beyond that, {@link #drain()} appends all of them. Connecting is retried with an
+ * exponential backoff, once it succeeds the spill file and then the kept frames are sent before any new one. A spill
+ * file left by a previous run is sent as well. If the queue of the calling threads is full, lines are dropped
+ *
+ * <pre>{@code
+ * NetworkLevel network = new NetworkLevel("collector.local", 5170, new File("logs/network.spill"));
+ * Log.registerSinks(LogLevel.INFO, System.out::println, network);
+ * }</pre>
+ *
+ * @author Jakob-Niklas See
+ * @see #NetworkLevel(String, int, File)
+ * @see #NetworkLevel(String, int, File, int, int, long, long)
+ * @see #log(String)
+ * @see #log(LogRecord)
+ * @see #drain()
+ * @see #close()
+ * @see #readFrame(DataInputStream)
+ * @see #summary()
+ */
+public class NetworkLevel implements LevelImplementation
+{
+    /**
+     * The default amount of lines which can wait for the sender
+     */
+    private static final int DEFAULT_QUEUE_CAPACITY = 16 * 1024;
+
+    /**
+     * The default maximum amount of lines in a batch
+     */
+    private static final int DEFAULT_BATCH_SIZE = 512;
+
+    /**
+     * The default maximum time in milliseconds a line waits for its batch to be sent
+     */
+    private static final long DEFAULT_BATCH_INTERVAL = 200;
+
+    /**
+     * The default amount of bytes of frames kept in memory while the collector is unavailable
+     */
+    private static final long DEFAULT_MAX_PENDING_BYTES = 4L * 1024 * 1024;
+
+    /**
+     * The time in milliseconds a connection attempt may take
+     */
+    private static final int CONNECT_TIMEOUT = 2000;
+
+    /**
+     * The time in milliseconds waited before the first reconnection attempt, doubled after every failed one
+     */
+    private static final long INITIAL_BACKOFF = 100;
+
+    /**
+     * The maximum time in milliseconds waited between two connection attempts
+     */
+    private static final long MAX_BACKOFF = 30_000;
+
+    /**
+     * The builder records are formatted into on every thread
+     */
+    private static final ThreadLocal<StringBuilder> lineBuilder = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    /**
+     * The address of the collector
+     */
+    private final InetSocketAddress address;
+
+    /**
+     * The host and port of the collector, which the written bytes are counted under
+     */
+    private final String name;
+
+    /**
+     * The file frames are appended to while the collector is unavailable and the memory is full
+     */
+    private final File spillFile;
+
+    /**
+     * The maximum amount of lines in a batch
+     */
+    private final int batchSize;
+
+    /**
+     * The maximum time in milliseconds a line waits for its batch to be sent
+     */
+    private final long batchInterval;
+
+    /**
+     * The maximum amount of bytes of frames kept in memory while the collector is unavailable
+     */
+    private final long maxPendingBytes;
+
+    /**
+     * The lines waiting for the sender, and the latches of {@link #drain()} calls
+     */
+    private final BlockingQueue<Object> queue;
+
+    /**
+     * The thread batching, compressing and sending the lines
+     */
+    private final Thread sender;
+
+    /**
+     * The lines of the current batch, only used by the {@link #sender}
+     */
+    private final StringBuilder batch = new StringBuilder(64 * 1024);
+
+    /**
+     * The compressor of the batches, only used by the {@link #sender}
+     */
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+    /**
+     * The frames kept in memory while the collector is unavailable, oldest first, only used by the {@link #sender}
+     */
+    private final Deque<byte[]> pending = new ArrayDeque<>();
+
+    /**
+     * The amount of lines put into frames
+     */
+    private final LongAdder lines = new LongAdder();
+
+    /**
+     * The amount of frames sent to the collector, including the ones kept in memory or in the {@link #spillFile} before
+     */
+    private final LongAdder frames = new LongAdder();
+
+    /**
+     * The amount of bytes of the lines put into frames, before compression
+     */
+    private final LongAdder rawBytes = new LongAdder();
+
+    /**
+     * The amount of bytes of the sent frames
+     */
+    private final LongAdder compressedBytes = new LongAdder();
+
+    /**
+     * The amount of lines dropped because the queue was full
+     */
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * The amount of frames appended to the {@link #spillFile}
+     */
+    private final LongAdder spilled = new LongAdder();
+
+    /**
+     * The amount of successful connections
+     */
+    private final LongAdder connections = new LongAdder();
+
+    /**
+     * The formatter of records, the configured patterns of {@link Log} by default
+     */
+    private volatile LogFormatter formatter = LogFormatter.PATTERNS;
+
+    /**
+     * If the {@link #sender} should keep sending
+     */
+    private volatile boolean running = true;
+
+    /**
+     * The amount of lines in the {@link #batch}
+     */
+    private int batchLines;
+
+    /**
+     * The unix timestamp at which the current batch is sent at the latest
+     */
+    private long batchDeadline;
+
+    /**
+     * The amount of bytes of the {@link #pending} frames
+     */
+    private long pendingBytes;
+
+    /**
+     * The connection to the collector, {@code null} if there is none
+     */
+    private Socket socket;
+
+    /**
+     * The buffered stream of the {@link #socket}
+     */
+    private OutputStream output;
+
+    /**
+     * The time in milliseconds waited before the next connection attempt
+     */
+    private long backoff = INITIAL_BACKOFF;
+
+    /**
+     * The unix timestamp before which no connection is attempted
+     */
+    private long nextAttempt;
+
+    /**
+     * Creates a new implementation with default batching and starts its sender
+     *
+     * @param host      The host of the collector
+     * @param port      The port of the collector
+     * @param spillFile {@link #spillFile}
+     */
+    public NetworkLevel(String host, int port, File spillFile)
+    {
+        this(host, port, spillFile, DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_BATCH_INTERVAL, DEFAULT_MAX_PENDING_BYTES);
+    }
+
+    /**
+     * Creates a new implementation and starts its sender
+     *
+     * @param host            The host of the collector
+     * @param port            The port of the collector
+     * @param spillFile       {@link #spillFile}
+     * @param queueCapacity   The amount of lines which can wait for the sender
+     * @param batchSize       {@link #batchSize}
+     * @param batchInterval   {@link #batchInterval}
+     * @param maxPendingBytes {@link #maxPendingBytes}
+     */
+    public NetworkLevel(String host, int port, File spillFile, int queueCapacity, int batchSize, long batchInterval, long maxPendingBytes)
+    {
+        if(queueCapacity < 1 || batchSize < 1 || batchInterval < 1 || maxPendingBytes < 0)
+        {
+            throw new IllegalArgumentException("Invalid batching: queueCapacity=" + queueCapacity + ", batchSize=" + batchSize + ", batchInterval=" + batchInterval + ", maxPendingBytes=" + maxPendingBytes);
+        }
+
+        this.address = InetSocketAddress.createUnresolved(host, port);
+        this.name = host + ":" + port;
+        this.spillFile = spillFile;
+        this.batchSize = batchSize;
+        this.batchInterval = batchInterval;
+        this.maxPendingBytes = maxPendingBytes;
+
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        sender = new Thread(this::sendLoop, "Log-NetworkSender");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    /**
+     * Queues a preformatted line
+     *
+     * @param string The input to be logged
+     */
+    @Override
+    public void log(String string)
+    {
+        offer(string);
+    }
+
+    /**
+     * Formats a record with the {@link #formatter} and queues the line, counting its UTF-8 bytes and separator in the
+     * {@link Log#getMetrics() metrics} unless it was dropped
+     *
+     * @param record The statement to be logged
+     */
+    @Override
+    public void log(LogRecord record)
+    {
+        StringBuilder line = lineBuilder.get();
+        line.setLength(0);
+
+        formatter.format(record, line);
+
+        if(offer(line.toString()))
+        {
+            Log.getMetrics().recordBytes(this, LineEncoder.utf8Length(line) + 1);
+        }
+    }
+
+    /**
+     * Queues a line for the {@link #sender}, dropping it if the {@link #queue} is full
+     *
+     * @param line The line
+     *
+     * @return If the line was queued
+     */
+    private boolean offer(String line)
+    {
+        if(queue.offer(line))
+        {
+            return true;
+        }
+
+        dropped.increment();
+
+        return false;
+    }
+
+    /**
+     * Does nothing, as batches are sent by the sender. This is called after every synchronous statement, so waiting
+     * for the collector here would make every caller wait for the network again
+     */
+    @Override
+    public void flush()
+    {
+    }
+
+    /**
+     * Waits until every queued line has been sent, for at most 10 seconds. If the collector is unavailable, the lines
+     * and every frame kept in memory are appended to the {@link #spillFile} instead, so they survive the end of the
+     * application, as {@link Log} drains but does not close implementations when it shuts down
+     */
+    @Override
+    public void drain()
+    {
+        if(Thread.currentThread() == sender || !sender.isAlive())
+        {
+            return;
+        }
+
+        CountDownLatch latch = new CountDownLatch(1);
+
+        try
+        {
+            if(queue.offer(latch, 10, TimeUnit.SECONDS))
+            {
+                latch.await(10, TimeUnit.SECONDS);
+            }
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sends every queued line, appends the frames which could not be sent to the {@link #spillFile} and closes the
+     * connection
+     */
+    public void close()
+    {
+        drain();
+
+        running = false;
+        sender.interrupt();
+
+        try
+        {
+            sender.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Loop of the {@link #sender}, collecting lines into batches and sending them by count or time
+     */
+    private void sendLoop()
+    {
+        while(running)
+        {
+            try
+            {
+                long wait = batchLines == 0 ? batchInterval : batchDeadline - System.currentTimeMillis();
+                Object next = queue.poll(Math.max(wait, 0), TimeUnit.MILLISECONDS);
+
+                while(next instanceof String)
+                {
+                    add((String) next);
+                    next = batchLines > 0 ? queue.poll() : null;
+                }
+
+                if(next instanceof CountDownLatch)
+                {
+                    sendBatch();
+
+                    if(!pending.isEmpty() && !sendPending())
+                    {
+                        spillPending();
+                    }
+
+                    ((CountDownLatch) next).countDown();
+
+                    continue;
+                }
+
+                if(batchLines >= batchSize || (batchLines > 0 && System.currentTimeMillis() >= batchDeadline))
+                {
+                    sendBatch();
+                }
+                else if(batchLines == 0 && socket == null && (!pending.isEmpty() || spillFile.exists()))
+                {
+                    sendPending();
+                }
+            }
+            catch(InterruptedException e)
+            {
+                if(running)
+                {
+                    Exceptions.handle(e);
+                }
+            }
+            catch(Exception e)
+            {
+                Exceptions.handle(e);
+            }
+        }
+
+        Object next;
+
+        while((next = queue.poll()) != null)
+        {
+            if(next instanceof String)
+            {
+                add((String) next);
+            }
+            else
+            {
+                ((CountDownLatch) next).countDown();
+            }
+        }
+
+        sendBatch();
+        spillPending();
+        disconnect();
+        deflater.end();
+    }
+
+    /**
+     * Adds a line to the {@link #batch}, starting the deadline of the batch with its first line
+     *
+     * @param line The line
+     */
+    private void add(String line)
+    {
+        if(batchLines == 0)
+        {
+            batchDeadline = System.currentTimeMillis() + batchInterval;
+        }
+
+        batch.append(line).append('\n');
+        batchLines++;
+
+        if(batchLines >= batchSize)
+        {
+            sendBatch();
+        }
+    }
+
+    /**
+     * Compresses the {@link #batch} into a frame and sends it, or keeps it if the collector is unavailable
+     */
+    private void sendBatch()
+    {
+        if(batchLines == 0)
+        {
+            return;
+        }
+
+        byte[] raw = batch.toString().getBytes(StandardCharsets.UTF_8);
+        int count = batchLines;
+
+        batch.setLength(0);
+        batchLines = 0;
+
+        byte[] frame = frame(raw);
+        lines.add(count);
+        rawBytes.add(raw.length);
+
+        pending.addLast(frame);
+        pendingBytes += frame.length;
+
+        if(!sendPending())
+        {
+            while(pendingBytes > maxPendingBytes && !pending.isEmpty())
+            {
+                spill(pending.pollFirst());
+            }
+        }
+    }
+
+    /**
+     * Compresses lines into a frame
+     *
+     * @param raw The UTF-8 lines
+     *
+     * @return The frame
+     */
+    private byte[] frame(byte[] raw)
+    {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+
+        byte[] frame = new byte[8 + raw.length / 2 + 64];
+        int length = 8;
+
+        while(!deflater.finished())
+        {
+            if(length == frame.length)
+            {
+                frame = Arrays.copyOf(frame, frame.length * 2);
+            }
+
+            length += deflater.deflate(frame, length, frame.length - length);
+        }
+
+        writeInt(frame, 0, length - 8);
+        writeInt(frame, 4, raw.length);
+
+        return Arrays.copyOf(frame, length);
+    }
+
+    /**
+     * Sends the {@link #spillFile} and the {@link #pending} frames, connecting first if necessary
+     *
+     * @return If everything was sent, {@code false} if the collector is unavailable
+     */
+    private boolean sendPending()
+    {
+        if(!connect())
+        {
+            return false;
+        }
+
+        try
+        {
+            if(spillFile.exists())
+            {
+                sendSpillFile();
+            }
+
+            while(!pending.isEmpty())
+            {
+                byte[] frame = pending.peekFirst();
+
+                output.write(frame);
+                output.flush();
+
+                pending.pollFirst();
+                pendingBytes -= frame.length;
+                frames.increment();
+                compressedBytes.add(frame.length);
+            }
+
+            return true;
+        }
+        catch(IOException e)
+        {
+            disconnect();
+
+            return false;
+        }
+    }
+
+    /**
+     * Sends the frames of the {@link #spillFile} one by one, counting them, and deletes it. An incomplete frame at the
+     * end of the file, e.g. of a run which was killed while spilling, is dropped
+     *
+     * @throws IOException If the file could not be read or a frame could not be sent
+     */
+    private void sendSpillFile() throws IOException
+    {
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(spillFile.toPath()))))
+        {
+            byte[] frame = new byte[64 * 1024];
+
+            while(true)
+            {
+                int length;
+
+                try
+                {
+                    length = input.readInt();
+
+                    int rawLength = input.readInt();
+
+                    if(length < 0 || rawLength < 0)
+                    {
+                        throw new EOFException("Corrupt frame: length=" + length + ", rawLength=" + rawLength);
+                    }
+
+                    if(frame.length < length + 8)
+                    {
+                        frame = new byte[length + 8];
+                    }
+
+                    writeInt(frame, 0, length);
+                    writeInt(frame, 4, rawLength);
+                    input.readFully(frame, 8, length);
+                }
+                catch(EOFException e)
+                {
+                    break;
+                }
+
+                output.write(frame, 0, length + 8);
+                frames.increment();
+                compressedBytes.add(length + 8);
+            }
+        }
+
+        output.flush();
+        Files.delete(spillFile.toPath());
+    }
+
+    /**
+     * Connects to the collector unless connected already or the backoff of the last failed attempt did not pass yet
+     *
+     * @return If a connection exists
+     */
+    private boolean connect()
+    {
+        if(socket != null)
+        {
+            return true;
+        }
+
+        long now = System.currentTimeMillis();
+
+        if(now < nextAttempt)
+        {
+            return false;
+        }
+
+        Socket candidate = new Socket();
+
+        try
+        {
+            candidate.setTcpNoDelay(true);
+            candidate.connect(new InetSocketAddress(address.getHostString(), address.getPort()), CONNECT_TIMEOUT);
+
+            socket = candidate;
+            output = new BufferedOutputStream(candidate.getOutputStream(), 64 * 1024);
+            backoff = INITIAL_BACKOFF;
+            connections.increment();
+
+            return true;
+        }
+        catch(IOException e)
+        {
+            try
+            {
+                candidate.close();
+            }
+            catch(IOException ignored)
+            {
+            }
+
+            nextAttempt = now + backoff;
+            backoff = Math.min(backoff * 2, MAX_BACKOFF);
+
+            return false;
+        }
+    }
+
+    /**
+     * Closes the connection to the collector, if there is one
+     */
+    private void disconnect()
+    {
+        if(socket == null)
+        {
+            return;
+        }
+
+        try
+        {
+            socket.close();
+        }
+        catch(IOException e)
+        {
+            Exceptions.handle(e);
+        }
+
+        socket = null;
+        output = null;
+        nextAttempt = System.currentTimeMillis() + backoff;
+    }
+
+    /**
+     * Appends every frame kept in memory to the {@link #spillFile}
+     */
+    private void spillPending()
+    {
+        while(!pending.isEmpty())
+        {
+            spill(pending.pollFirst());
+        }
+    }
+
+    /**
+     * Appends a frame to the {@link #spillFile}, which is sent before any other frame once the collector is available
+     *
+     * @param frame The frame
+     */
+    private void spill(byte[] frame)
+    {
+        pendingBytes -= frame.length;
+
+        try
+        {
+            File parent = spillFile.getAbsoluteFile().getParentFile();
+
+            if(parent != null && !parent.exists())
+            {
+                Files.createDirectories(parent.toPath());
+            }
+
+            try(OutputStream spill = new FileOutputStream(spillFile, true))
+            {
+                spill.write(frame);
+            }
+
+            spilled.increment();
+        }
+        catch(IOException e)
+        {
+            Exceptions.handle(e);
+        }
+    }
+
+    /**
+     * Reads and decompresses a frame sent by a network implementation, e.g. in a collector
+     *
+     * @param input The stream of the connection
+     *
+     * @return The lines of the frame, separated by {@code '\n'}, or {@code null} at the end of the stream
+     *
+     * @throws IOException If the stream could not be read or the frame is corrupt
+     */
+    public static String readFrame(DataInputStream input) throws IOException
+    {
+        int length;
+
+        try
+        {
+            length = input.readInt();
+        }
+        catch(EOFException e)
+        {
+            return null;
+        }
+
+        int rawLength = input.readInt();
+
+        if(length < 0 || rawLength < 0)
+        {
+            throw new IOException("Corrupt frame: length=" + length + ", rawLength=" + rawLength);
+        }
+
+        byte[] compressed = new byte[length];
+        input.readFully(compressed);
+
+        Inflater inflater = new Inflater();
+        byte[] raw = new byte[rawLength];
+
+        try
+        {
+            inflater.setInput(compressed);
+
+            if(inflater.inflate(raw) != rawLength)
+            {
+                throw new IOException("Corrupt frame: expected " + rawLength + " bytes");
+            }
+        }
+        catch(DataFormatException e)
+        {
+            throw new IOException("Corrupt frame", e);
+        }
+        finally
+        {
+            inflater.end();
+        }
+
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param target The array
+     * @param offset The index of the first byte
+     * @param value  The value written as a big-endian int
+     */
+    private static void writeInt(byte[] target, int offset, int value)
+    {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+
+    /**
+     * @return The host and port of the collector
+     */
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return The counters of the implementation in one line
+     */
+    public String summary()
+    {
+        return address.getHostString() + ":" + address.getPort() +
+            ": lines=" + lines.sum() +
+            ", frames=" + frames.sum() +
+            ", raw=" + rawBytes.sum() +
+            ", compressed=" + compressedBytes.sum() +
+            ", queued=" + queue.size() +
+            ", dropped=" + dropped.sum() +
+            ", spilled=" + spilled.sum() +
+            ", connections=" + connections.sum();
+    }
+
+    /**
+     * @return {@link #lines}
+     */
+    public long getLines()
+    {
+        return lines.sum();
+    }
+
+    /**
+     * @return {@link #frames}
+     */
+    public long getFrames()
+    {
+        return frames.sum();
+    }
+
+    /**
+     * @return {@link #rawBytes}
+     */
+    public long getRawBytes()
+    {
+        return rawBytes.sum();
+    }
+
+    /**
+     * @return {@link #compressedBytes}
+     */
+    public long getCompressedBytes()
+    {
+        return compressedBytes.sum();
+    }
+
+    /**
+     * @return {@link #dropped}
+     */
+    public long getDropped()
+    {
+        return dropped.sum();
+    }
+
+    /**
+     * @return {@link #spilled}
+     */
+    public long getSpilled()
+    {
+        return spilled.sum();
+    }
+
+    /**
+     * @return {@link #connections}
+     */
+    public long getConnections()
+    {
+        return connections.sum();
+    }
+
+    /**
+     * @return {@link #spillFile}
+     */
+    public File getSpillFile()
+    {
+        return spillFile;
+    }
+
+    /**
+     * @return {@link #formatter}
+     */
+    public LogFormatter getFormatter()
+    {
+        return formatter;
+    }
+
+    /**
+     * @param formatter {@link #formatter}
+     */
+    public void setFormatter(LogFormatter formatter)
+    {
+        this.formatter = formatter;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "NetworkLevel{" + summary() + '}';
+    }
+}
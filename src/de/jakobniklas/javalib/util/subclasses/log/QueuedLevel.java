@@ -0,0 +1,294 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import de.jakobniklas.javalib.exception.Exceptions;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link LevelImplementation} writing to another implementation on a consumer thread of its own. Statements are
+ * copied into the bounded ring buffer of an {@link AsyncLogDispatcher} with its own {@link BackpressurePolicy}, so a
+ * slow sink only fills its own queue instead of stalling the others of a {@link FanoutLevel}
+ *
+ * <pre>{@code
+ * Log.registerSinks(LogLevel.INFO,
+ *     new QueuedLevel("console", System.out::println, 1024, BackpressurePolicy.BLOCK),
+ *     new QueuedLevel("network", networkLevel, 8192, BackpressurePolicy.DROP_OLDEST));
+ * }</pre>
+ *
+ * @author Jakob-Niklas See
+ * @see #QueuedLevel(String, LevelImplementation, int, BackpressurePolicy)
+ * @see #log(String)
+ * @see #log(LogRecord)
+ * @see #drain()
+ * @see #close()
+ * @see #summary()
+ * @see FanoutLevel
+ */
+public class QueuedLevel implements LevelImplementation
+{
+    /**
+     * The name of the sink, used for the consumer thread and the {@link #summary()}
+     */
+    private final String name;
+
+    /**
+     * The implementation written to on the consumer thread
+     */
+    private final LevelImplementation target;
+
+    /**
+     * The queue and consumer thread of the sink
+     */
+    private final AsyncLogDispatcher dispatcher;
+
+    /**
+     * The amount of statements written to the {@link #target}
+     */
+    private final LongAdder written = new LongAdder();
+
+    /**
+     * The amount of statements the {@link #target} failed to write
+     */
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * The record preformatted lines are queued with on every thread
+     */
+    private final ThreadLocal<LogRecord> lineRecord = ThreadLocal.withInitial(LogRecord::new);
+
+    /**
+     * Set while a failure of the {@link #target} is handled, only accessed by the consumer thread
+     */
+    private boolean handlingError;
+
+    /**
+     * Creates a new sink and starts its consumer thread
+     *
+     * @param name     {@link #name}
+     * @param target   {@link #target} (can be a lambda expression)
+     * @param capacity The amount of statements the queue can hold
+     * @param policy   What happens to a statement if the queue is full
+     */
+    public QueuedLevel(String name, LevelImplementation target, int capacity, BackpressurePolicy policy)
+    {
+        this.name = name;
+        this.target = target;
+
+        dispatcher = new AsyncLogDispatcher("Log-Sink-" + name, capacity, policy, new LogRecordHandler()
+        {
+            @Override
+            public void handle(LogRecord record)
+            {
+                write(record);
+            }
+
+            @Override
+            public void endOfBatch()
+            {
+                target.flush();
+            }
+        });
+    }
+
+    /**
+     * Queues a preformatted line as a record without a logLevel
+     *
+     * @param string The input to be logged
+     */
+    @Override
+    public void log(String string)
+    {
+        LogRecord record = lineRecord.get();
+        record.restore(null, System.currentTimeMillis(), null, '\0', null, 0);
+        record.setMessage(string);
+
+        dispatcher.publish(record);
+        record.clear();
+    }
+
+    /**
+     * Copies a record into the queue. Arguments which might change before the consumer writes the record are inserted
+     * into the message beforehand
+     *
+     * @param record The statement to be logged
+     */
+    @Override
+    public void log(LogRecord record)
+    {
+        if(record.hasMessageArgs() && !MessageFormatter.isImmutable(record.getMessageArgs()))
+        {
+            record.bufferMessage();
+        }
+
+        dispatcher.publish(record);
+    }
+
+    /**
+     * Writes a queued record to the {@link #target} on the consumer thread. A failure is handled, which logs an error
+     * that may be written by this sink on the same thread, so failures while handling one are only counted
+     *
+     * @param record The record, a preformatted line if it has no logLevel
+     */
+    private void write(LogRecord record)
+    {
+        try
+        {
+            if(record.getLevel() == null)
+            {
+                target.log(record.getMessage());
+            }
+            else
+            {
+                target.log(record);
+            }
+
+            written.increment();
+        }
+        catch(Exception e)
+        {
+            failed.increment();
+
+            if(!handlingError)
+            {
+                handlingError = true;
+
+                try
+                {
+                    Exceptions.handle(e);
+                }
+                finally
+                {
+                    handlingError = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Does nothing, as the consumer flushes the {@link #target} after every batch. This is called after every
+     * synchronous statement, so waiting for the queue here would let a slow sink stall the caller again
+     */
+    @Override
+    public void flush()
+    {
+    }
+
+    /**
+     * Waits until every queued statement has been written and drains the {@link #target}
+     */
+    @Override
+    public void drain()
+    {
+        dispatcher.flush();
+        target.drain();
+    }
+
+    /**
+     * Writes every queued statement, stops the consumer thread and drains the {@link #target}
+     */
+    public void close()
+    {
+        dispatcher.close();
+        target.drain();
+    }
+
+    /**
+     * @return The name, queue and counters of the sink in one line
+     */
+    public String summary()
+    {
+        return name +
+            ": queue=" + getSize() + "/" + getCapacity() +
+            ", highWaterMark=" + getHighWaterMark() +
+            ", written=" + getWritten() +
+            ", failed=" + getFailed() +
+            ", dropped=" + getDropped() +
+            ", policy=" + getPolicy();
+    }
+
+    /**
+     * @return {@link #name}
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return {@link #target}
+     */
+    public LevelImplementation getTarget()
+    {
+        return target;
+    }
+
+    /**
+     * @return The amount of statements waiting in the queue
+     */
+    public int getSize()
+    {
+        return dispatcher.getSize();
+    }
+
+    /**
+     * @return The amount of statements the queue can hold
+     */
+    public int getCapacity()
+    {
+        return dispatcher.getCapacity();
+    }
+
+    /**
+     * @return The highest amount of statements which waited in the queue at once
+     */
+    public int getHighWaterMark()
+    {
+        return dispatcher.getHighWaterMark();
+    }
+
+    /**
+     * @return The amount of statements discarded because the queue was full
+     */
+    public long getDropped()
+    {
+        return dispatcher.getDropped();
+    }
+
+    /**
+     * @return {@link #written}
+     */
+    public long getWritten()
+    {
+        return written.sum();
+    }
+
+    /**
+     * @return {@link #failed}
+     */
+    public long getFailed()
+    {
+        return failed.sum();
+    }
+
+    /**
+     * @return What happens to a statement if the queue is full
+     */
+    public BackpressurePolicy getPolicy()
+    {
+        return dispatcher.getPolicy();
+    }
+
+    /**
+     * @param policy What happens to a statement if the queue is full
+     */
+    public void setPolicy(BackpressurePolicy policy)
+    {
+        dispatcher.setPolicy(policy);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "QueuedLevel{" + summary() + '}';
+    }
+}
@@ -0,0 +1,647 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import de.jakobniklas.javalib.exception.Exceptions;
+import de.jakobniklas.javalib.util.Log;
+import de.jakobniklas.javalib.util.TimeUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A {@link LevelImplementation} writing log lines to a file through a {@link FileChannel}. Lines are encoded into a
+ * reused direct {@link ByteBuffer}, which is written to the channel if it is full or the implementation gets flushed.
+ * <p>
+ * The file is rolled once it exceeds a size or once an interval passed since it was opened: it gets renamed to {@code
+ * <name>.<yyyyMMdd-HHmmss>} (plus a counter if that exists) and a new file is started. Rolled segments can be
+ * compressed with gzip on a background thread
+ * <p>
+ * Next to the file, a sparse {@link TimeIndex} mapping timestamps to offsets is kept, so a {@link LogRangeReader} can
+ * seek to a time range instead of scanning the file. It is moved along with rolled segments and deleted with
+ * compressed ones, as these cannot be seeked
+ *
+ * @author Jakob-Niklas See
+ * @see #RollingFileLevel(File, long, long)
+ * @see #log(String)
+ * @see #log(LogRecord)
+ * @see #flush()
+ * @see #roll()
+ * @see #close()
+ * @see #setFormatter(LogFormatter)
+ * @see #setIndexSpacing(long)
+ * @see FsyncPolicy
+ */
+public class RollingFileLevel implements LevelImplementation
+{
+    /**
+     * The default capacity of the {@link #buffer}
+     */
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The time in milliseconds after a failed roll before rolling is attempted again
+     */
+    private static final long ROLL_RETRY = 1000;
+
+    /**
+     * The file currently written to
+     */
+    private final File file;
+
+    /**
+     * The size in bytes after which the file is rolled, 0 disables rolling by size
+     */
+    private final long maxSize;
+
+    /**
+     * The interval in milliseconds after which the file is rolled, 0 disables rolling by time
+     */
+    private final long rollInterval;
+
+    /**
+     * The reused buffer lines are encoded into
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The reused encoder of lines
+     */
+    private final LineEncoder encoder;
+
+    /**
+     * Writes the {@link #buffer} to the {@link #channel} if it is full while encoding
+     */
+    private final BufferDrain channelDrain = this::drain;
+
+    /**
+     * The reused builder records are formatted into
+     */
+    private final StringBuilder line = new StringBuilder(256);
+
+    /**
+     * The formatter of records, the configured patterns of {@link Log} by default
+     */
+    private volatile LogFormatter formatter = LogFormatter.PATTERNS;
+
+    /**
+     * The channel of the {@link #file}, {@code null} once closed
+     */
+    private FileChannel channel;
+
+    /**
+     * The size of the current segment, including bytes still in the {@link #buffer}
+     */
+    private long size;
+
+    /**
+     * The amount of bytes written to the channel, used to account for drains while encoding
+     */
+    private long written;
+
+    /**
+     * The unix timestamp at which the current segment gets rolled by time
+     */
+    private long nextRoll;
+
+    /**
+     * The unix timestamp before which no roll is attempted after a failed one
+     */
+    private long nextRollAttempt;
+
+    /**
+     * The unix timestamp at which the file was last forced
+     */
+    private long lastSync;
+
+    /**
+     * When the file is forced to the storage device
+     */
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.ON_ROLL;
+
+    /**
+     * The minimum interval in milliseconds between two forces with {@link FsyncPolicy#INTERVAL}
+     */
+    private long fsyncInterval = 1000;
+
+    /**
+     * If rolled segments are compressed with gzip
+     */
+    private boolean compress = true;
+
+    /**
+     * The thread compressing rolled segments, created on the first roll
+     */
+    private ExecutorService compressor;
+
+    /**
+     * The amount of bytes between two entries of the {@link TimeIndex}, 0 disables the index
+     */
+    private long indexSpacing = TimeIndex.DEFAULT_SPACING;
+
+    /**
+     * The writer of the {@link TimeIndex} of the current segment, {@code null} if it is disabled
+     */
+    private TimeIndexWriter index;
+
+    /**
+     * Set while an exception is handled, as handling it logs, which could end up in this implementation again
+     */
+    private boolean handlingError;
+
+    /**
+     * Creates a new implementation writing UTF-8 lines to a file, appending if it exists
+     *
+     * @param file         {@link #file}
+     * @param maxSize      {@link #maxSize}
+     * @param rollInterval {@link #rollInterval}
+     */
+    public RollingFileLevel(File file, long maxSize, long rollInterval)
+    {
+        this(file, maxSize, rollInterval, StandardCharsets.UTF_8, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a new implementation writing lines to a file, appending if it exists
+     *
+     * @param file         {@link #file}
+     * @param maxSize      {@link #maxSize}
+     * @param rollInterval {@link #rollInterval}
+     * @param charset      The charset lines are encoded with
+     * @param bufferSize   The capacity of the {@link #buffer}
+     */
+    public RollingFileLevel(File file, long maxSize, long rollInterval, Charset charset, int bufferSize)
+    {
+        this.file = file;
+        this.maxSize = maxSize;
+        this.rollInterval = rollInterval;
+
+        buffer = ByteBuffer.allocateDirect(bufferSize);
+        encoder = new LineEncoder(charset);
+
+        try
+        {
+            open();
+        }
+        catch(IOException e)
+        {
+            handle(e);
+        }
+    }
+
+    /**
+     * Writes a line to the buffer
+     *
+     * @param string The input to be logged
+     */
+    @Override
+    public synchronized void log(String string)
+    {
+        line.setLength(0);
+        line.append(string);
+
+        write(System.currentTimeMillis());
+    }
+
+    /**
+     * Formats a record with the {@link #formatter} into a reused builder and writes it to the buffer, counting the
+     * encoded bytes in the {@link Log#getMetrics() metrics}
+     *
+     * @param record The statement to be logged
+     */
+    @Override
+    public synchronized void log(LogRecord record)
+    {
+        line.setLength(0);
+        formatter.format(record, line);
+
+        Log.getMetrics().recordBytes(this, write(record.getTimestamp()));
+    }
+
+    /**
+     * Rolls the file if necessary and encodes the {@link #line} with a line separator into the buffer
+     *
+     * @param timestamp The unix timestamp of the line
+     *
+     * @return The amount of encoded bytes
+     */
+    private long write(long timestamp)
+    {
+        if(channel == null)
+        {
+            return 0;
+        }
+
+        try
+        {
+            if(((maxSize > 0 && size >= maxSize) || (rollInterval > 0 && timestamp >= nextRoll)) && timestamp >= nextRollAttempt)
+            {
+                try
+                {
+                    roll();
+                }
+                catch(IOException e)
+                {
+                    handle(e);
+                }
+
+                if(channel == null)
+                {
+                    return 0;
+                }
+            }
+
+            if(index != null)
+            {
+                index.line(size, timestamp);
+            }
+
+            line.append(System.lineSeparator());
+
+            int before = buffer.position();
+            long drained = written;
+            encoder.encode(line, buffer, channelDrain);
+
+            long encoded = written - drained + buffer.position() - before;
+            size += encoded;
+
+            return encoded;
+        }
+        catch(IOException e)
+        {
+            handle(e);
+
+            return 0;
+        }
+    }
+
+    /**
+     * Writes the content of the buffer to the channel
+     *
+     * @param full The buffer
+     *
+     * @return The emptied buffer
+     *
+     * @throws IOException If writing failed
+     */
+    private ByteBuffer drain(ByteBuffer full) throws IOException
+    {
+        full.flip();
+
+        while(full.hasRemaining())
+        {
+            written += channel.write(full);
+        }
+
+        full.clear();
+
+        return full;
+    }
+
+    /**
+     * Writes the buffered lines to the file and forces it according to the {@link #fsyncPolicy}
+     */
+    @Override
+    public synchronized void flush()
+    {
+        if(channel == null)
+        {
+            return;
+        }
+
+        try
+        {
+            drain(buffer);
+
+            if(index != null)
+            {
+                index.flush();
+            }
+
+            long now = System.currentTimeMillis();
+
+            if(fsyncPolicy == FsyncPolicy.ALWAYS || (fsyncPolicy == FsyncPolicy.INTERVAL && now - lastSync >= fsyncInterval))
+            {
+                channel.force(false);
+                lastSync = now;
+            }
+        }
+        catch(IOException e)
+        {
+            handle(e);
+        }
+    }
+
+    /**
+     * Closes the current segment, renames it, schedules its compression and opens a new file. If the segment could not
+     * be renamed, e.g. because it is locked, it is opened again and logging continues in it, the next roll is attempted
+     * after {@link #ROLL_RETRY}
+     *
+     * @throws IOException If the segment could not be closed or renamed
+     */
+    public synchronized void roll() throws IOException
+    {
+        try
+        {
+            closeChannel();
+
+            Path rolled = rolledPath();
+            Files.move(file.toPath(), rolled);
+
+            File segmentIndex = TimeIndex.fileOf(file);
+
+            if(segmentIndex.exists())
+            {
+                Files.move(segmentIndex.toPath(), TimeIndex.fileOf(rolled.toFile()).toPath());
+            }
+
+            if(compress)
+            {
+                compress(rolled);
+            }
+        }
+        catch(IOException e)
+        {
+            nextRollAttempt = System.currentTimeMillis() + ROLL_RETRY;
+
+            throw e;
+        }
+        finally
+        {
+            if(channel == null)
+            {
+                open();
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered lines, forces the file unless the {@link #fsyncPolicy} is {@link FsyncPolicy#NEVER} and
+     * closes it. Already scheduled compressions are finished in the background
+     */
+    public synchronized void close()
+    {
+        try
+        {
+            closeChannel();
+        }
+        catch(IOException e)
+        {
+            handle(e);
+        }
+
+        if(compressor != null)
+        {
+            compressor.shutdown();
+        }
+    }
+
+    /**
+     * Opens the {@link #file} for appending and starts a new segment
+     *
+     * @throws IOException If the file could not be opened
+     */
+    private void open() throws IOException
+    {
+        File parent = file.getAbsoluteFile().getParentFile();
+
+        if(parent != null && !parent.exists())
+        {
+            Files.createDirectories(parent.toPath());
+        }
+
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        size = channel.size();
+        index = indexSpacing > 0 ? new TimeIndexWriter(file, indexSpacing, size) : null;
+        nextRoll = System.currentTimeMillis() + rollInterval;
+        lastSync = System.currentTimeMillis();
+        buffer.clear();
+    }
+
+    /**
+     * Drains the buffer, forces and closes the channel
+     *
+     * @throws IOException If writing or closing failed
+     */
+    private void closeChannel() throws IOException
+    {
+        if(channel == null)
+        {
+            return;
+        }
+
+        try
+        {
+            drain(buffer);
+
+            if(fsyncPolicy != FsyncPolicy.NEVER)
+            {
+                channel.force(false);
+            }
+        }
+        finally
+        {
+            channel.close();
+            channel = null;
+
+            if(index != null)
+            {
+                index.close();
+                index = null;
+            }
+        }
+    }
+
+    /**
+     * @return A path next to the {@link #file} which does not exist yet, named by the current time
+     */
+    private Path rolledPath()
+    {
+        String name = file.getName() + "." + TimeUtil.format("yyyyMMdd-HHmmss");
+        Path rolled = file.toPath().resolveSibling(name);
+
+        for(int i = 1; Files.exists(rolled) || Files.exists(rolled.resolveSibling(rolled.getFileName() + ".gz")); i++)
+        {
+            rolled = file.toPath().resolveSibling(name + "." + i);
+        }
+
+        return rolled;
+    }
+
+    /**
+     * Compresses a rolled segment to {@code <segment>.gz} on the {@link #compressor} and deletes the segment afterwards
+     *
+     * @param segment The rolled segment
+     */
+    private void compress(Path segment)
+    {
+        if(compressor == null)
+        {
+            compressor = Executors.newSingleThreadExecutor((runnable) ->
+            {
+                Thread thread = new Thread(runnable, "Log-Compressor");
+                thread.setDaemon(true);
+
+                return thread;
+            });
+        }
+
+        compressor.execute(() ->
+        {
+            Path compressed = segment.resolveSibling(segment.getFileName() + ".gz");
+
+            try(InputStream input = Files.newInputStream(segment);
+                OutputStream output = new GZIPOutputStream(Files.newOutputStream(compressed), DEFAULT_BUFFER_SIZE))
+            {
+                input.transferTo(output);
+            }
+            catch(IOException e)
+            {
+                Exceptions.handle(e);
+
+                return;
+            }
+
+            try
+            {
+                Files.delete(segment);
+                Files.deleteIfExists(TimeIndex.fileOf(segment.toFile()).toPath());
+            }
+            catch(IOException e)
+            {
+                Exceptions.handle(e);
+            }
+        });
+    }
+
+    /**
+     * Handles an exception unless one is handled already, as handling it logs
+     *
+     * @param e The exception
+     */
+    private void handle(IOException e)
+    {
+        if(!handlingError)
+        {
+            handlingError = true;
+
+            try
+            {
+                Exceptions.handle(e);
+            }
+            finally
+            {
+                handlingError = false;
+            }
+        }
+    }
+
+    /**
+     * @return The path of the {@link #file}
+     */
+    @Override
+    public String getName()
+    {
+        return file.getPath();
+    }
+
+    /**
+     * @return {@link #file}
+     */
+    public File getFile()
+    {
+        return file;
+    }
+
+    /**
+     * @return {@link #fsyncPolicy}
+     */
+    public FsyncPolicy getFsyncPolicy()
+    {
+        return fsyncPolicy;
+    }
+
+    /**
+     * @param fsyncPolicy {@link #fsyncPolicy}
+     */
+    public void setFsyncPolicy(FsyncPolicy fsyncPolicy)
+    {
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    /**
+     * @return {@link #fsyncInterval}
+     */
+    public long getFsyncInterval()
+    {
+        return fsyncInterval;
+    }
+
+    /**
+     * @param fsyncInterval {@link #fsyncInterval}
+     */
+    public void setFsyncInterval(long fsyncInterval)
+    {
+        this.fsyncInterval = fsyncInterval;
+    }
+
+    /**
+     * @return {@link #indexSpacing}
+     */
+    public long getIndexSpacing()
+    {
+        return indexSpacing;
+    }
+
+    /**
+     * Sets the spacing of the {@link TimeIndex}, which takes effect with the next segment
+     *
+     * @param indexSpacing {@link #indexSpacing}
+     */
+    public void setIndexSpacing(long indexSpacing)
+    {
+        this.indexSpacing = indexSpacing;
+    }
+
+    /**
+     * @return {@link #compress}
+     */
+    public boolean isCompress()
+    {
+        return compress;
+    }
+
+    /**
+     * @param compress {@link #compress}
+     */
+    public void setCompress(boolean compress)
+    {
+        this.compress = compress;
+    }
+
+    /**
+     * @return {@link #formatter}
+     */
+    public LogFormatter getFormatter()
+    {
+        return formatter;
+    }
+
+    /**
+     * @param formatter {@link #formatter}
+     */
+    public void setFormatter(LogFormatter formatter)
+    {
+        this.formatter = formatter;
+    }
+}
@@ -0,0 +1,21 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+/**
+ * What the limits of a {@link LogSampler} are counted for
+ *
+ * @author Jakob-Niklas See
+ * @see #CALL_SITE
+ * @see #PREFIX
+ */
+public enum SamplingScope
+{
+    /**
+     * Every line of code calling a print statement is limited on its own
+     */
+    CALL_SITE,
+
+    /**
+     * Every prefix is limited on its own, which does not require looking up the caller
+     */
+    PREFIX
+}
@@ -0,0 +1,486 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import de.jakobniklas.javalib.exception.Exceptions;
+import de.jakobniklas.javalib.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link LevelImplementation} letting every thread format its lines into a buffer of its own, so writing threads
+ * never wait for each other or for the lock of a shared stream like {@link System#out}. A background flusher merges the
+ * buffers of all threads in timestamp order and passes the lines on to another implementation, every {@link #interval}
+ * or as soon as a buffer exceeds the {@link #threshold}
+ * <p>
+ * The lines are ordered by their timestamp, lines of the same timestamp keep the order of their thread. As a statement
+ * captured just before a merge may still be formatted while it runs, the flusher keeps lines younger than {@link
+ * #HOLD_BACK} for the next merge, only {@link #drain()} writes every line at once
+ *
+ * <pre>{@code
+ * Log.registerLevel(LogLevel.INFO, new ThreadBufferedLevel(System.out::println, 100, 64 * 1024));
+ * }</pre>
+ *
+ * @author Jakob-Niklas See
+ * @see #ThreadBufferedLevel(LevelImplementation, long, int)
+ * @see #log(String)
+ * @see #log(LogRecord)
+ * @see #drain()
+ * @see #close()
+ * @see #setFormatter(LogFormatter)
+ */
+public class ThreadBufferedLevel implements LevelImplementation
+{
+    /**
+     * A buffer is drained by its own thread instead of the flusher once it exceeds this many times the {@link
+     * #threshold}, which bounds the memory if the flusher falls behind
+     */
+    private static final int MAX_THRESHOLD_FACTOR = 4;
+
+    /**
+     * The age in milliseconds below which the flusher keeps lines for the next merge
+     */
+    private static final long HOLD_BACK = 10;
+
+    /**
+     * The implementation the merged lines are passed to
+     */
+    private final LevelImplementation target;
+
+    /**
+     * The time between two merges in milliseconds
+     */
+    private final long interval;
+
+    /**
+     * The amount of characters of a buffer which triggers a merge
+     */
+    private final int threshold;
+
+    /**
+     * The buffers of every thread which logged to this implementation
+     */
+    private final List<Buffer> buffers = new CopyOnWriteArrayList<>();
+
+    /**
+     * The buffer of the current thread
+     */
+    private final ThreadLocal<Buffer> localBuffer = ThreadLocal.withInitial(this::register);
+
+    /**
+     * The thread merging the buffers
+     */
+    private final Thread flusher;
+
+    /**
+     * The lines kept for the next merge in timestamp order, guarded by the implementation
+     */
+    private Chunk carried = new Chunk();
+
+    /**
+     * The chunk lines are kept in during a merge, swapped with {@link #carried} afterwards
+     */
+    private Chunk carrying = new Chunk();
+
+    /**
+     * The formatter of records, the configured patterns of {@link Log} by default
+     */
+    private volatile LogFormatter formatter = LogFormatter.PATTERNS;
+
+    /**
+     * If the {@link #flusher} should keep merging
+     */
+    private volatile boolean running = true;
+
+    /**
+     * Creates a new implementation and starts its flusher
+     *
+     * @param target    {@link #target} (can be a lambda expression)
+     * @param interval  {@link #interval}
+     * @param threshold {@link #threshold}
+     */
+    public ThreadBufferedLevel(LevelImplementation target, long interval, int threshold)
+    {
+        if(interval < 1 || threshold < 1)
+        {
+            throw new IllegalArgumentException("Invalid buffering: interval=" + interval + ", threshold=" + threshold);
+        }
+
+        this.target = target;
+        this.interval = interval;
+        this.threshold = threshold;
+
+        flusher = new Thread(this::flushLoop, "Log-ThreadBufferFlusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Buffers a preformatted line
+     *
+     * @param string The input to be logged
+     */
+    @Override
+    public void log(String string)
+    {
+        Buffer buffer = localBuffer.get();
+        int length;
+
+        synchronized(buffer)
+        {
+            buffer.active.text.append(string);
+            length = buffer.active.add(System.currentTimeMillis());
+        }
+
+        signal(length);
+    }
+
+    /**
+     * Formats a record with the {@link #formatter} into the buffer of the current thread, counting the UTF-8 length of
+     * the line and a line separator in the {@link Log#getMetrics() metrics}
+     *
+     * @param record The statement to be logged
+     */
+    @Override
+    public void log(LogRecord record)
+    {
+        Buffer buffer = localBuffer.get();
+        int bytes;
+        int length;
+
+        synchronized(buffer)
+        {
+            int before = buffer.active.text.length();
+            formatter.format(record, buffer.active.text);
+            length = buffer.active.add(record.getTimestamp());
+            bytes = LineEncoder.utf8Length(buffer.active.text, before, length);
+        }
+
+        Log.getMetrics().recordBytes(this, bytes + System.lineSeparator().length());
+        signal(length);
+    }
+
+    /**
+     * Wakes the flusher if a buffer exceeds the {@link #threshold}, or merges on the current thread if the buffer grew
+     * far beyond it
+     *
+     * @param length The amount of buffered characters
+     */
+    private void signal(int length)
+    {
+        if(length >= (long) threshold * MAX_THRESHOLD_FACTOR)
+        {
+            merge(System.currentTimeMillis() - HOLD_BACK);
+        }
+        else if(length >= threshold)
+        {
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    /**
+     * Does nothing, as the buffered lines are written by the flusher. This is called after every synchronous statement,
+     * so writing here would make every thread wait for the merge again
+     */
+    @Override
+    public void flush()
+    {
+    }
+
+    /**
+     * Merges every buffered line into the {@link #target} and flushes it
+     */
+    @Override
+    public void drain()
+    {
+        merge(Long.MAX_VALUE);
+    }
+
+    /**
+     * Takes the lines out of every buffer and passes the lines older than a cutoff on to the {@link #target} ordered by
+     * timestamp, keeping the others for the next merge
+     *
+     * @param cutoff The unix timestamp from which on lines are kept
+     */
+    private synchronized void merge(long cutoff)
+    {
+        List<Chunk> chunks = new ArrayList<>();
+
+        if(carried.count > 0)
+        {
+            chunks.add(carried);
+        }
+
+        for(Buffer buffer : buffers)
+        {
+            synchronized(buffer)
+            {
+                Chunk full = buffer.active;
+                buffer.active = buffer.spare;
+                buffer.spare = full;
+            }
+
+            if(buffer.spare.count > 0)
+            {
+                chunks.add(buffer.spare);
+            }
+            else if(!buffer.owner.isAlive())
+            {
+                buffers.remove(buffer);
+            }
+        }
+
+        if(chunks.isEmpty())
+        {
+            return;
+        }
+
+        try
+        {
+            merge(chunks, cutoff);
+            target.flush();
+        }
+        finally
+        {
+            for(Chunk chunk : chunks)
+            {
+                chunk.clear();
+            }
+
+            Chunk kept = carrying;
+            carrying = carried;
+            carried = kept;
+        }
+    }
+
+    /**
+     * Passes the lines of the chunks on to the {@link #target} ordered by timestamp, or into {@link #carrying} from the
+     * cutoff on. The chunks are ordered by timestamp themselves, so the next line is always the first remaining line of
+     * one of them
+     *
+     * @param chunks The chunks taken out of the buffers
+     * @param cutoff The unix timestamp from which on lines are kept
+     */
+    private void merge(List<Chunk> chunks, long cutoff)
+    {
+        int[] cursors = new int[chunks.size()];
+
+        while(true)
+        {
+            int next = -1;
+            long earliest = Long.MAX_VALUE;
+
+            for(int i = 0; i < cursors.length; i++)
+            {
+                Chunk chunk = chunks.get(i);
+
+                if(cursors[i] < chunk.count && (next < 0 || chunk.timestamps[cursors[i]] < earliest))
+                {
+                    next = i;
+                    earliest = chunk.timestamps[cursors[i]];
+                }
+            }
+
+            if(next < 0)
+            {
+                return;
+            }
+
+            Chunk chunk = chunks.get(next);
+            int line = cursors[next]++;
+            int start = line == 0 ? 0 : chunk.ends[line - 1];
+
+            if(earliest >= cutoff)
+            {
+                carrying.text.append(chunk.text, start, chunk.ends[line]);
+                carrying.add(earliest);
+            }
+            else
+            {
+                target.log(chunk.text.substring(start, chunk.ends[line]));
+            }
+        }
+    }
+
+    /**
+     * Loop of the {@link #flusher}, merging every {@link #interval} or when woken up by a full buffer
+     */
+    private void flushLoop()
+    {
+        while(running)
+        {
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(interval));
+
+            try
+            {
+                merge(System.currentTimeMillis() - HOLD_BACK);
+            }
+            catch(Exception e)
+            {
+                Exceptions.handle(e);
+            }
+        }
+    }
+
+    /**
+     * Stops the flusher and writes every buffered line
+     */
+    public void close()
+    {
+        running = false;
+        LockSupport.unpark(flusher);
+
+        try
+        {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        drain();
+    }
+
+    /**
+     * Creates the buffer of the current thread and adds it to the {@link #buffers}
+     *
+     * @return The new buffer
+     */
+    private Buffer register()
+    {
+        Buffer buffer = new Buffer(Thread.currentThread());
+        buffers.add(buffer);
+
+        return buffer;
+    }
+
+    /**
+     * @return {@link #target}
+     */
+    public LevelImplementation getTarget()
+    {
+        return target;
+    }
+
+    /**
+     * @return {@link #interval}
+     */
+    public long getInterval()
+    {
+        return interval;
+    }
+
+    /**
+     * @return {@link #threshold}
+     */
+    public int getThreshold()
+    {
+        return threshold;
+    }
+
+    /**
+     * @return {@link #formatter}
+     */
+    public LogFormatter getFormatter()
+    {
+        return formatter;
+    }
+
+    /**
+     * @param formatter {@link #formatter}
+     */
+    public void setFormatter(LogFormatter formatter)
+    {
+        this.formatter = formatter;
+    }
+
+    /**
+     * The lines of one thread, written into the {@link #active} chunk while the flusher merges the {@link #spare} one
+     */
+    private static final class Buffer
+    {
+        /**
+         * The thread writing into the buffer, the buffer is removed once the thread died and the buffer is empty
+         */
+        private final Thread owner;
+
+        /**
+         * The chunk lines are written into, guarded by the buffer
+         */
+        private Chunk active = new Chunk();
+
+        /**
+         * The chunk merged by the flusher, swapped with the {@link #active} one while holding the buffer
+         */
+        private Chunk spare = new Chunk();
+
+        /**
+         * @param owner {@link #owner}
+         */
+        private Buffer(Thread owner)
+        {
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * Lines stored as one text and the end and timestamp of every line
+     */
+    private static final class Chunk
+    {
+        /**
+         * The text of every line
+         */
+        private final StringBuilder text = new StringBuilder(1024);
+
+        /**
+         * The index in the {@link #text} after every line
+         */
+        private int[] ends = new int[64];
+
+        /**
+         * The timestamp of every line
+         */
+        private long[] timestamps = new long[64];
+
+        /**
+         * The amount of lines
+         */
+        private int count;
+
+        /**
+         * Ends the line appended to the {@link #text} last
+         *
+         * @param timestamp The unix timestamp of the line
+         *
+         * @return The length of the {@link #text}
+         */
+        private int add(long timestamp)
+        {
+            if(count == ends.length)
+            {
+                ends = Arrays.copyOf(ends, count * 2);
+                timestamps = Arrays.copyOf(timestamps, count * 2);
+            }
+
+            ends[count] = text.length();
+            timestamps[count] = timestamp;
+            count++;
+
+            return text.length();
+        }
+
+        /**
+         * Removes every line, keeping the allocated capacity
+         */
+        private void clear()
+        {
+            text.setLength(0);
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A sparse index of a log file, stored next to it as {@code <file>.idx}. Every entry maps a byte offset at the start of
+ * a line to a timestamp no earlier than the lines before the offset, so the entries are sorted by both and the offset
+ * to start reading a time range at can be found with a binary search. Entries are written by a {@link
+ * TimeIndexWriter} while logging, or by {@link #rebuild(File, long, TimestampParser, Charset)} for existing files
+ * <p>
+ * The index file consists of entries of {@link #ENTRY_SIZE} bytes: the timestamp and the offset as big-endian longs
+ *
+ * @author Jakob-Niklas See
+ * @see #load(File)
+ * @see #rebuild(File, long, TimestampParser, Charset)
+ * @see #floorOffset(long)
+ * @see LogRangeReader
+ */
+public final class TimeIndex
+{
+    /**
+     * The default amount of bytes of the log file between two entries
+     */
+    public static final long DEFAULT_SPACING = 64 * 1024;
+
+    /**
+     * The size of an entry in the index file
+     */
+    public static final int ENTRY_SIZE = 16;
+
+    /**
+     * The size of the chunks read around every sample while rebuilding
+     */
+    private static final int SAMPLE_SIZE = 16 * 1024;
+
+    /**
+     * The timestamp of every entry, sorted
+     */
+    private final long[] timestamps;
+
+    /**
+     * The offset of every entry, sorted
+     */
+    private final long[] offsets;
+
+    /**
+     * @param timestamps {@link #timestamps}
+     * @param offsets    {@link #offsets}
+     */
+    private TimeIndex(long[] timestamps, long[] offsets)
+    {
+        this.timestamps = timestamps;
+        this.offsets = offsets;
+    }
+
+    /**
+     * @param log A log file
+     *
+     * @return The index file of the log file
+     */
+    public static File fileOf(File log)
+    {
+        return new File(log.getPath() + ".idx");
+    }
+
+    /**
+     * Reads the index of a log file. Entries pointing behind the end of the log file are ignored
+     *
+     * @param log A log file
+     *
+     * @return The index, which is empty if the log file has none
+     *
+     * @throws IOException If the index could not be read
+     */
+    public static TimeIndex load(File log) throws IOException
+    {
+        File file = fileOf(log);
+
+        if(!file.exists())
+        {
+            return new TimeIndex(new long[0], new long[0]);
+        }
+
+        ByteBuffer entries = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        long[] timestamps = new long[entries.remaining() / ENTRY_SIZE];
+        long[] offsets = new long[timestamps.length];
+        long length = log.length();
+        int count = 0;
+
+        while(count < timestamps.length)
+        {
+            long timestamp = entries.getLong();
+            long offset = entries.getLong();
+
+            if(offset > length || (count > 0 && (offset < offsets[count - 1] || timestamp < timestamps[count - 1])))
+            {
+                break;
+            }
+
+            timestamps[count] = timestamp;
+            offsets[count] = offset;
+            count++;
+        }
+
+        return new TimeIndex(Arrays.copyOf(timestamps, count), Arrays.copyOf(offsets, count));
+    }
+
+    /**
+     * Creates the index of an existing log file by sampling it: at every spacing, the first line with a timestamp
+     * becomes an entry. The timestamps of the entries never decrease, so a line sampled out of order cannot break the
+     * binary search. The previous index is replaced
+     *
+     * @param log     A log file
+     * @param spacing The amount of bytes between two samples
+     * @param parser  The parser of the timestamps of the lines
+     * @param charset The charset of the log file, which has to encode {@code '\n'} as a single byte
+     *
+     * @return The new index
+     *
+     * @throws IOException If the log file could not be read or the index could not be written
+     */
+    public static TimeIndex rebuild(File log, long spacing, TimestampParser parser, Charset charset) throws IOException
+    {
+        if(spacing < 1)
+        {
+            throw new IllegalArgumentException("spacing must be positive: " + spacing);
+        }
+
+        long[] timestamps = new long[16];
+        long[] offsets = new long[16];
+        int count = 0;
+        long max = Long.MIN_VALUE;
+
+        try(FileChannel channel = FileChannel.open(log.toPath(), StandardOpenOption.READ))
+        {
+            ByteBuffer chunk = ByteBuffer.allocate(SAMPLE_SIZE);
+            long length = channel.size();
+            long position = 0;
+
+            while(position < length)
+            {
+                chunk.clear();
+                channel.read(chunk, position);
+                chunk.flip();
+
+                int start = position == 0 ? 0 : next(chunk, 0);
+                long sampled = -1;
+
+                while(start >= 0 && start < chunk.limit())
+                {
+                    int end = next(chunk, start);
+
+                    if(end < 0)
+                    {
+                        break;
+                    }
+
+                    sampled = parser.parse(charset.decode(chunk.duplicate().position(start).limit(end - 1)));
+
+                    if(sampled >= 0)
+                    {
+                        break;
+                    }
+
+                    start = end;
+                }
+
+                if(sampled >= 0)
+                {
+                    if(count == timestamps.length)
+                    {
+                        timestamps = Arrays.copyOf(timestamps, count * 2);
+                        offsets = Arrays.copyOf(offsets, count * 2);
+                    }
+
+                    max = Math.max(max, sampled);
+                    timestamps[count] = max;
+                    offsets[count] = position + start;
+                    count++;
+                }
+
+                position += Math.max(spacing, start < 0 ? chunk.limit() : start + 1);
+            }
+        }
+
+        ByteBuffer entries = ByteBuffer.allocate(count * ENTRY_SIZE);
+
+        for(int i = 0; i < count; i++)
+        {
+            entries.putLong(timestamps[i]).putLong(offsets[i]);
+        }
+
+        File file = fileOf(log);
+        File temporary = new File(file.getPath() + ".tmp");
+        Files.write(temporary.toPath(), entries.array());
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        return new TimeIndex(Arrays.copyOf(timestamps, count), Arrays.copyOf(offsets, count));
+    }
+
+    /**
+     * @param chunk A chunk of a log file
+     * @param from  The index to start at
+     *
+     * @return The index after the next {@code '\n'}, or -1 if the chunk contains none
+     */
+    private static int next(ByteBuffer chunk, int from)
+    {
+        for(int i = from; i < chunk.limit(); i++)
+        {
+            if(chunk.get(i) == '\n')
+            {
+                return i + 1;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Finds the offset to start reading lines from a timestamp on, which is the offset of the last entry with an
+     * earlier timestamp
+     *
+     * @param timestamp A unix timestamp
+     *
+     * @return The offset, 0 if no entry is earlier
+     */
+    public long floorOffset(long timestamp)
+    {
+        int low = 0;
+        int high = timestamps.length - 1;
+        int found = -1;
+
+        while(low <= high)
+        {
+            int middle = (low + high) >>> 1;
+
+            if(timestamps[middle] < timestamp)
+            {
+                found = middle;
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle - 1;
+            }
+        }
+
+        return found < 0 ? 0 : offsets[found];
+    }
+
+    /**
+     * @return The amount of entries
+     */
+    public int size()
+    {
+        return timestamps.length;
+    }
+
+    /**
+     * @param index The index of an entry
+     *
+     * @return The timestamp of the entry
+     */
+    public long getTimestamp(int index)
+    {
+        return timestamps[index];
+    }
+
+    /**
+     * @param index The index of an entry
+     *
+     * @return The offset of the entry
+     */
+    public long getOffset(int index)
+    {
+        return offsets[index];
+    }
+}
@@ -0,0 +1,158 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends the entries of a {@link TimeIndex} while a log file is written, one entry every {@link #spacing} bytes. Used
+ * by {@link RollingFileLevel}, which reports the offset and timestamp of every line
+ *
+ * @author Jakob-Niklas See
+ * @see #TimeIndexWriter(File, long, long)
+ * @see #line(long, long)
+ * @see #flush()
+ * @see #close()
+ */
+public class TimeIndexWriter
+{
+    /**
+     * The amount of entries buffered before they are written
+     */
+    private static final int BUFFERED_ENTRIES = 256;
+
+    /**
+     * The amount of bytes of the log file between two entries
+     */
+    private final long spacing;
+
+    /**
+     * The channel of the index file
+     */
+    private final FileChannel channel;
+
+    /**
+     * The buffered entries
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFERED_ENTRIES * TimeIndex.ENTRY_SIZE);
+
+    /**
+     * The offset from which on the next line gets an entry
+     */
+    private long nextOffset;
+
+    /**
+     * The latest timestamp of the lines so far
+     */
+    private long maxTimestamp = Long.MIN_VALUE;
+
+    /**
+     * Opens the index of a log file for appending. The entries continue after the last existing entry, an index
+     * pointing behind the end of the log file is started anew
+     *
+     * @param log     The log file
+     * @param spacing {@link #spacing}
+     * @param length  The current length of the log file
+     *
+     * @throws IOException If the index could not be opened or read
+     */
+    public TimeIndexWriter(File log, long spacing, long length) throws IOException
+    {
+        if(spacing < 1)
+        {
+            throw new IllegalArgumentException("spacing must be positive: " + spacing);
+        }
+
+        this.spacing = spacing;
+
+        channel = FileChannel.open(TimeIndex.fileOf(log).toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long entries = channel.size() / TimeIndex.ENTRY_SIZE;
+        ByteBuffer last = ByteBuffer.allocate(TimeIndex.ENTRY_SIZE);
+
+        if(entries > 0 && channel.read(last, (entries - 1) * TimeIndex.ENTRY_SIZE) == TimeIndex.ENTRY_SIZE && last.getLong(8) <= length)
+        {
+            channel.truncate(entries * TimeIndex.ENTRY_SIZE);
+            nextOffset = last.getLong(8) + spacing;
+            maxTimestamp = Math.max(last.getLong(0), length > last.getLong(8) ? System.currentTimeMillis() : Long.MIN_VALUE);
+        }
+        else
+        {
+            channel.truncate(0);
+            nextOffset = length;
+            maxTimestamp = length > 0 ? System.currentTimeMillis() : Long.MIN_VALUE;
+        }
+
+        channel.position(channel.size());
+    }
+
+    /**
+     * Adds an entry for a line if it starts at least {@link #spacing} bytes after the previous entry. The timestamp of
+     * the entry is the latest timestamp of the lines before it, so the entries stay sorted if lines are written out of
+     * order
+     *
+     * @param offset    The offset of the line in the log file
+     * @param timestamp The unix timestamp of the line
+     *
+     * @throws IOException If the buffered entries could not be written
+     */
+    public void line(long offset, long timestamp) throws IOException
+    {
+        if(offset >= nextOffset)
+        {
+            if(!buffer.hasRemaining())
+            {
+                flush();
+            }
+
+            buffer.putLong(maxTimestamp == Long.MIN_VALUE ? timestamp : maxTimestamp).putLong(offset);
+            nextOffset = offset + spacing;
+        }
+
+        maxTimestamp = Math.max(maxTimestamp, timestamp);
+    }
+
+    /**
+     * Writes the buffered entries to the index file
+     *
+     * @throws IOException If writing failed
+     */
+    public void flush() throws IOException
+    {
+        buffer.flip();
+
+        while(buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+
+    /**
+     * Writes the buffered entries and closes the index file
+     *
+     * @throws IOException If writing or closing failed
+     */
+    public void close() throws IOException
+    {
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * @return {@link #spacing}
+     */
+    public long getSpacing()
+    {
+        return spacing;
+    }
+}
@@ -0,0 +1,113 @@
+package de.jakobniklas.javalib.util.subclasses.log;
+
+/**
+ * Functional interface reading the unix timestamp of a written log line, used by {@link TimeIndex} and {@link
+ * LogRangeReader} to find lines by time
+ *
+ * @author Jakob-Niklas See
+ * @see #parse(CharSequence)
+ * @see #PATTERNS
+ * @see #JSON
+ */
+@FunctionalInterface
+public interface TimestampParser
+{
+    /**
+     * Reads the milliseconds of lines starting with the default pattern {@code [#date; #time; #milliseconds]}, which are
+     * the last section inside the leading brackets
+     */
+    TimestampParser PATTERNS = (line) ->
+    {
+        if(line.length() == 0 || line.charAt(0) != '[')
+        {
+            return -1;
+        }
+
+        int end = 1;
+
+        while(end < line.length() && line.charAt(end) != ']')
+        {
+            end++;
+        }
+
+        int start = end;
+
+        while(start > 1 && line.charAt(start - 1) != ';')
+        {
+            start--;
+        }
+
+        while(start < end && line.charAt(start) == ' ')
+        {
+            start++;
+        }
+
+        return end < line.length() ? parseDigits(line, start, end) : -1;
+    };
+
+    /**
+     * Reads the {@code "milliseconds"} field of lines written by a {@link JsonLogFormatter}
+     */
+    TimestampParser JSON = (line) ->
+    {
+        String key = "\"milliseconds\":";
+
+        for(int i = 0; i + key.length() <= line.length(); i++)
+        {
+            if(line.charAt(i) == '"' && key.contentEquals(line.subSequence(i, i + key.length())))
+            {
+                int start = i + key.length();
+                int end = start;
+
+                while(end < line.length() && line.charAt(end) >= '0' && line.charAt(end) <= '9')
+                {
+                    end++;
+                }
+
+                return parseDigits(line, start, end);
+            }
+        }
+
+        return -1;
+    };
+
+    /**
+     * Method to be implemented reading the timestamp of a line (can be a lambda expression)
+     *
+     * @param line A written line without its line separator
+     *
+     * @return The unix timestamp of the line, or -1 if the line has none, e.g. the continuation of a multi-line message
+     */
+    long parse(CharSequence line);
+
+    /**
+     * @param text  A text
+     * @param start The index of the first digit
+     * @param end   The index after the last digit
+     *
+     * @return The non-negative number of the range, or -1 if it is empty, contains other characters or overflows
+     */
+    static long parseDigits(CharSequence text, int start, int end)
+    {
+        if(start >= end || end - start > 18)
+        {
+            return -1;
+        }
+
+        long value = 0;
+
+        for(int i = start; i < end; i++)
+        {
+            char c = text.charAt(i);
+
+            if(c < '0' || c > '9')
+            {
+                return -1;
+            }
+
+            value = value * 10 + (c - '0');
+        }
+
+        return value;
+    }
+}
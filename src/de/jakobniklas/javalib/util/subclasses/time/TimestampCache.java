@@ -0,0 +1,116 @@
+package de.jakobniklas.javalib.util.subclasses.time;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Class caching the rendered String of a timestamp. The timestamp is only formatted again once it leaves the current
+ * interval of {@link #granularity} milliseconds, so that every thread asking within the same interval shares the same
+ * String
+ *
+ * @author Jakob-Niklas See
+ * @see #TimestampCache(String, long)
+ * @see #TimestampCache(DateTimeFormatter, long)
+ * @see #get(long)
+ */
+public class TimestampCache
+{
+    /**
+     * The thread-safe formatter used to render a timestamp
+     */
+    private final DateTimeFormatter formatter;
+
+    /**
+     * The length of an interval in milliseconds in which the rendered String is reused
+     */
+    private final long granularity;
+
+    /**
+     * The most recently rendered interval, replaced as a whole so it can be read without locking
+     */
+    private volatile Entry entry = new Entry(Long.MIN_VALUE, null);
+
+    /**
+     * Creates a new cache for a pattern in the system default time zone
+     *
+     * @param pattern     A pattern for {@link DateTimeFormatter#ofPattern(String)}
+     * @param granularity {@link #granularity}
+     */
+    public TimestampCache(String pattern, long granularity)
+    {
+        this(DateTimeFormatter.ofPattern(pattern).withZone(ZoneId.systemDefault()), granularity);
+    }
+
+    /**
+     * Creates a new cache for a formatter
+     *
+     * @param formatter   {@link #formatter}, must have a zone if it formats date or time fields
+     * @param granularity {@link #granularity}
+     */
+    public TimestampCache(DateTimeFormatter formatter, long granularity)
+    {
+        if(granularity < 1)
+        {
+            throw new IllegalArgumentException("granularity must be positive: " + granularity);
+        }
+
+        this.formatter = formatter;
+        this.granularity = granularity;
+    }
+
+    /**
+     * Returns the rendered String of a unix timestamp, formatting it only if it lies outside of the cached interval
+     *
+     * @param unix The unix timestamp in milliseconds
+     *
+     * @return The formatted String
+     */
+    public String get(long unix)
+    {
+        long interval = Math.floorDiv(unix, granularity);
+        Entry current = entry;
+
+        if(current.interval != interval)
+        {
+            current = new Entry(interval, formatter.format(Instant.ofEpochMilli(interval * granularity)));
+            entry = current;
+        }
+
+        return current.text;
+    }
+
+    /**
+     * @return {@link #granularity}
+     */
+    public long getGranularity()
+    {
+        return granularity;
+    }
+
+    /**
+     * Immutable pair of an interval and its rendered String
+     */
+    private static class Entry
+    {
+        /**
+         * The index of the interval
+         */
+        private final long interval;
+
+        /**
+         * The rendered String of the start of the interval
+         */
+        private final String text;
+
+        /**
+         * @param interval {@link #interval}
+         * @param text     {@link #text}
+         */
+        private Entry(long interval, String text)
+        {
+            this.interval = interval;
+            this.text = text;
+        }
+    }
+}